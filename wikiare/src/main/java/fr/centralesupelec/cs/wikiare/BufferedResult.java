@@ -0,0 +1,124 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.StatementResult;
+import org.neo4j.driver.v1.exceptions.NoSuchRecordException;
+import org.neo4j.driver.v1.summary.ResultSummary;
+import org.neo4j.driver.v1.util.Function;
+
+/**
+ * The result of a query whose records have been entirely read from the server, 
+ * so that it remains available after the session of the query is closed.
+ *
+ */
+class BufferedResult implements StatementResult {
+
+	/**
+	 * The keys of the records.
+	 */
+	private List<String> keys;
+
+	/**
+	 * The records.
+	 */
+	private List<Record> records;
+
+	/**
+	 * The summary of the query.
+	 */
+	private ResultSummary summary;
+
+	/**
+	 * The position of the next record.
+	 */
+	private int position;
+
+	/**
+	 * Reads entirely the result of a query.
+	 * @param result The result of a query.
+	 */
+	BufferedResult(StatementResult result) {
+		this.keys = result.keys();
+		this.records = result.list();
+		this.summary = result.consume();
+		this.position = 0;
+	}
+
+	@Override
+	public List<String> keys() {
+		return keys;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return position < records.size();
+	}
+
+	@Override
+	public Record next() {
+		if ( !hasNext() )
+			throw new NoSuchRecordException("No more records");
+		return records.get(position++);
+	}
+
+	@Override
+	public Record single() {
+		if ( records.size() - position != 1 )
+			throw new NoSuchRecordException("Expected a result with a single record, but this result contains " 
+					+ (records.size() - position) + " records");
+		return next();
+	}
+
+	@Override
+	public Record peek() {
+		if ( !hasNext() )
+			throw new NoSuchRecordException("No more records");
+		return records.get(position);
+	}
+
+	@Override
+	public List<Record> list() {
+		List<Record> remaining = new ArrayList<Record>(records.subList(position, records.size()));
+		position = records.size();
+		return remaining;
+	}
+
+	@Override
+	public <T> List<T> list(Function<Record, T> mapFunction) {
+		List<T> remaining = new ArrayList<T>(records.size() - position);
+		while ( hasNext() )
+			remaining.add(mapFunction.apply(next()));
+		return remaining;
+	}
+
+	@Override
+	public ResultSummary consume() {
+		position = records.size();
+		return summary;
+	}
+
+}
@@ -0,0 +1,202 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.driver.v1.Driver;
+import org.neo4j.driver.v1.GraphDatabase;
+
+/**
+ * A Neo4j server that hosts a copy of the Wikipedia, with the metrics of the requests sent to it.
+ *
+ */
+public class Endpoint {
+
+	/**
+	 * The weight of the last latency in the moving average of the latencies.
+	 */
+	private static final double LATENCY_WEIGHT = 0.2;
+
+	/**
+	 * The name or IP address of the host.
+	 */
+	private String host;
+
+	/**
+	 * The driver used to connect to the host.
+	 */
+	private Driver driver;
+
+	/**
+	 * The number of sessions open on the host.
+	 */
+	private AtomicInteger outstanding;
+
+	/**
+	 * The number of sessions opened on the host.
+	 */
+	private AtomicLong requests;
+
+	/**
+	 * The number of sessions that failed on the host.
+	 */
+	private AtomicLong failures;
+
+	/**
+	 * The exponentially weighted moving average of the latencies of the queries, in milliseconds.
+	 */
+	private double latency;
+
+	/**
+	 * Whether the latency of at least one query has been recorded.
+	 */
+	private boolean sampled;
+
+	/**
+	 * Whether the host is considered available.
+	 */
+	private volatile boolean healthy;
+
+	/**
+	 * Creates a new endpoint.
+	 * @param host The name or IP address of the host.
+	 */
+	Endpoint(String host) {
+		this.host = host;
+		this.driver = GraphDatabase.driver( "bolt://" + host );
+		this.outstanding = new AtomicInteger();
+		this.requests = new AtomicLong();
+		this.failures = new AtomicLong();
+		this.latency = 0;
+		this.sampled = false;
+		this.healthy = true;
+	}
+
+	/**
+	 * Returns the name or IP address of the host.
+	 * @return The name or IP address of the host.
+	 */
+	public String host() {
+		return this.host;
+	}
+
+	/**
+	 * Returns the number of sessions currently open on the host.
+	 * @return The number of sessions currently open on the host.
+	 */
+	public int outstanding() {
+		return this.outstanding.get();
+	}
+
+	/**
+	 * Returns the number of sessions opened on the host.
+	 * @return The number of sessions opened on the host.
+	 */
+	public long requests() {
+		return this.requests.get();
+	}
+
+	/**
+	 * Returns the number of sessions that failed on the host.
+	 * @return The number of sessions that failed on the host.
+	 */
+	public long failures() {
+		return this.failures.get();
+	}
+
+	/**
+	 * Returns the exponentially weighted moving average of the latencies of the queries, measured from 
+	 * the time a query is sent until its result is entirely read.
+	 * @return The moving average of the latencies of the queries, in milliseconds; {@code 0} if no query 
+	 * has completed yet.
+	 */
+	public synchronized double latency() {
+		return this.latency;
+	}
+
+	/**
+	 * Returns whether the host is considered available.
+	 * A host is not available after a failure, until a probe succeeds.
+	 * @return {@code true} if the host is considered available, {@code false} otherwise.
+	 */
+	public boolean isHealthy() {
+		return this.healthy;
+	}
+
+	/**
+	 * Returns the driver used to connect to the host.
+	 * @return The driver used to connect to the host.
+	 */
+	Driver driver() {
+		return this.driver;
+	}
+
+	/**
+	 * Records that a session has been opened on the host.
+	 */
+	void open() {
+		requests.incrementAndGet();
+		outstanding.incrementAndGet();
+	}
+
+	/**
+	 * Records that a session has been closed.
+	 */
+	void close() {
+		outstanding.decrementAndGet();
+	}
+
+	/**
+	 * Records the latency of a query.
+	 * @param milliseconds The time from when the query has been sent until its result has been entirely read, 
+	 * with its fraction of a millisecond, so that the queries faster than a millisecond still weigh 
+	 * on the load of the host.
+	 */
+	synchronized void latency(double milliseconds) {
+		latency = sampled ? LATENCY_WEIGHT * milliseconds + (1 - LATENCY_WEIGHT) * latency : milliseconds;
+		sampled = true;
+	}
+
+	/**
+	 * Records that a session failed, so that the host is no longer considered available.
+	 */
+	void fail() {
+		failures.incrementAndGet();
+		healthy = false;
+	}
+
+	/**
+	 * Records that a probe of the host succeeded, so that the host is considered available again.
+	 */
+	void recover() {
+		healthy = true;
+	}
+
+	@Override
+	public String toString() {
+		return host + " [healthy=" + healthy + ", outstanding=" + outstanding() + ", requests=" + requests()
+			+ ", failures=" + failures() + ", latency=" + latency() + "ms]";
+	}
+
+}
@@ -0,0 +1,268 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Session;
+import org.neo4j.driver.v1.Statement;
+import org.neo4j.driver.v1.StatementResult;
+import org.neo4j.driver.v1.Transaction;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.exceptions.Neo4jException;
+import org.neo4j.driver.v1.types.TypeSystem;
+
+/**
+ * A session whose queries are hedged: each query is sent to a server chosen by the load balancing policy 
+ * and, if it has not answered after the delay of the hedging policy, to another server as well.
+ * The result of the first server that answers is read entirely and returned; the other query is abandoned, 
+ * and its result is discarded as soon as it arrives.
+ * When all the threads that run the hedged queries are busy, the query is run by the calling thread, 
+ * without being hedged.
+ * Since the queries may run on different servers, this session is only used for read queries.
+ * Since the result is read entirely before it is returned, the limits of a query scope, such as the maximum 
+ * number of records and the deadline, are checked only after the whole result is in memory.
+ *
+ */
+class HedgedSession implements Session {
+
+	/**
+	 * The driver that opened this session.
+	 */
+	private RoutingDriver driver;
+
+	/**
+	 * The hedging policy.
+	 */
+	private Hedging hedging;
+
+	/**
+	 * The session used for the transactions, which are never hedged, if any, {@code null} otherwise.
+	 */
+	private Session transactionSession;
+
+	/**
+	 * Whether this session is open.
+	 */
+	private boolean open;
+
+	/**
+	 * Creates a new session.
+	 * @param driver The driver that opens the session.
+	 * @param hedging The hedging policy.
+	 */
+	HedgedSession(RoutingDriver driver, Hedging hedging) {
+		this.driver = driver;
+		this.hedging = hedging;
+		this.transactionSession = null;
+		this.open = true;
+	}
+
+	@Override
+	public StatementResult run(String statementTemplate, Value parameters) {
+		return run(new Statement(statementTemplate, parameters));
+	}
+
+	@Override
+	public StatementResult run(String statementTemplate, Map<String, Object> statementParameters) {
+		return run(new Statement(statementTemplate, statementParameters));
+	}
+
+	@Override
+	public StatementResult run(String statementTemplate, Record statementParameters) {
+		return run(new Statement(statementTemplate, statementParameters.asMap()));
+	}
+
+	@Override
+	public StatementResult run(String statementTemplate) {
+		return run(new Statement(statementTemplate));
+	}
+
+	/**
+	 * Runs a query, hedged on another server if the first one does not answer in time.
+	 * @param statement The query.
+	 * @return The result of the first server that answers.
+	 */
+	@Override
+	public StatementResult run(Statement statement) {
+		hedging.request();
+		CompletableFuture<Attempt> winner = new CompletableFuture<Attempt>();
+		AtomicInteger pending = new AtomicInteger(1);
+		Attempt primary = new Attempt(driver.choose(null), statement, winner, pending);
+		Attempt hedge = null;
+		if ( !driver.execute(primary) )
+			primary.run();
+		try {
+			long delay = hedging.delay();
+			try {
+				if ( delay == Long.MAX_VALUE )
+					return winner.get().result;
+				return winner.get(delay, TimeUnit.MILLISECONDS).result;
+			} catch (TimeoutException e) {
+				Endpoint other = driver.choose(primary.endpoint);
+				if ( other != primary.endpoint && !winner.isDone() ) {
+					pending.incrementAndGet();
+					hedge = new Attempt(other, statement, winner, pending);
+					if ( driver.execute(hedge) )
+						hedging.hedge();
+					else {
+						hedge = null;
+						if ( pending.decrementAndGet() == 0 )
+							winner.completeExceptionally(primary.failure);
+					}
+				}
+			}
+			Attempt first = winner.get();
+			if ( first == hedge )
+				hedging.hedgeWin();
+			return first.result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The query has been interrupted", e);
+		} catch (ExecutionException e) {
+			if ( e.getCause() instanceof RuntimeException )
+				throw (RuntimeException)e.getCause();
+			throw new IllegalStateException("The query has failed", e.getCause());
+		} finally {
+			primary.abandoned = true;
+			if ( hedge != null )
+				hedge.abandoned = true;
+		}
+	}
+
+	@Override
+	public TypeSystem typeSystem() {
+		try ( Session session = driver.session(driver.choose(null)) ) {
+			return session.typeSystem();
+		}
+	}
+
+	@Override
+	public Transaction beginTransaction() {
+		if ( transactionSession == null )
+			transactionSession = driver.session(driver.choose(null));
+		return transactionSession.beginTransaction();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public void close() {
+		open = false;
+		if ( transactionSession != null ) {
+			transactionSession.close();
+			transactionSession = null;
+		}
+	}
+
+	/**
+	 * The execution of a query on one of the servers.
+	 *
+	 */
+	private class Attempt implements Runnable {
+
+		/**
+		 * The server where the query runs.
+		 */
+		private Endpoint endpoint;
+
+		/**
+		 * The query.
+		 */
+		private Statement statement;
+
+		/**
+		 * The future completed by the first attempt that answers.
+		 */
+		private CompletableFuture<Attempt> winner;
+
+		/**
+		 * The number of attempts of the query that have neither answered nor failed.
+		 */
+		private AtomicInteger pending;
+
+		/**
+		 * The result of the query, once it is answered.
+		 */
+		private StatementResult result;
+
+		/**
+		 * The failure of the query, if it has failed, {@code null} otherwise.
+		 */
+		private volatile Throwable failure;
+
+		/**
+		 * Whether the caller no longer waits for this attempt, so that its failure does not mark the server 
+		 * as not available.
+		 */
+		private volatile boolean abandoned;
+
+		/**
+		 * Creates a new attempt.
+		 * @param endpoint The server where the query runs.
+		 * @param statement The query.
+		 * @param winner The future completed by the first attempt that answers.
+		 * @param pending The number of attempts of the query that have neither answered nor failed.
+		 */
+		Attempt(Endpoint endpoint, Statement statement, CompletableFuture<Attempt> winner, AtomicInteger pending) {
+			this.endpoint = endpoint;
+			this.statement = statement;
+			this.winner = winner;
+			this.pending = pending;
+			this.abandoned = false;
+		}
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			endpoint.open();
+			try ( Session session = endpoint.driver().session() ) {
+				result = new BufferedResult(session.run(statement));
+				double milliseconds = (System.nanoTime() - start) / 1e6;
+				endpoint.latency(milliseconds);
+				hedging.record(milliseconds);
+				winner.complete(this);
+			} catch (Throwable e) {
+				failure = e;
+				if ( !abandoned && e instanceof Neo4jException && RoutingDriver.isServerFailure((Neo4jException)e) )
+					endpoint.fail();
+				if ( pending.decrementAndGet() == 0 )
+					winner.completeExceptionally(e);
+				if ( e instanceof Error )
+					throw (Error)e;
+			} finally {
+				endpoint.close();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,211 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The policy of the hedged queries, when the Wikipedia is replicated on several Neo4j servers.
+ * A query that has not answered after a given percentile of the latencies of the last queries is sent 
+ * to another server as well, and the first answer is used.
+ * The policy records the number of queries, of hedged queries and of queries answered by the hedge.
+ *
+ */
+public class Hedging {
+
+	/**
+	 * The number of latencies from which the delay of the hedged queries is computed.
+	 */
+	private static final int WINDOW = 1024;
+
+	/**
+	 * The number of latencies that must be recorded before any query is hedged.
+	 */
+	private static final int MIN_SAMPLES = 20;
+
+	/**
+	 * The number of latencies recorded between two computations of the delay of the hedged queries.
+	 */
+	private static final int REFRESH = 64;
+
+	/**
+	 * The percentile of the latencies after which a query is hedged.
+	 */
+	private double percentile;
+
+	/**
+	 * The minimum delay after which a query is hedged, in milliseconds.
+	 */
+	private long minimumDelay;
+
+	/**
+	 * The last latencies, in fractional milliseconds, in a circular buffer.
+	 */
+	private double[] latencies;
+
+	/**
+	 * The number of latencies recorded so far.
+	 */
+	private long recorded;
+
+	/**
+	 * The current delay after which a query is hedged, in milliseconds.
+	 */
+	private volatile long delay;
+
+	/**
+	 * The number of queries.
+	 */
+	private AtomicLong requests;
+
+	/**
+	 * The number of hedged queries.
+	 */
+	private AtomicLong hedges;
+
+	/**
+	 * The number of hedged queries that have been answered by the hedge first.
+	 */
+	private AtomicLong hedgeWins;
+
+	/**
+	 * Creates a new policy.
+	 * @param percentile The percentile of the latencies after which a query is hedged, between {@code 0} and {@code 1}
+	 * (for instance, {@code 0.95}).
+	 * @param minimumDelay The minimum delay after which a query is hedged, in milliseconds.
+	 * @throws IllegalArgumentException If the percentile is not between {@code 0} and {@code 1}.
+	 */
+	public Hedging(double percentile, long minimumDelay) {
+		if ( percentile <= 0 || percentile >= 1 )
+			throw new IllegalArgumentException("The percentile must be between 0 and 1: " + percentile);
+		this.percentile = percentile;
+		this.minimumDelay = minimumDelay;
+		this.latencies = new double[WINDOW];
+		this.recorded = 0;
+		this.delay = Long.MAX_VALUE;
+		this.requests = new AtomicLong();
+		this.hedges = new AtomicLong();
+		this.hedgeWins = new AtomicLong();
+	}
+
+	/**
+	 * Returns the percentile of the latencies after which a query is hedged.
+	 * @return The percentile of the latencies after which a query is hedged.
+	 */
+	public double percentile() {
+		return this.percentile;
+	}
+
+	/**
+	 * Returns the minimum delay after which a query is hedged.
+	 * @return The minimum delay after which a query is hedged, in milliseconds.
+	 */
+	public long minimumDelay() {
+		return this.minimumDelay;
+	}
+
+	/**
+	 * Returns the current delay after which a query is hedged.
+	 * @return The current delay after which a query is hedged, in milliseconds, or {@link Long#MAX_VALUE}
+	 * if too few queries have been answered to estimate it.
+	 */
+	public long delay() {
+		return this.delay;
+	}
+
+	/**
+	 * Returns the number of queries.
+	 * @return The number of queries.
+	 */
+	public long requests() {
+		return this.requests.get();
+	}
+
+	/**
+	 * Returns the number of hedged queries.
+	 * @return The number of hedged queries.
+	 */
+	public long hedges() {
+		return this.hedges.get();
+	}
+
+	/**
+	 * Returns the number of hedged queries that have been answered by the hedge first.
+	 * @return The number of hedged queries that have been answered by the hedge first.
+	 */
+	public long hedgeWins() {
+		return this.hedgeWins.get();
+	}
+
+	/**
+	 * Returns the fraction of the queries that have been hedged.
+	 * @return The fraction of the queries that have been hedged.
+	 */
+	public double hedgeRate() {
+		long requests = requests();
+		return requests == 0 ? 0 : (double)hedges() / requests;
+	}
+
+	/**
+	 * Records that a query is sent.
+	 */
+	void request() {
+		requests.incrementAndGet();
+	}
+
+	/**
+	 * Records that a query is hedged.
+	 */
+	void hedge() {
+		hedges.incrementAndGet();
+	}
+
+	/**
+	 * Records that a hedged query has been answered by the hedge first.
+	 */
+	void hedgeWin() {
+		hedgeWins.incrementAndGet();
+	}
+
+	/**
+	 * Records the latency of a query, and updates the delay after which a query is hedged.
+	 * @param milliseconds The latency of a query, with its fraction of a millisecond.
+	 */
+	synchronized void record(double milliseconds) {
+		latencies[(int)(recorded % WINDOW)] = milliseconds;
+		recorded += 1;
+		if ( recorded >= MIN_SAMPLES && (recorded == MIN_SAMPLES || recorded % REFRESH == 0) ) {
+			double[] sorted = Arrays.copyOf(latencies, (int)Math.min(recorded, WINDOW));
+			Arrays.sort(sorted);
+			delay = Math.max(minimumDelay, 
+					(long)Math.ceil(sorted[(int)Math.min(sorted.length - 1, sorted.length * percentile)]));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Hedging [percentile=" + percentile + ", delay=" + delay + "ms, requests=" + requests() 
+			+ ", hedges=" + hedges() + ", hedgeWins=" + hedgeWins() + "]";
+	}
+
+}
@@ -0,0 +1,518 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.neo4j.driver.v1.Driver;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Session;
+import org.neo4j.driver.v1.Statement;
+import org.neo4j.driver.v1.StatementResult;
+import org.neo4j.driver.v1.Transaction;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.exceptions.ClientException;
+import org.neo4j.driver.v1.exceptions.Neo4jException;
+import org.neo4j.driver.v1.exceptions.value.ValueException;
+import org.neo4j.driver.v1.summary.ResultSummary;
+import org.neo4j.driver.v1.types.TypeSystem;
+import org.neo4j.driver.v1.util.Function;
+
+/**
+ * A driver that opens each session on one of several Neo4j servers hosting copies of the same Wikipedia.
+ * The server is chosen according to a load balancing policy among the servers that are considered available.
+ * A server that fails is no longer chosen, until a periodic probe finds it available again.
+ *
+ */
+public class RoutingDriver implements Driver {
+
+	/**
+	 * The default interval between two probes of the servers that are not available, in milliseconds.
+	 */
+	public static final long DEFAULT_PROBE_INTERVAL = 5000;
+
+	/**
+	 * The maximum number of threads that run the hedged queries.
+	 */
+	private static final int HEDGING_THREADS = 64;
+
+	/**
+	 * The error code of the exceptions raised by the driver itself, typically when a server cannot be reached.
+	 */
+	private static final String NO_ERROR_CODE = "N/A";
+
+	/**
+	 * The servers.
+	 */
+	private List<Endpoint> endpoints;
+
+	/**
+	 * The policy used to choose the server of a session.
+	 */
+	private LoadBalancing policy;
+
+	/**
+	 * The counter used to break the ties between servers, so that they are chosen in turn.
+	 */
+	private AtomicInteger turn;
+
+	/**
+	 * The scheduler of the probes of the servers that are not available.
+	 */
+	private ScheduledExecutorService prober;
+
+	/**
+	 * The policy of the hedged queries, if the queries are hedged, {@code null} otherwise.
+	 */
+	private volatile Hedging hedging;
+
+	/**
+	 * The threads that run the hedged queries, at most {@link #HEDGING_THREADS}.
+	 */
+	private ThreadPoolExecutor attempts;
+
+	/**
+	 * Creates a new driver.
+	 * @param hosts The names or IP addresses of the hosts where the Neo4j servers run.
+	 * @param policy The policy used to choose the server of a session.
+	 * @param probeInterval The interval between two probes of the servers that are not available, in milliseconds.
+	 * @throws IllegalArgumentException If no host is given.
+	 */
+	public RoutingDriver(List<String> hosts, LoadBalancing policy, long probeInterval) {
+		if ( hosts.isEmpty() )
+			throw new IllegalArgumentException("At least one host is required");
+		this.endpoints = new ArrayList<Endpoint>();
+		for ( String host : hosts )
+			this.endpoints.add(new Endpoint(host));
+		this.policy = policy;
+		this.turn = new AtomicInteger();
+		this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "wikiare-prober");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.prober.scheduleWithFixedDelay(this::probe, probeInterval, probeInterval, TimeUnit.MILLISECONDS);
+		this.hedging = null;
+		this.attempts = new ThreadPoolExecutor(0, HEDGING_THREADS, 60, TimeUnit.SECONDS, 
+				new SynchronousQueue<Runnable>(), runnable -> {
+					Thread thread = new Thread(runnable, "wikiare-hedging");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	/**
+	 * Returns the servers, with their metrics.
+	 * @return The servers, with their metrics.
+	 */
+	public List<Endpoint> endpoints() {
+		return Collections.unmodifiableList(endpoints);
+	}
+
+	/**
+	 * Returns the policy used to choose the server of a session.
+	 * @return The policy used to choose the server of a session.
+	 */
+	public LoadBalancing policy() {
+		return this.policy;
+	}
+
+	/**
+	 * Returns the policy of the hedged queries.
+	 * @return The policy of the hedged queries, if the queries are hedged, {@code null} otherwise.
+	 */
+	public Hedging hedging() {
+		return this.hedging;
+	}
+
+	/**
+	 * Sets the policy of the hedged queries. 
+	 * The sessions opened afterwards send each query that does not answer in time to a second server;
+	 * they must only be used for read queries.
+	 * @param hedging The policy of the hedged queries, or {@code null} to stop hedging the queries.
+	 */
+	public void hedging(Hedging hedging) {
+		this.hedging = hedging;
+	}
+
+	/**
+	 * Opens a session on the server chosen by the load balancing policy.
+	 * If the session cannot be opened, the server is marked as not available and another one is tried.
+	 * If the queries are hedged, each query of the session runs on its own server instead.
+	 * @return A session on one of the servers.
+	 * @throws Neo4jException If no server can be reached.
+	 */
+	@Override
+	public Session session() {
+		Hedging hedging = this.hedging;
+		if ( hedging != null )
+			return new HedgedSession(this, hedging);
+		Neo4jException failure = null;
+		for ( int attempt = 0; attempt < endpoints.size(); attempt += 1 ) {
+			Endpoint endpoint = choose(null);
+			try {
+				Session session = endpoint.driver().session();
+				endpoint.open();
+				return new RoutedSession(endpoint, session);
+			} catch (Neo4jException e) {
+				endpoint.fail();
+				failure = e;
+			}
+		}
+		throw failure;
+	}
+
+	/**
+	 * Opens a session on the given server, bypassing the load balancing policy.
+	 * @param endpoint One of the servers of this driver.
+	 * @return A session on the given server.
+	 */
+	Session session(Endpoint endpoint) {
+		Session session;
+		try {
+			session = endpoint.driver().session();
+		} catch (Neo4jException e) {
+			endpoint.fail();
+			throw e;
+		}
+		endpoint.open();
+		return new RoutedSession(endpoint, session);
+	}
+
+	/**
+	 * Closes the connections to all the servers.
+	 */
+	@Override
+	public void close() {
+		prober.shutdownNow();
+		attempts.shutdownNow();
+		for ( Endpoint endpoint : endpoints )
+			endpoint.driver().close();
+	}
+
+	/**
+	 * Runs a hedged query in the background, if a thread is available.
+	 * @param attempt The execution of the query on one of the servers.
+	 * @return {@code true} if the query runs in the background, {@code false} if all the threads 
+	 * that run the hedged queries are busy.
+	 */
+	boolean execute(Runnable attempt) {
+		try {
+			attempts.execute(attempt);
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Chooses the server of a new session.
+	 * If no server is available, the servers that are not available are tried as well, 
+	 * so that a recovered server is used before it is probed.
+	 * @param excluded A server that must not be chosen if another one is available, or {@code null}.
+	 * @return The server of the new session; the excluded server if no other server is available.
+	 */
+	Endpoint choose(Endpoint excluded) {
+		int start = Math.floorMod(turn.getAndIncrement(), endpoints.size());
+		Endpoint best = null;
+		double bestCost = Double.MAX_VALUE;
+		for ( int i = 0; i < endpoints.size(); i += 1 ) {
+			Endpoint endpoint = endpoints.get((start + i) % endpoints.size());
+			if ( !endpoint.isHealthy() || endpoint == excluded )
+				continue;
+			double cost = policy == LoadBalancing.LEAST_OUTSTANDING ? endpoint.outstanding() 
+					: endpoint.latency() * (endpoint.outstanding() + 1);
+			if ( cost < bestCost ) {
+				best = endpoint;
+				bestCost = cost;
+			}
+		}
+		if ( best != null )
+			return best;
+		return excluded != null ? excluded : endpoints.get(start);
+	}
+
+	/**
+	 * Probes the servers that are not available, and marks as available those that answer.
+	 */
+	private void probe() {
+		for ( Endpoint endpoint : endpoints ) {
+			if ( endpoint.isHealthy() )
+				continue;
+			try ( Session session = endpoint.driver().session() ) {
+				session.run("RETURN 1").consume();
+				endpoint.recover();
+			} catch (RuntimeException e) {
+				// The server is still not available.
+			}
+		}
+	}
+
+	/**
+	 * Returns whether an exception denotes a failure of the server, rather than an error in a query.
+	 * @param e An exception raised while running a query.
+	 * @return {@code true} if the exception denotes a failure of the server, {@code false} otherwise.
+	 */
+	static boolean isServerFailure(Neo4jException e) {
+		if ( e instanceof ValueException )
+			return false;
+		return !(e instanceof ClientException) || NO_ERROR_CODE.equals(e.neo4jErrorCode());
+	}
+
+	/**
+	 * A session on one of the servers, that updates the metrics of the server: the number of open sessions, 
+	 * and the latency of each query, from the time it is sent until its result is entirely read.
+	 *
+	 */
+	private static class RoutedSession implements Session {
+
+		/**
+		 * The server of this session.
+		 */
+		private Endpoint endpoint;
+
+		/**
+		 * The session on the server.
+		 */
+		private Session session;
+
+		/**
+		 * Whether this session has been closed.
+		 */
+		private boolean closed;
+
+		/**
+		 * Creates a new session.
+		 * @param endpoint The server of the session.
+		 * @param session The session on the server.
+		 */
+		RoutedSession(Endpoint endpoint, Session session) {
+			this.endpoint = endpoint;
+			this.session = session;
+			this.closed = false;
+		}
+
+		@Override
+		public StatementResult run(String statementTemplate, Value parameters) {
+			return run(new Statement(statementTemplate, parameters));
+		}
+
+		@Override
+		public StatementResult run(String statementTemplate, Map<String, Object> statementParameters) {
+			return run(new Statement(statementTemplate, statementParameters));
+		}
+
+		@Override
+		public StatementResult run(String statementTemplate, Record statementParameters) {
+			return run(new Statement(statementTemplate, statementParameters.asMap()));
+		}
+
+		@Override
+		public StatementResult run(String statementTemplate) {
+			return run(new Statement(statementTemplate));
+		}
+
+		@Override
+		public StatementResult run(Statement statement) {
+			try {
+				return new RoutedResult(session.run(statement), System.nanoTime());
+			} catch (Neo4jException e) {
+				throw failed(e);
+			}
+		}
+
+		@Override
+		public TypeSystem typeSystem() {
+			return session.typeSystem();
+		}
+
+		@Override
+		public Transaction beginTransaction() {
+			return session.beginTransaction();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return session.isOpen();
+		}
+
+		@Override
+		public void close() {
+			if ( closed )
+				return;
+			closed = true;
+			endpoint.close();
+			session.close();
+		}
+
+		/**
+		 * Marks the server as not available if an exception denotes a failure of the server.
+		 * @param e An exception raised while running a query.
+		 * @return The exception.
+		 */
+		private Neo4jException failed(Neo4jException e) {
+			if ( isServerFailure(e) )
+				endpoint.fail();
+			return e;
+		}
+
+		/**
+		 * The result of a query, that records the latency of the query once the result is entirely read, 
+		 * and marks the server as not available if it fails while the records are streamed.
+		 *
+		 */
+		private class RoutedResult implements StatementResult {
+
+			/**
+			 * The result returned by the server.
+			 */
+			private StatementResult result;
+
+			/**
+			 * The time when the query has been sent, in nanoseconds.
+			 */
+			private long start;
+
+			/**
+			 * Whether the latency of the query has been recorded.
+			 */
+			private boolean recorded;
+
+			/**
+			 * Creates a new result.
+			 * @param result The result returned by the server.
+			 * @param start The time when the query has been sent, in nanoseconds.
+			 */
+			RoutedResult(StatementResult result, long start) {
+				this.result = result;
+				this.start = start;
+				this.recorded = false;
+			}
+
+			/**
+			 * Records the latency of the query, the first time the result is entirely read.
+			 */
+			private void completed() {
+				if ( recorded )
+					return;
+				recorded = true;
+				endpoint.latency((System.nanoTime() - start) / 1e6);
+			}
+
+			@Override
+			public List<String> keys() {
+				try {
+					return result.keys();
+				} catch (Neo4jException e) {
+					throw failed(e);
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				try {
+					boolean hasNext = result.hasNext();
+					if ( !hasNext )
+						completed();
+					return hasNext;
+				} catch (Neo4jException e) {
+					throw failed(e);
+				}
+			}
+
+			@Override
+			public Record next() {
+				try {
+					return result.next();
+				} catch (Neo4jException e) {
+					throw failed(e);
+				}
+			}
+
+			@Override
+			public Record single() {
+				try {
+					Record record = result.single();
+					completed();
+					return record;
+				} catch (Neo4jException e) {
+					throw failed(e);
+				}
+			}
+
+			@Override
+			public Record peek() {
+				try {
+					return result.peek();
+				} catch (Neo4jException e) {
+					throw failed(e);
+				}
+			}
+
+			@Override
+			public List<Record> list() {
+				try {
+					List<Record> records = result.list();
+					completed();
+					return records;
+				} catch (Neo4jException e) {
+					throw failed(e);
+				}
+			}
+
+			@Override
+			public <T> List<T> list(Function<Record, T> mapFunction) {
+				try {
+					List<T> values = result.list(mapFunction);
+					completed();
+					return values;
+				} catch (Neo4jException e) {
+					throw failed(e);
+				}
+			}
+
+			@Override
+			public ResultSummary consume() {
+				try {
+					ResultSummary summary = result.consume();
+					completed();
+					return summary;
+				} catch (Neo4jException e) {
+					throw failed(e);
+				}
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,426 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.neo4j.driver.v1.Driver;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Session;
+import org.neo4j.driver.v1.exceptions.Neo4jException;
+
+/**
+ * The state of the indexes of the underlying Neo4j database that support the methods of the API.
+ * Each method is mapped to the index that its query needs to avoid scanning all the nodes with a label.
+ *
+ */
+public class SchemaReport {
+
+	/**
+	 * The states of an index.
+	 *
+	 */
+	public enum IndexState {
+
+		/**
+		 * The index is ready to be used.
+		 */
+		ONLINE,
+
+		/**
+		 * The index is being populated.
+		 */
+		POPULATING,
+
+		/**
+		 * The index could not be populated.
+		 */
+		FAILED,
+
+		/**
+		 * The index does not exist.
+		 */
+		MISSING,
+
+		/**
+		 * The state of the index could not be read, because its server is not available.
+		 */
+		UNKNOWN;
+
+	}
+
+	/**
+	 * An index needed by a method of the API, with its state on a server.
+	 *
+	 */
+	public static class Entry {
+
+		/**
+		 * The host of the server, if the Wikipedia is connected to several servers, {@code null} otherwise.
+		 */
+		private String host;
+
+		/**
+		 * The method of the API.
+		 */
+		private String method;
+
+		/**
+		 * The label of the indexed nodes.
+		 */
+		private String label;
+
+		/**
+		 * The indexed property.
+		 */
+		private String property;
+
+		/**
+		 * The state of the index.
+		 */
+		private IndexState state;
+
+		/**
+		 * Creates a new entry.
+		 * @param host The host of the server, if the Wikipedia is connected to several servers, {@code null} otherwise.
+		 * @param method The method of the API.
+		 * @param label The label of the indexed nodes.
+		 * @param property The indexed property.
+		 * @param state The state of the index.
+		 */
+		Entry(String host, String method, String label, String property, IndexState state) {
+			this.host = host;
+			this.method = method;
+			this.label = label;
+			this.property = property;
+			this.state = state;
+		}
+
+		/**
+		 * Returns the host of the server where the index has been inspected.
+		 * @return The host of the server, if the Wikipedia is connected to several servers, {@code null} otherwise.
+		 */
+		public String host() {
+			return this.host;
+		}
+
+		/**
+		 * Returns the method of the API.
+		 * @return The method of the API.
+		 */
+		public String method() {
+			return this.method;
+		}
+
+		/**
+		 * Returns the label of the indexed nodes.
+		 * @return The label of the indexed nodes.
+		 */
+		public String label() {
+			return this.label;
+		}
+
+		/**
+		 * Returns the indexed property.
+		 * @return The indexed property.
+		 */
+		public String property() {
+			return this.property;
+		}
+
+		/**
+		 * Returns the state of the index.
+		 * @return The state of the index.
+		 */
+		public IndexState state() {
+			return this.state;
+		}
+
+		/**
+		 * Returns the description of the index, as given by Neo4j.
+		 * @return The description of the index.
+		 */
+		public String index() {
+			return "INDEX ON :" + label + "(" + property + ")";
+		}
+
+		@Override
+		public String toString() {
+			return (host == null ? "" : host + ": ") + method + " -> " + index() + " " + state;
+		}
+
+	}
+
+	/**
+	 * The methods of the API that need an index, with the label and the property of the index.
+	 */
+	private static final String[][] REQUIREMENTS = {
+			{ "Wikipedia.getArticle(String, String)", "Article", "title" },
+			{ "Wikipedia.getArticle(String, String, Projection)", "Article", "title" },
+			{ "PageFactory.findArticle(String, String, Projection)", "Article", "title" },
+			{ "Wikipedia.scanArticles(String, int, Consumer)", "Article", "lang" },
+			{ "Wikipedia.loadTitleDictionary(String, int)", "Article", "lang" },
+			{ "Wikipedia.loadArticleTable(int, String...)", "Article", "lang" },
+			{ "Wikipedia.loadArticleConcepts(int, String...)", "Article", "lang" },
+			{ "Wikipedia.scanCategories(String, int, Consumer)", "Category", "lang" },
+			{ "Wikipedia.loadCategoryIndex(String, String, int)", "Category", "lang" },
+			{ "Wikipedia.loadCategoryConcepts(int, String...)", "Category", "lang" },
+			{ "Wikipedia.loadRedirectTable(String, int)", "Redirect", "lang" } };
+
+	/**
+	 * The interval between two inspections of the indexes, while waiting for them to be online, in milliseconds.
+	 */
+	private static final long POLL_INTERVAL = 500;
+
+	/**
+	 * The pattern of the descriptions of the indexes on a single property.
+	 */
+	private static final Pattern INDEX = Pattern.compile("INDEX ON :(\\w+)\\((\\w+)\\)");
+
+	/**
+	 * The logger of the warnings about the missing indexes.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(SchemaReport.class.getName());
+
+	/**
+	 * The indexes needed by the methods of the API.
+	 */
+	private List<Entry> entries;
+
+	/**
+	 * The indexes created by the inspection.
+	 */
+	private List<String> created;
+
+	/**
+	 * Creates a new report.
+	 * @param entries The indexes needed by the methods of the API.
+	 * @param created The indexes created by the inspection.
+	 */
+	private SchemaReport(List<Entry> entries, List<String> created) {
+		this.entries = entries;
+		this.created = created;
+	}
+
+	/**
+	 * Inspects the indexes of the underlying Neo4j database that the methods of the API need.
+	 * When the Wikipedia is connected to several servers, the indexes of each server are inspected, 
+	 * since each server has its own schema.
+	 * In the mode {@link SchemaMode#VERIFY}, a warning is logged for each index that is not online.
+	 * In the mode {@link SchemaMode#CREATE}, the missing indexes are created, and the inspection 
+	 * waits until all the indexes are online on the available servers or the timeout expires; 
+	 * the servers that cannot be reached are reported as unknown and not waited for.
+	 * @param driver The driver used to connect to the underlying Neo4j database.
+	 * @param mode What is done about the missing indexes.
+	 * @param timeout The maximum time waited for the indexes to be online, in milliseconds.
+	 * @return The report of the indexes.
+	 */
+	static SchemaReport inspect(Driver driver, SchemaMode mode, long timeout) {
+		Map<String, Supplier<Session>> servers = new LinkedHashMap<String, Supplier<Session>>();
+		if ( driver instanceof RoutingDriver ) {
+			RoutingDriver routingDriver = (RoutingDriver)driver;
+			for ( Endpoint endpoint : routingDriver.endpoints() )
+				servers.put(endpoint.host(), () -> routingDriver.session(endpoint));
+		}
+		else
+			servers.put(null, driver::session);
+		Map<String, Map<String, IndexState>> states = new LinkedHashMap<String, Map<String, IndexState>>();
+		for ( Map.Entry<String, Supplier<Session>> server : servers.entrySet() )
+			states.put(server.getKey(), indexes(server.getKey(), server.getValue()));
+		List<String> created = new ArrayList<String>();
+		if ( mode == SchemaMode.CREATE ) {
+			for ( Map.Entry<String, Supplier<Session>> server : servers.entrySet() )
+				if ( states.get(server.getKey()) != null )
+					create(server.getKey(), server.getValue(), states.get(server.getKey()), created);
+			long deadline = System.currentTimeMillis() + timeout;
+			for ( Map.Entry<String, Supplier<Session>> server : servers.entrySet() )
+				states.put(server.getKey(), indexes(server.getKey(), server.getValue()));
+			while ( !online(states.values()) && System.currentTimeMillis() < deadline ) {
+				try {
+					Thread.sleep(POLL_INTERVAL);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("The wait for the indexes has been interrupted", e);
+				}
+				for ( Map.Entry<String, Supplier<Session>> server : servers.entrySet() )
+					if ( !online(Collections.singleton(states.get(server.getKey()))) )
+						states.put(server.getKey(), indexes(server.getKey(), server.getValue()));
+			}
+		}
+		List<Entry> entries = new ArrayList<Entry>();
+		for ( Map.Entry<String, Map<String, IndexState>> server : states.entrySet() )
+			for ( String[] requirement : REQUIREMENTS ) {
+				IndexState state = server.getValue() == null ? IndexState.UNKNOWN
+						: server.getValue().getOrDefault(requirement[1] + ":" + requirement[2], IndexState.MISSING);
+				Entry entry = new Entry(server.getKey(), requirement[0], requirement[1], requirement[2], state);
+				entries.add(entry);
+				if ( mode != SchemaMode.NONE && state != IndexState.ONLINE )
+					LOGGER.warning("The index " + entry.index() + " needed by " + entry.method() + " is " + state
+							+ (entry.host() == null ? "" : " on " + entry.host()));
+			}
+		return new SchemaReport(entries, created);
+	}
+
+	/**
+	 * Creates the indexes needed by the API that are missing on a server.
+	 * @param host The host of the server, if the Wikipedia is connected to several servers, {@code null} otherwise.
+	 * @param sessions The supplier of the sessions on the server.
+	 * @param states The states of the indexes of the server, indexed by label and property.
+	 * @param created The indexes created so far, to which the indexes created on the server are added.
+	 */
+	private static void create(String host, Supplier<Session> sessions, Map<String, IndexState> states,
+			List<String> created) {
+		Set<String> missing = new LinkedHashSet<String>();
+		for ( String[] requirement : REQUIREMENTS )
+			if ( !states.containsKey(requirement[1] + ":" + requirement[2]) )
+				missing.add(requirement[1] + ":" + requirement[2]);
+		if ( missing.isEmpty() )
+			return;
+		try {
+			Session session = sessions.get();
+			try {
+				for ( String index : missing ) {
+					String[] parts = index.split(":");
+					session.run("CREATE INDEX ON :" + parts[0] + "(" + parts[1] + ")").consume();
+					created.add(host == null ? index : index + "@" + host);
+				}
+			} finally {
+				session.close();
+			}
+		} catch (Neo4jException e) {
+			LOGGER.warning("Unable to create the indexes on " + host + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns whether all the indexes needed by the API are online on every available server.
+	 * The servers that are not available are ignored, since their indexes cannot be waited for.
+	 * @param states The states of the indexes of each server, indexed by label and property, 
+	 * or {@code null} for a server that is not available.
+	 * @return {@code true} if all the needed indexes are online, {@code false} otherwise.
+	 */
+	private static boolean online(Collection<Map<String, IndexState>> states) {
+		for ( Map<String, IndexState> server : states ) {
+			if ( server == null )
+				continue;
+			for ( String[] requirement : REQUIREMENTS )
+				if ( server.get(requirement[1] + ":" + requirement[2]) != IndexState.ONLINE )
+					return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the indexes on a single property of a server of the underlying Neo4j database.
+	 * When the Wikipedia is connected to several servers, a server that is not available is skipped.
+	 * @param host The host of the server, if the Wikipedia is connected to several servers, {@code null} otherwise.
+	 * @param sessions The supplier of the sessions on the server.
+	 * @return The states of the indexes, indexed by label and property, separated by a colon, 
+	 * or {@code null} if the server is not available.
+	 */
+	private static Map<String, IndexState> indexes(String host, Supplier<Session> sessions) {
+		Map<String, IndexState> states = new HashMap<String, IndexState>();
+		try {
+			Session session = sessions.get();
+			try {
+				for ( Record record : session.run("CALL db.indexes()").list() ) {
+					Matcher matcher = INDEX.matcher(record.get("description").asString());
+					if ( !matcher.matches() )
+						continue;
+					IndexState state;
+					try {
+						state = IndexState.valueOf(record.get("state").asString());
+					} catch (IllegalArgumentException e) {
+						state = IndexState.FAILED;
+					}
+					states.put(matcher.group(1) + ":" + matcher.group(2), state);
+				}
+			} finally {
+				session.close();
+			}
+		} catch (Neo4jException e) {
+			if ( host == null )
+				throw e;
+			return null;
+		}
+		return states;
+	}
+
+	/**
+	 * Returns the indexes needed by the methods of the API, with their states.
+	 * When the Wikipedia is connected to several servers, there is an entry for each index on each server.
+	 * @return The indexes needed by the methods of the API.
+	 */
+	public List<Entry> entries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Returns the indexes needed by the methods of the API that are not online.
+	 * @return The indexes that are not online.
+	 */
+	public List<Entry> missing() {
+		List<Entry> missing = new ArrayList<Entry>();
+		for ( Entry entry : entries )
+			if ( entry.state() != IndexState.ONLINE )
+				missing.add(entry);
+		return missing;
+	}
+
+	/**
+	 * Returns the indexes created by the inspection.
+	 * @return The indexes created by the inspection, as a label and a property separated by a colon, 
+	 * followed by an at sign and the host of the server if the Wikipedia is connected to several servers.
+	 */
+	public List<String> created() {
+		return Collections.unmodifiableList(created);
+	}
+
+	/**
+	 * Returns whether all the indexes needed by the methods of the API are online.
+	 * @return {@code true} if all the indexes are online, {@code false} otherwise.
+	 */
+	public boolean isComplete() {
+		return missing().isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		for ( Entry entry : entries )
+			report.append(entry).append("\n");
+		return report.toString();
+	}
+
+}
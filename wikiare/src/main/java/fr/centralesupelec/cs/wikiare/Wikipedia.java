@@ -23,19 +23,46 @@ package fr.centralesupelec.cs.wikiare;
 
 
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 import org.neo4j.driver.v1.Driver;
 import org.neo4j.driver.v1.GraphDatabase;
-import org.neo4j.driver.v1.Record;
 import org.neo4j.driver.v1.Session;
 import org.neo4j.driver.v1.StatementResult;
+import org.neo4j.driver.v1.Value;
 import org.neo4j.driver.v1.Values;
-import org.neo4j.driver.v1.types.Node;
+import org.neo4j.driver.v1.exceptions.Neo4jException;
 
 import fr.centralesupelec.cs.wikiare.wikipedia.Article;
+import fr.centralesupelec.cs.wikiare.wikipedia.ArticleBitmaps;
+import fr.centralesupelec.cs.wikiare.wikipedia.ArticleTable;
+import fr.centralesupelec.cs.wikiare.wikipedia.AttributeCache;
+import fr.centralesupelec.cs.wikiare.wikipedia.AttributeLoader;
+import fr.centralesupelec.cs.wikiare.wikipedia.Category;
+import fr.centralesupelec.cs.wikiare.wikipedia.CategoryIndex;
+import fr.centralesupelec.cs.wikiare.wikipedia.ConceptTable;
+import fr.centralesupelec.cs.wikiare.wikipedia.Direction;
+import fr.centralesupelec.cs.wikiare.wikipedia.FrontierExpander;
+import fr.centralesupelec.cs.wikiare.wikipedia.Leaderboard;
+import fr.centralesupelec.cs.wikiare.wikipedia.LinkGraph;
+import fr.centralesupelec.cs.wikiare.wikipedia.Page;
 import fr.centralesupelec.cs.wikiare.wikipedia.PageFactory;
+import fr.centralesupelec.cs.wikiare.wikipedia.PageScan;
+import fr.centralesupelec.cs.wikiare.wikipedia.Projection;
+import fr.centralesupelec.cs.wikiare.wikipedia.QueryLimits;
+import fr.centralesupelec.cs.wikiare.wikipedia.QueryScope;
+import fr.centralesupelec.cs.wikiare.wikipedia.RedirectTable;
+import fr.centralesupelec.cs.wikiare.wikipedia.ScanCheckpoint;
+import fr.centralesupelec.cs.wikiare.wikipedia.SlowQueryLog;
+import fr.centralesupelec.cs.wikiare.wikipedia.TitleDictionary;
 
 /**
  * The Wikipedia graph. 
@@ -43,16 +70,116 @@ import fr.centralesupelec.cs.wikiare.wikipedia.PageFactory;
  */
 public class Wikipedia {
 	
+	/**
+	 * The logger of the warnings about the services of the Wikipedia that cannot be used.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(Wikipedia.class.getName());
+	
 	/**
 	 * The driver used to connect to the underlying Neo4j database.
 	 */
 	private Driver driver;
 	
+	/**
+	 * The factory that creates the pages of this Wikipedia.
+	 */
+	private PageFactory factory;
+	
+	/**
+	 * The persistent cache of the attributes of the pages, if any, {@code null} otherwise.
+	 */
+	private AttributeCache attributeCache;
+	
+	/**
+	 * The file of the persistent cache of the attributes of the pages, if any, {@code null} otherwise.
+	 */
+	private File attributeCacheFile;
+	
+	/**
+	 * The maximum size in bytes of the file of the persistent cache of the attributes of the pages.
+	 */
+	private long attributeCacheMaxSize;
+	
+	/**
+	 * The log of the slow queries, if any, {@code null} otherwise.
+	 */
+	private SlowQueryLog slowQueryLog;
+	
+	/**
+	 * What is done, when connecting, about the indexes needed by the API.
+	 */
+	private SchemaMode schemaMode;
+	
+	/**
+	 * The maximum time waited, when connecting, for the indexes needed by the API to be online, in milliseconds.
+	 */
+	private long schemaTimeout;
+	
+	/**
+	 * The report of the last inspection of the indexes needed by the API, if any, {@code null} otherwise.
+	 */
+	private SchemaReport schemaReport;
+	
+	/**
+	 * The duration of the window within which the loads of the attributes of the pages are batched, 
+	 * in milliseconds, or {@code 0} if the loads are not batched.
+	 */
+	private long attributeBatchWindow;
+	
+	/**
+	 * The maximum number of pages whose attributes are loaded with a single query, when the loads are batched.
+	 */
+	private int attributeBatchSize;
+	
+	/**
+	 * The dictionaries of the titles of the articles that are loaded, indexed by language.
+	 */
+	private Map<String, TitleDictionary> titleDictionaries;
+	
+	/**
+	 * The leaderboards of the language editions, indexed by language.
+	 */
+	private Map<String, Leaderboard> leaderboards;
+	
+	/**
+	 * The concepts described by the articles, if they are loaded, {@code null} otherwise.
+	 */
+	private ConceptTable<Article> articleConcepts;
+	
+	/**
+	 * The concepts described by the categories, if they are loaded, {@code null} otherwise.
+	 */
+	private ConceptTable<Category> categoryConcepts;
+	
+	/**
+	 * The bitmaps of the articles of the graph of the links, if they are loaded, {@code null} otherwise.
+	 */
+	private ArticleBitmaps articleBitmaps;
+	
+	/**
+	 * The number of articles whose links are obtained with a single query when a set of articles is expanded.
+	 */
+	private int expansionChunkSize;
+	
+	/**
+	 * The number of queries that are run at the same time when a set of articles is expanded.
+	 */
+	private int expansionParallelism;
+	
 	/**
 	 * Creates a new instance of Wikipedia.
 	 */
 	public Wikipedia() {
-		
+		this.attributeCache = null;
+		this.attributeCacheFile = null;
+		this.attributeBatchWindow = 0;
+		this.attributeBatchSize = AttributeLoader.DEFAULT_BATCH_SIZE;
+		this.titleDictionaries = new ConcurrentHashMap<String, TitleDictionary>();
+		this.leaderboards = new ConcurrentHashMap<String, Leaderboard>();
+		this.expansionChunkSize = FrontierExpander.DEFAULT_CHUNK_SIZE;
+		this.expansionParallelism = FrontierExpander.DEFAULT_PARALLELISM;
+		this.schemaMode = SchemaMode.NONE;
+		this.schemaTimeout = 0;
 	}
 	
 	/**
@@ -68,34 +195,397 @@ public class Wikipedia {
 	 */
 	public void connect(String host) {
 		this.driver = GraphDatabase.driver( "bolt://" + host );
+		createFactory();
 	}
 	
+	/**
+	 * Connects to the Wikipedia replicated on several Neo4j servers. 
+	 * Each session is opened on one of the servers, chosen by the given load balancing policy; 
+	 * a server that fails is no longer used until it is probed successfully.
+	 * @param hosts The names or IP addresses of the hosts where the Neo4j servers run.
+	 * @param policy The policy used to choose the server of a session.
+	 */
+	public void connect(List<String> hosts, LoadBalancing policy) {
+		connect(hosts, policy, RoutingDriver.DEFAULT_PROBE_INTERVAL);
+	}
+	
+	/**
+	 * Connects to the Wikipedia replicated on several Neo4j servers. 
+	 * Each session is opened on one of the servers, chosen by the given load balancing policy; 
+	 * a server that fails is no longer used until it is probed successfully.
+	 * @param hosts The names or IP addresses of the hosts where the Neo4j servers run.
+	 * @param policy The policy used to choose the server of a session.
+	 * @param probeInterval The interval between two probes of the servers that are not available, in milliseconds.
+	 */
+	public void connect(List<String> hosts, LoadBalancing policy, long probeInterval) {
+		this.driver = new RoutingDriver(hosts, policy, probeInterval);
+		createFactory();
+	}
+	
+	/**
+	 * Returns the policy of the hedged queries.
+	 * @return The policy of the hedged queries, if the queries are hedged, {@code null} otherwise.
+	 */
+	public Hedging hedging() {
+		if ( driver instanceof RoutingDriver )
+			return ((RoutingDriver)driver).hedging();
+		return null;
+	}
+	
+	/**
+	 * Hedges the queries sent to the Neo4j servers of the Wikipedia: a query that does not answer 
+	 * after the delay of the policy is sent to a second server, and the first answer is used.
+	 * @param hedging The policy of the hedged queries, or {@code null} to stop hedging the queries.
+	 * @throws IllegalStateException If the Wikipedia is not connected to several servers.
+	 */
+	public void hedging(Hedging hedging) {
+		if ( !(driver instanceof RoutingDriver) )
+			throw new IllegalStateException("Hedging requires a connection to several servers");
+		((RoutingDriver)driver).hedging(hedging);
+	}
+	
+	/**
+	 * Returns the Neo4j servers of the Wikipedia, with their metrics.
+	 * @return The Neo4j servers of the Wikipedia, if it is connected to several servers; 
+	 * an empty list otherwise.
+	 */
+	public List<Endpoint> endpoints() {
+		if ( driver instanceof RoutingDriver )
+			return ((RoutingDriver)driver).endpoints();
+		return new ArrayList<Endpoint>();
+	}
+	
+	/**
+	 * Creates the factory of the pages of the Wikipedia, once connected.
+	 */
+	private void createFactory() {
+		this.factory = new PageFactory(driver);
+		if ( attributeCacheFile != null )
+			openAttributeCache();
+		this.factory.slowQueryLog(slowQueryLog);
+		if ( attributeBatchWindow > 0 )
+			this.factory.attributeLoader(new AttributeLoader(factory, attributeBatchWindow, attributeBatchSize));
+		if ( schemaMode != SchemaMode.NONE )
+			this.schemaReport = SchemaReport.inspect(driver, schemaMode, schemaTimeout);
+	}
+	
+	/**
+	 * Sets what is done, when connecting, about the indexes of the underlying Neo4j database that the queries 
+	 * of the API need.
+	 * @param mode What is done about the missing indexes.
+	 * @param timeout The maximum time waited for the created indexes to be online, in milliseconds.
+	 */
+	public void useSchemaVerification(SchemaMode mode, long timeout) {
+		this.schemaMode = mode;
+		this.schemaTimeout = timeout;
+	}
+	
+	/**
+	 * Inspects the indexes of the underlying Neo4j database that the queries of the API need.
+	 * @param mode What is done about the missing indexes.
+	 * @param timeout The maximum time waited for the created indexes to be online, in milliseconds.
+	 * @return The report that maps each method of the API to the index that it needs, with its state.
+	 */
+	public SchemaReport verifySchema(SchemaMode mode, long timeout) {
+		this.schemaReport = SchemaReport.inspect(driver, mode, timeout);
+		return this.schemaReport;
+	}
+	
+	/**
+	 * Returns the report of the last inspection of the indexes needed by the API.
+	 * @return The report of the last inspection of the indexes, if any, {@code null} otherwise.
+	 */
+	public SchemaReport schemaReport() {
+		return this.schemaReport;
+	}
 	
 	/**
 	 * Closes the connection to the Neo4j database hosting the Wikikpedia.
+	 * The persistent cache of the attributes and the log of the slow queries, if any, are closed as well; 
+	 * the cache is opened again on the next connection.
 	 */
 	public void disconnect() {
+		if ( factory.attributeLoader() != null ) {
+			factory.attributeLoader().close();
+			factory.attributeLoader(null);
+		}
 		this.driver.close();
+		if ( attributeCache != null ) {
+			attributeCache.close();
+			attributeCache = null;
+		}
+		if ( slowQueryLog != null ) {
+			slowQueryLog.close();
+			slowQueryLog = null;
+		}
+	}
+	
+	/**
+	 * Uses a persistent cache of the attributes of the pages, so that the attributes that have been 
+	 * loaded before a restart are not loaded again from the underlying Neo4j database.
+	 * The cache is opened each time the Wikipedia is connected, and closed when disconnecting from the Wikipedia.
+	 * @param file The file of the cache. If it exists and was written for the same database, 
+	 * the attributes that it contains are reused.
+	 * @param maxSize The maximum size in bytes of the file of the cache.
+	 */
+	public void useAttributeCache(File file, long maxSize) {
+		this.attributeCacheFile = file;
+		this.attributeCacheMaxSize = maxSize;
+		if ( factory != null )
+			openAttributeCache();
+	}
+	
+	/**
+	 * Opens the persistent cache of the attributes of the pages for the database of the current connection.
+	 * If the fingerprint of the database cannot be obtained, no cache is used, so that the attributes 
+	 * of another database are never reused.
+	 */
+	private void openAttributeCache() {
+		if ( attributeCache != null )
+			attributeCache.close();
+		this.attributeCache = null;
+		String fingerprint = storeFingerprint();
+		if ( fingerprint == null )
+			LOGGER.warning("The attribute cache " + attributeCacheFile 
+					+ " is not used, since the identity of the database cannot be verified");
+		else
+			this.attributeCache = new AttributeCache(attributeCacheFile, attributeCacheMaxSize, fingerprint);
+		factory.attributeCache(attributeCache);
+	}
+	
+	/**
+	 * Returns the fingerprint of the underlying Neo4j database: the identifier of its store, 
+	 * which changes whenever the database is imported again.
+	 * When connected to several servers, the fingerprint is read from each available server 
+	 * with a session opened on that server, and is only defined if they are all copies of the same store.
+	 * @return The fingerprint of the underlying Neo4j database, or {@code null} if it cannot be obtained.
+	 */
+	private String storeFingerprint() {
+		if ( !(driver instanceof RoutingDriver) )
+			return storeFingerprint(driver.session());
+		RoutingDriver routingDriver = (RoutingDriver)driver;
+		String fingerprint = null;
+		for ( Endpoint endpoint : routingDriver.endpoints() ) {
+			if ( !endpoint.isHealthy() )
+				continue;
+			String storeId;
+			try {
+				storeId = storeFingerprint(routingDriver.session(endpoint));
+			} catch (Neo4jException e) {
+				return null;
+			}
+			if ( storeId == null || (fingerprint != null && !fingerprint.equals(storeId)) )
+				return null;
+			fingerprint = storeId;
+		}
+		return fingerprint;
+	}
+	
+	/**
+	 * Returns the identifier of the store of the server of a session.
+	 * @param session A session, that is closed by this method.
+	 * @return The identifier of the store of the server, or {@code null} if it cannot be obtained.
+	 */
+	private static String storeFingerprint(Session session) {
+		try {
+			StatementResult result = session.run("CALL dbms.queryJmx({name}) YIELD attributes "
+					+ "RETURN attributes.StoreId.value AS storeId", 
+					Values.parameters("name", "org.neo4j:instance=kernel#0,name=Kernel"));
+			if ( !result.hasNext() )
+				return null;
+			Value storeId = result.next().get("storeId");
+			return storeId.isNull() ? null : storeId.asObject().toString();
+		} catch (Neo4jException e) {
+			return null;
+		} finally {
+			session.close();
+		}
+	}
+	
+	/**
+	 * Logs the queries that take longer than a threshold to a local file, and profiles a sample of them.
+	 * The log is closed when disconnecting from the Wikipedia.
+	 * @param file The file of the log. If it exists, the new entries are appended to it.
+	 * @param threshold The latency above which a query is logged, in milliseconds.
+	 * @param profileRate The fraction of the slow queries that are run again with {@code PROFILE}, 
+	 * between {@code 0} and {@code 1}.
+	 * @param maxFileSize The maximum size in bytes of the file of the log, after which the file is rolled.
+	 * @param maxFiles The number of rolled files that are kept.
+	 */
+	public void useSlowQueryLog(File file, long threshold, double profileRate, long maxFileSize, int maxFiles) {
+		if ( slowQueryLog != null )
+			slowQueryLog.close();
+		this.slowQueryLog = new SlowQueryLog(file, threshold, profileRate, maxFileSize, maxFiles);
+		if ( factory != null )
+			factory.slowQueryLog(slowQueryLog);
+	}
+	
+	/**
+	 * Returns the log of the slow queries.
+	 * @return The log of the slow queries, if any, {@code null} otherwise.
+	 */
+	public SlowQueryLog slowQueryLog() {
+		return this.slowQueryLog;
+	}
+	
+	/**
+	 * Batches the loads of the attributes of the pages: the attributes of the pages requested within 
+	 * a short window are loaded with a single query.
+	 * @param window The duration of the window within which the loads are batched, in milliseconds, 
+	 * or {@code 0} to load the attributes of each page with its own query.
+	 * @param batchSize The maximum number of pages whose attributes are loaded with a single query.
+	 */
+	public void useAttributeBatching(long window, int batchSize) {
+		this.attributeBatchWindow = window;
+		this.attributeBatchSize = batchSize;
+		if ( factory == null )
+			return;
+		if ( factory.attributeLoader() != null )
+			factory.attributeLoader().close();
+		factory.attributeLoader(window > 0 ? new AttributeLoader(factory, window, batchSize) : null);
+	}
+	
+	/**
+	 * Loads at once the attributes of the given pages that are not loaded yet, with one query for each batch 
+	 * of pages, instead of one query for each page the first time one of its attributes is requested.
+	 * @param pages The pages whose attributes are loaded, usually the result of a traversal.
+	 */
+	public void loadAttributes(Collection<? extends Page> pages) {
+		loadAttributes(pages, Projection.ALL);
+	}
+	
+	/**
+	 * Loads at once the attributes of the given projection of the given pages that are not loaded yet, 
+	 * with one query for each batch of pages, instead of one query for each page the first time one 
+	 * of its attributes is requested.
+	 * @param pages The pages whose attributes are loaded, usually the result of a traversal.
+	 * @param projection The attributes that are loaded.
+	 */
+	public void loadAttributes(Collection<? extends Page> pages, Projection projection) {
+		AttributeLoader loader = factory.attributeLoader();
+		if ( loader != null ) {
+			loader.load(pages, projection);
+			return;
+		}
+		loader = new AttributeLoader(factory, AttributeLoader.DEFAULT_WINDOW, attributeBatchSize);
+		loader.load(pages, projection);
+		loader.close();
+	}
+	
+	/**
+	 * Returns the attributes of the pages that are loaded the first time an attribute of a page is requested.
+	 * @return The projection of the attributes of the pages.
+	 */
+	public Projection projection() {
+		return factory.projection();
+	}
+	
+	/**
+	 * Sets the attributes of the pages that are loaded the first time an attribute of a page is requested.
+	 * The other attributes of a page are loaded only if they are requested later.
+	 * @param projection The projection of the attributes of the pages.
+	 */
+	public void projection(Projection projection) {
+		factory.projection(projection);
+	}
+	
+	/**
+	 * Returns the limits of the queries that are run outside of any scope.
+	 * @return The default limits of the queries.
+	 */
+	public QueryLimits queryLimits() {
+		return factory.limits();
+	}
+	
+	/**
+	 * Sets the limits of the queries that are run outside of any scope.
+	 * The timeout of these limits applies to each query separately.
+	 * @param limits The default limits of the queries.
+	 */
+	public void queryLimits(QueryLimits limits) {
+		factory.limits(limits);
+	}
+	
+	/**
+	 * Opens a scope in the current thread, so that all the queries run by the calls of the thread until 
+	 * the scope is closed share the given limits and the same deadline.
+	 * The scope can be cancelled by another thread.
+	 * @param limits The limits of the queries of the scope.
+	 * @return The scope, that must be closed by the current thread.
+	 */
+	public QueryScope scope(QueryLimits limits) {
+		return factory.scope(limits);
+	}
+	
+	/**
+	 * Returns the number of queries aborted because they exceeded their timeout.
+	 * @return The number of queries aborted because they exceeded their timeout.
+	 */
+	public long queryTimeouts() {
+		return factory.timeouts();
+	}
+	
+	/**
+	 * Returns the number of queries aborted because they have been cancelled.
+	 * @return The number of queries aborted because they have been cancelled.
+	 */
+	public long queryCancellations() {
+		return factory.cancellations();
+	}
+	
+	/**
+	 * Returns the number of queries aborted because they returned too many records.
+	 * @return The number of queries aborted because they returned too many records.
+	 */
+	public long queryOverflows() {
+		return factory.overflows();
+	}
+	
+	/**
+	 * Returns the number of queries truncated because they returned too many records.
+	 * @return The number of queries truncated because they returned too many records.
+	 */
+	public long queryTruncations() {
+		return factory.truncations();
 	}
 	
 	/**
 	 * Returns the article with the given title in the given language edition of this Wikipedia.
+	 * If the dictionary of the titles of the language edition is loaded, the article is found in the dictionary, 
+	 * without querying the underlying Neo4j database, unless the title is the title of a redirect: 
+	 * the dictionary only knows the target of the redirection, while the redirect itself is returned.
 	 * @param title The title of an article.
 	 * @param language The language of the Wikipedia edition where the article is searched.
 	 * @return The article with the given {@code title} in the given language edition, if any; {@code null}
 	 * otherwise.
 	 */
 	public Article getArticle(String title, String language) {
-		Session session = driver.session();
-		PageFactory factory = new PageFactory(driver);
-		StatementResult result = session.run("MATCH (n:Article) WHERE n.title={title} AND n.lang={lang} "
-				+ "return n as node", Values.parameters("title", title, "lang", language));
-		Record record = result.single();
-		Node node = record.get("node").asNode();
-		System.out.println(node.id());
-		Article article = factory.createArticle(node);
-		session.close();
-		return article;
+		TitleDictionary dictionary = titleDictionaries.get(language);
+		if ( dictionary != null && !dictionary.isRedirect(title) )
+			return dictionary.get(title);
+		return factory.findArticle(title, language, factory.projection());
+	}
+	
+	/**
+	 * Returns the article with the given title in the given language edition of this Wikipedia, 
+	 * whose attributes of the given projection are loaded by the same query.
+	 * If the dictionary of the titles of the language edition is loaded, the article is found in the dictionary, 
+	 * unless the title is the title of a redirect, and its attributes are loaded the first time they are requested.
+	 * @param title The title of an article.
+	 * @param language The language of the Wikipedia edition where the article is searched.
+	 * @param projection The attributes of the article that are loaded.
+	 * @return The article with the given {@code title} in the given language edition, if any; {@code null}
+	 * otherwise.
+	 */
+	public Article getArticle(String title, String language, Projection projection) {
+		TitleDictionary dictionary = titleDictionaries.get(language);
+		if ( dictionary != null && !dictionary.isRedirect(title) ) {
+			Article article = dictionary.get(title);
+			if ( article != null )
+				article.projection(projection);
+			return article;
+		}
+		return factory.findArticle(title, language, projection);
 	}
 	
 	/**
@@ -132,4 +622,333 @@ public class Wikipedia {
 		return articles;
 	}
 
+	/**
+	 * Passes all the articles of the given language edition of this Wikipedia to a consumer.
+	 * The articles are read in parallel, each thread on its own session, and their attributes are 
+	 * already loaded when they are passed to the consumer.
+	 * @param language The language of the Wikipedia edition whose articles are scanned.
+	 * @param parallelism The number of threads that read the articles.
+	 * @param consumer The consumer of the articles. It is invoked concurrently by several threads.
+	 */
+	public void scanArticles(String language, int parallelism, Consumer<? super Article> consumer) {
+		scanArticles(language, parallelism, consumer, new ScanCheckpoint());
+	}
+	
+	/**
+	 * Passes all the articles of the given language edition of this Wikipedia to a consumer, resuming 
+	 * the scan from a checkpoint.
+	 * The articles are read in parallel, each thread on its own session, and their attributes are 
+	 * already loaded when they are passed to the consumer.
+	 * @param language The language of the Wikipedia edition whose articles are scanned.
+	 * @param parallelism The number of threads that read the articles.
+	 * @param consumer The consumer of the articles. It is invoked concurrently by several threads.
+	 * @param checkpoint The progress of the scan; the partitions that it marks as completed are skipped.
+	 */
+	public void scanArticles(String language, int parallelism, Consumer<? super Article> consumer, 
+			ScanCheckpoint checkpoint) {
+		PageScan.articles(factory, language).run(parallelism, consumer, checkpoint);
+	}
+	
+	/**
+	 * Passes all the categories of the given language edition of this Wikipedia to a consumer.
+	 * The categories are read in parallel, each thread on its own session, and their attributes are 
+	 * already loaded when they are passed to the consumer.
+	 * @param language The language of the Wikipedia edition whose categories are scanned.
+	 * @param parallelism The number of threads that read the categories.
+	 * @param consumer The consumer of the categories. It is invoked concurrently by several threads.
+	 */
+	public void scanCategories(String language, int parallelism, Consumer<? super Category> consumer) {
+		scanCategories(language, parallelism, consumer, new ScanCheckpoint());
+	}
+	
+	/**
+	 * Passes all the categories of the given language edition of this Wikipedia to a consumer, resuming 
+	 * the scan from a checkpoint.
+	 * The categories are read in parallel, each thread on its own session, and their attributes are 
+	 * already loaded when they are passed to the consumer.
+	 * @param language The language of the Wikipedia edition whose categories are scanned.
+	 * @param parallelism The number of threads that read the categories.
+	 * @param consumer The consumer of the categories. It is invoked concurrently by several threads.
+	 * @param checkpoint The progress of the scan; the partitions that it marks as completed are skipped.
+	 */
+	public void scanCategories(String language, int parallelism, Consumer<? super Category> consumer, 
+			ScanCheckpoint checkpoint) {
+		PageScan.categories(factory, language).run(parallelism, consumer, checkpoint);
+	}
+
+	/**
+	 * Returns the number of articles whose links are obtained with a single query when a set of articles 
+	 * is expanded.
+	 * @return The number of articles whose links are obtained with a single query.
+	 */
+	public int expansionChunkSize() {
+		return this.expansionChunkSize;
+	}
+	
+	/**
+	 * Sets the number of articles whose links are obtained with a single query when a set of articles 
+	 * is expanded.
+	 * @param expansionChunkSize The number of articles whose links are obtained with a single query.
+	 */
+	public void expansionChunkSize(int expansionChunkSize) {
+		this.expansionChunkSize = expansionChunkSize;
+	}
+	
+	/**
+	 * Returns the number of queries that are run at the same time when a set of articles is expanded.
+	 * @return The number of queries that are run at the same time.
+	 */
+	public int expansionParallelism() {
+		return this.expansionParallelism;
+	}
+	
+	/**
+	 * Sets the number of queries that are run at the same time when a set of articles is expanded.
+	 * @param expansionParallelism The number of queries that are run at the same time.
+	 */
+	public void expansionParallelism(int expansionParallelism) {
+		this.expansionParallelism = expansionParallelism;
+	}
+	
+	/**
+	 * Returns the articles linked to or from each of the given articles, as {@link Article#linksTo()} and 
+	 * {@link Article#linksFrom()} do for a single article.
+	 * The links of many articles are obtained with a single query, and the redirects are 
+	 * replaced with their targets in the same query.
+	 * @param articles The articles to expand.
+	 * @param direction The direction of the links that are followed.
+	 * @return The set of the articles linked to or from each of the given articles.
+	 */
+	public Map<Article, Set<Article>> expand(Collection<? extends Article> articles, Direction direction) {
+		return new FrontierExpander(factory, expansionChunkSize, expansionParallelism).expand(articles, direction);
+	}
+
+	/**
+	 * Builds the dictionary of the titles of the articles of the given language edition of this Wikipedia, 
+	 * including the titles of the redirects.
+	 * From then on, the articles of the language edition are found by title in the dictionary.
+	 * @param language The language of the Wikipedia edition.
+	 * @param parallelism The number of threads that read the titles from the underlying Neo4j database.
+	 * @return The dictionary of the titles of the language edition.
+	 */
+	public TitleDictionary loadTitleDictionary(String language, int parallelism) {
+		TitleDictionary dictionary = TitleDictionary.build(factory, language, parallelism);
+		titleDictionaries.put(language, dictionary);
+		return dictionary;
+	}
+	
+	/**
+	 * Loads a dictionary of titles previously saved to a file with {@link TitleDictionary#save(File)}.
+	 * From then on, the articles of the language edition of the dictionary are found by title in the dictionary.
+	 * @param file The file of the dictionary.
+	 * @return The dictionary of titles.
+	 */
+	public TitleDictionary loadTitleDictionary(File file) {
+		TitleDictionary dictionary = TitleDictionary.open(factory, file);
+		titleDictionaries.put(dictionary.language(), dictionary);
+		return dictionary;
+	}
+	
+	/**
+	 * Returns the dictionary of the titles of the articles of the given language edition of this Wikipedia.
+	 * @param language The language of the Wikipedia edition.
+	 * @return The dictionary of the titles of the language edition, if it is loaded, {@code null} otherwise.
+	 */
+	public TitleDictionary titleDictionary(String language) {
+		return titleDictionaries.get(language);
+	}
+
+	/**
+	 * Builds the in-memory table of the attributes of all the articles of the given language editions 
+	 * of this Wikipedia.
+	 * From then on, the attributes of the articles of the table are read from the table, instead of being 
+	 * loaded from the underlying Neo4j database.
+	 * @param parallelism The number of threads that read the articles from the underlying Neo4j database.
+	 * @param languages The languages of the Wikipedia editions.
+	 * @return The table of the attributes of the articles.
+	 */
+	public ArticleTable loadArticleTable(int parallelism, String... languages) {
+		ArticleTable articleTable = ArticleTable.build(factory, parallelism, languages);
+		factory.articleTable(articleTable);
+		return articleTable;
+	}
+	
+	/**
+	 * Returns the in-memory table of the attributes of the articles of this Wikipedia.
+	 * @return The table of the attributes of the articles, if it is loaded, {@code null} otherwise.
+	 */
+	public ArticleTable articleTable() {
+		return factory.articleTable();
+	}
+
+	/**
+	 * Builds the index of the hierarchy of the categories of the given language edition of this Wikipedia.
+	 * From then on, the depths of the categories of the language edition are read from the index.
+	 * @param language The language of the Wikipedia edition.
+	 * @param rootTitle The title of the root category of the hierarchy.
+	 * @param parallelism The number of threads that read the categories from the underlying Neo4j database.
+	 * @return The index of the categories of the language edition.
+	 */
+	public CategoryIndex loadCategoryIndex(String language, String rootTitle, int parallelism) {
+		CategoryIndex index = CategoryIndex.build(factory, language, rootTitle, parallelism);
+		factory.categoryIndex(index);
+		return index;
+	}
+	
+	/**
+	 * Returns the index of the hierarchy of the categories of the given language edition of this Wikipedia.
+	 * @param language The language of the Wikipedia edition.
+	 * @return The index of the categories of the language edition, if it is loaded, {@code null} otherwise.
+	 */
+	public CategoryIndex categoryIndex(String language) {
+		return factory.categoryIndex(language);
+	}
+
+	/**
+	 * Loads the final targets of all the redirects of the given language edition of this Wikipedia.
+	 * From then on, the redirects of the language edition are resolved without querying the underlying 
+	 * Neo4j database.
+	 * @param language The language of the Wikipedia edition.
+	 * @param parallelism The number of threads that read the redirects from the underlying Neo4j database.
+	 * @return The table of the redirects of the language edition.
+	 */
+	public RedirectTable loadRedirectTable(String language, int parallelism) {
+		RedirectTable redirectTable = RedirectTable.build(factory, language, parallelism);
+		factory.redirectTable(redirectTable);
+		return redirectTable;
+	}
+	
+	/**
+	 * Returns the table of the targets of the redirects of the given language edition of this Wikipedia.
+	 * @param language The language of the Wikipedia edition.
+	 * @return The table of the redirects of the language edition, if it is loaded, {@code null} otherwise.
+	 */
+	public RedirectTable redirectTable(String language) {
+		return factory.redirectTable(language);
+	}
+
+	/**
+	 * Groups the articles of the given language editions of this Wikipedia into the concepts that they describe, 
+	 * following the cross-links between them.
+	 * @param parallelism The number of threads that read and group the articles.
+	 * @param languages The languages of the Wikipedia editions.
+	 * @return The table of the concepts described by the articles.
+	 */
+	public ConceptTable<Article> loadArticleConcepts(int parallelism, String... languages) {
+		this.articleConcepts = ConceptTable.articles(factory, parallelism, languages);
+		return this.articleConcepts;
+	}
+	
+	/**
+	 * Returns the concepts described by the articles of this Wikipedia.
+	 * @return The table of the concepts described by the articles, if it is loaded, {@code null} otherwise.
+	 */
+	public ConceptTable<Article> articleConcepts() {
+		return this.articleConcepts;
+	}
+	
+	/**
+	 * Groups the categories of the given language editions of this Wikipedia into the concepts that they describe, 
+	 * following the cross-links between them.
+	 * @param parallelism The number of threads that read and group the categories.
+	 * @param languages The languages of the Wikipedia editions.
+	 * @return The table of the concepts described by the categories.
+	 */
+	public ConceptTable<Category> loadCategoryConcepts(int parallelism, String... languages) {
+		this.categoryConcepts = ConceptTable.categories(factory, parallelism, languages);
+		return this.categoryConcepts;
+	}
+	
+	/**
+	 * Returns the concepts described by the categories of this Wikipedia.
+	 * @return The table of the concepts described by the categories, if it is loaded, {@code null} otherwise.
+	 */
+	public ConceptTable<Category> categoryConcepts() {
+		return this.categoryConcepts;
+	}
+
+	/**
+	 * Loads in memory the graph of the links between the articles of the given language editions of this Wikipedia.
+	 * From then on, the articles of the graph filter their links by rank, offset, introduction and infobox 
+	 * in memory, instead of querying the underlying Neo4j database.
+	 * @param parallelism The number of threads that read the links from the underlying Neo4j database.
+	 * @param languages The languages of the Wikipedia editions.
+	 * @return The graph of the links between the articles.
+	 */
+	public LinkGraph loadLinkGraph(int parallelism, String... languages) {
+		LinkGraph linkGraph = LinkGraph.build(factory, parallelism, languages);
+		factory.linkGraph(linkGraph);
+		return linkGraph;
+	}
+	
+	/**
+	 * Returns the graph of the links between the articles of this Wikipedia.
+	 * @return The graph of the links between the articles, if it is loaded, {@code null} otherwise.
+	 */
+	public LinkGraph linkGraph() {
+		return factory.linkGraph();
+	}
+	
+	/**
+	 * Builds the bitmaps of the languages, the types, the geotags and the disambiguation articles over 
+	 * the articles of the graph of the links.
+	 * @param parallelism The number of threads that read the articles from the underlying Neo4j database.
+	 * @param languages The languages of the Wikipedia editions of the graph.
+	 * @return The bitmaps of the articles of the graph.
+	 * @throws IllegalStateException If the graph of the links is not loaded.
+	 */
+	public ArticleBitmaps loadArticleBitmaps(int parallelism, String... languages) {
+		if ( factory.linkGraph() == null )
+			throw new IllegalStateException("The graph of the links is not loaded");
+		this.articleBitmaps = ArticleBitmaps.build(factory, factory.linkGraph(), parallelism, languages);
+		return this.articleBitmaps;
+	}
+	
+	/**
+	 * Returns the bitmaps of the articles of the graph of the links.
+	 * @return The bitmaps of the articles of the graph, if they are loaded, {@code null} otherwise.
+	 */
+	public ArticleBitmaps articleBitmaps() {
+		return this.articleBitmaps;
+	}
+
+	/**
+	 * Builds the leaderboard of the articles with the highest indegree of the given language edition 
+	 * of this Wikipedia, overall and for each type of spatial entity.
+	 * @param language The language of the Wikipedia edition.
+	 * @param capacity The maximum number of articles of each ranking.
+	 * @param parallelism The number of threads that read the articles from the underlying Neo4j database.
+	 * @return The leaderboard of the language edition.
+	 */
+	public Leaderboard loadLeaderboard(String language, int capacity, int parallelism) {
+		Leaderboard leaderboard = Leaderboard.build(factory, language, capacity, parallelism);
+		leaderboards.put(language, leaderboard);
+		return leaderboard;
+	}
+	
+	/**
+	 * Returns the leaderboard of the given language edition of this Wikipedia.
+	 * @param language The language of the Wikipedia edition.
+	 * @return The leaderboard of the language edition, if it is loaded, {@code null} otherwise.
+	 */
+	public Leaderboard leaderboard(String language) {
+		return leaderboards.get(language);
+	}
+	
+	/**
+	 * Returns the {@code k} articles with the highest indegree of the given language edition of this Wikipedia, 
+	 * overall or of a given type.
+	 * @param language The language of the Wikipedia edition.
+	 * @param type The type of the spatial entities described by the articles, or {@code null} for all the articles.
+	 * @param k The maximum number of articles returned.
+	 * @return The articles with the highest indegree, sorted by decreasing indegree.
+	 * @throws IllegalStateException If the leaderboard of the language edition is not loaded.
+	 */
+	public List<Article> topArticles(String language, String type, int k) {
+		Leaderboard leaderboard = leaderboards.get(language);
+		if ( leaderboard == null )
+			throw new IllegalStateException("The leaderboard of the language edition " + language + " is not loaded");
+		return leaderboard.top(type, k);
+	}
+
 }
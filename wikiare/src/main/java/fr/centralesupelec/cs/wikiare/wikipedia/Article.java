@@ -23,10 +23,6 @@ package fr.centralesupelec.cs.wikiare.wikipedia;
 
 import java.util.Set;
 
-import org.neo4j.driver.v1.Driver;
-import org.neo4j.driver.v1.Record;
-import org.neo4j.driver.v1.Session;
-import org.neo4j.driver.v1.StatementResult;
 import org.neo4j.driver.v1.Values;
 
 /**
@@ -36,107 +32,38 @@ import org.neo4j.driver.v1.Values;
 public class Article extends Page {
 
 
-	/**
-	 * The number of articles to which this article links.
-	 */
-	private int outdegree;
-
-	/**
-	 * The number of articles that link to this article.
-	 */
-	private int indegree;
-
-	/**
-	 * If this article represents a spatial entity, the globe where the entity is.
-	 */
-	private String globe;
-
-	/**
-	 * If this article represents a spatial entity, the latitude of the entity.
-	 */
-	private Double latitude;
-
-	/**
-	 * If this article represents a spatial entity, the longitude of the entity.
-	 */
-	private Double longitude;
-
-	/**
-	 * If this article represents a spatial entity, the type of the entity.
-	 */
-	private String type; 
-
 	/**
 	 * Creates a new article.
-	 * @param driver The driver used to connect to the underlying Neo4j database.
+	 * @param factory The factory that creates the pages of the underlying Neo4j database.
 	 * @param nodeIdentifier The identifier in the underlying Neo4j database of the node
 	 * corresponding to the new article.
 	 */
-	protected Article(Driver driver, long nodeIdentifier) {
-		super(driver, nodeIdentifier);
-		this.outdegree = -1;
-		this.indegree = -1;
-		this.globe = null;
-		this.latitude = null;
-		this.longitude = null;
-		this.type = null;
-	}
-
-	/**
-	 * Loads the attributes of this article from the underlying Neo4j database.
-	 */
-	private void loadAttributesFromNeo4j() {
-		if (this.loadAttributes()) {
-			Session session = driver().session();
-			StatementResult result = session.run("MATCH (n:Article) WHERE id(n)={nodeid} return n.title, n.lang, n.wikiid, n.parents, n.outdegree, "
-					+ "n.indegree, n.globe, n.latitude, n.longitude, n.type", 
-					Values.parameters("nodeid", this.nodeIdentifier()));
-			Record record =  result.single();
-			super.title(record.get("n.title").asString());
-			super.language(record.get("n.lang").asString());
-			super.wikiid(record.get("n.wikiid").asString());
-			super.parents(record.get("n.parents").asInt());
-			this.outdegree = record.get("n.outdegree").asInt();
-			this.indegree = record.get("n.indegree").asInt();
-			if ( !record.get("n.globe").isNull() )
-				globe = record.get("n.globe").asString();
-			if ( !record.get("n.latitude").isNull() )
-				this.latitude = record.get("n.latitude").asDouble();
-			if ( !record.get("n.longitude").isNull() )
-				this.longitude = record.get("n.longitude").asDouble();
-			if ( !record.get("n.type").isNull() )
-				this.type = record.get("n.type").asString();
-
-
-			session.close();
-			this.loadAttributes(false);
-		}
+	protected Article(PageFactory factory, long nodeIdentifier) {
+		super(factory, nodeIdentifier);
 	}
 
 	@Override
-	public String title() {
-		loadAttributesFromNeo4j();
-		return super.title();
+	String label() {
+		return "Article";
 	}
-
+	
 	@Override
-	public String language() {
-		loadAttributesFromNeo4j();
-		return super.language();
+	int allAttributes() {
+		return ArticleAttributes.ALL;
 	}
-
-
+	
 	@Override
-	public String wikiid() {
-		loadAttributesFromNeo4j();
-		return super.wikiid();
+	ArticleAttributes createAttributes() {
+		return new ArticleAttributes();
 	}
-
-
-	@Override
-	public int parents() {
-		loadAttributesFromNeo4j();
-		return super.parents();
+	
+	/**
+	 * Returns the attributes of this article, making sure that the given attributes are loaded.
+	 * @param requested The flags of the requested attributes.
+	 * @return The attributes of this article.
+	 */
+	private ArticleAttributes articleAttributes(int requested) {
+		return (ArticleAttributes)attributes(requested);
 	}
 
 	/**
@@ -144,8 +71,7 @@ public class Article extends Page {
 	 * @return The number of articles to which this article links.
 	 */
 	public int outdegree() {
-		loadAttributesFromNeo4j();
-		return this.outdegree;
+		return articleAttributes(PageAttributes.OUTDEGREE).outdegree();
 	}
 
 
@@ -153,8 +79,10 @@ public class Article extends Page {
 	 * Sets the number of articles to which this article links.
 	 * @param outdegree The number of articles to which this article links.
 	 */
-	public void outdegree(int outdegree) {
-		this.outdegree = outdegree;
+	public synchronized void outdegree(int outdegree) {
+		ArticleAttributes attributes = (ArticleAttributes)modifiableAttributes(PageAttributes.OUTDEGREE);
+		attributes.outdegree = outdegree;
+		attributes(attributes);
 	}
 
 	/**
@@ -162,17 +90,17 @@ public class Article extends Page {
 	 * @return The number of articles that link to this article.
 	 */
 	public int indegree() {
-		loadAttributesFromNeo4j();
-		return this.indegree;
+		return articleAttributes(PageAttributes.INDEGREE).indegree();
 	}
 
 	/**
 	 * Sets the number of articles that link to this article.
 	 * @param indegree The number of articles that link to this article.
 	 */
-	public void indegree(int indegree) {
-		loadAttributesFromNeo4j();
-		this.indegree = indegree;
+	public synchronized void indegree(int indegree) {
+		ArticleAttributes attributes = (ArticleAttributes)modifiableAttributes(PageAttributes.INDEGREE);
+		attributes.indegree = indegree;
+		attributes(attributes);
 	}
 
 	/**
@@ -180,16 +108,17 @@ public class Article extends Page {
 	 * @return The globe of the spatial entity described by this article, if any, {@code null} otherwise.
 	 */
 	public String globe() {
-		loadAttributesFromNeo4j();
-		return globe;
+		return articleAttributes(PageAttributes.GLOBE).globe();
 	}
 
 	/**
 	 * Sets the globe of the spatial entity described by this article, if any.
 	 * @param globe The globe of the spatial entity described by this article, if any.
 	 */
-	public void globe(String globe) {
-		this.globe = globe;
+	public synchronized void globe(String globe) {
+		ArticleAttributes attributes = (ArticleAttributes)modifiableAttributes(PageAttributes.GLOBE);
+		attributes.globe = globe;
+		attributes(attributes);
 	}
 
 	/**
@@ -197,16 +126,17 @@ public class Article extends Page {
 	 * @return The latitude of the spatial entity described by this article, if any, {@code null} otherwise.
 	 */
 	public Double latitude() {
-		loadAttributesFromNeo4j();
-		return this.latitude;
+		return articleAttributes(PageAttributes.LATITUDE).latitude();
 	}
 
 	/**
 	 * Sets the latitude of the spatial entity described by this article, if any.
 	 * @param latitude The latitude of the spatial entity described by this article, if any.
 	 */
-	public void latitude(double latitude) {
-		this.latitude = latitude;
+	public synchronized void latitude(double latitude) {
+		ArticleAttributes attributes = (ArticleAttributes)modifiableAttributes(PageAttributes.LATITUDE);
+		attributes.latitude = latitude;
+		attributes(attributes);
 	}
 
 	/**
@@ -214,16 +144,17 @@ public class Article extends Page {
 	 * @return The longitude of the spatial entity described by this article, if any, {@code null} otherwise.
 	 */
 	public Double longitude() {
-		loadAttributesFromNeo4j();
-		return this.longitude;
+		return articleAttributes(PageAttributes.LONGITUDE).longitude();
 	}
 
 	/**
 	 * Sets the longitude of the spatial entity described by this article, if any.
 	 * @param longitude The longitude of the spatial entity described by this article, if any.
 	 */
-	public void longitude(double longitude) {
-		this.longitude = longitude;
+	public synchronized void longitude(double longitude) {
+		ArticleAttributes attributes = (ArticleAttributes)modifiableAttributes(PageAttributes.LONGITUDE);
+		attributes.longitude = longitude;
+		attributes(attributes);
 	}
 
 	/**
@@ -231,16 +162,17 @@ public class Article extends Page {
 	 * @return The type of the spatial entity described by this article, if any, {@code null} otherwise.
 	 */
 	public String type() {
-		loadAttributesFromNeo4j();
-		return this.type;
+		return articleAttributes(PageAttributes.TYPE).type();
 	}
 
 	/**
 	 * Sets the type of the spatial entity described by this article, if any.
 	 * @param type The type of the spatial entity described by this article, if any.
 	 */
-	public void type(String type) {
-		this.type = type;
+	public synchronized void type(String type) {
+		ArticleAttributes attributes = (ArticleAttributes)modifiableAttributes(PageAttributes.TYPE);
+		attributes.type = type;
+		attributes(attributes);
 	}
 
 	/**
@@ -248,8 +180,7 @@ public class Article extends Page {
 	 * @return {@code true} if this article describes a spatial entity, {@code false} otherwise. 
 	 */
 	public boolean describesSpatialEntity() {
-		loadAttributesFromNeo4j();
-		return latitude != null;
+		return articleAttributes(PageAttributes.LATITUDE).latitude() != null;
 	}
 
 
@@ -258,11 +189,46 @@ public class Article extends Page {
 	 * @return The set of articles to which  this article links.
 	 */
 	public Set<Article> linksTo() {
-		PageFactory factory = new PageFactory(driver());
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)-[:link]->(m:Article) WHERE id(n)={id-node} return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier()), "target-node");
 	}
 
+	/**
+	 * Returns the set of articles to which this article links, whose attributes of the given projection are loaded
+	 * by the same query.
+	 * @param projection The attributes of the articles that are loaded.
+	 * @return The set of articles to which  this article links.
+	 */
+	public Set<Article> linksTo(Projection projection) {
+		return factory().createArticles("MATCH (n:Article)-[:link]->(m:Article) WHERE id(n)={nodeid} " 
+				+ PageFactory.resolveRedirects("m", "target") + "WHERE target IS NOT NULL ", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "target", projection);
+	}
+
+	/**
+	 * Returns the identifiers of the articles to which this article links, without creating the articles.
+	 * The redirects are replaced with the articles to which they redirect.
+	 * @return The set of the identifiers of the articles to which this article links.
+	 */
+	public PageIdSet<Article> linksToIds() {
+		return factory().articleIds("MATCH (n:Article)-[:link]->(m:Article) WHERE id(n)={nodeid} " 
+				+ PageFactory.resolveRedirects("m", "target") + "WHERE target IS NOT NULL ", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "target");
+	}
+
+	/**
+	 * Returns the number of articles to which this article links.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @return The number of articles to which this article links.
+	 */
+	public long countLinksTo() {
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)-[:link]->(m:Article) WHERE id(n)={nodeid} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "count");
+	}
+
 	/**
 	 * Returns the set of articles to which  this article links such that the first occurrence 
 	 * of the link in the text of this article is within the given maximum offset.
@@ -271,12 +237,35 @@ public class Article extends Page {
 	 * of the link in the text of this article is within the given maximum offset.
 	 */
 	public Set<Article> linksToOffset(int maxOffset) {
-		PageFactory factory = new PageFactory(driver());
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.articles(graph.linksToOffset(index, maxOffset));
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)-[l:link]->(m:Article) WHERE id(n)={id-node} "
 				+ "AND l.offset<={max-offset} return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier(), "max-offset", maxOffset), "target-node");
 	}
 
+	/**
+	 * Returns the number of articles to which this article links such that the first occurrence 
+	 * of the link in the text of this article is within the given maximum offset.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @param maxOffset The maximum offset.
+	 * @return The number of articles to which this article links such that the first occurrence 
+	 * of the link in the text of this article is within the given maximum offset.
+	 */
+	public long countLinksToOffset(int maxOffset) {
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.linksToOffset(index, maxOffset).length;
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)-[l:link]->(m:Article) WHERE id(n)={nodeid} AND l.offset<={maxoffset} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier(), "maxoffset", maxOffset), "count");
+	}
+
 	/**
 	 * Returns the set of articles to which this article links such that the first occurrence of the link 
 	 * is within  the maximum rank specified in the text of this article.
@@ -285,12 +274,35 @@ public class Article extends Page {
 	 * is within  the maximum rank specified in the text of this article.
 	 */
 	public Set<Article> linksToRank(int maxRank) {
-		PageFactory factory = new PageFactory(driver());
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.articles(graph.linksToRank(index, maxRank));
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)-[l:link]->(m:Article) WHERE id(n)={id-node} "
 				+ "AND l.rank<={max-rank} return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier(), "max-rank", maxRank), "target-node");
 	}
 
+	/**
+	 * Returns the number of articles to which this article links such that the first occurrence of the link 
+	 * is within the maximum rank specified in the text of this article.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @param maxRank The maximum rank.
+	 * @return The number of articles to which this article links such that the first occurrence of the link 
+	 * is within the maximum rank specified in the text of this article.
+	 */
+	public long countLinksToRank(int maxRank) {
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.linksToRank(index, maxRank).length;
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)-[l:link]->(m:Article) WHERE id(n)={nodeid} AND l.rank<={maxrank} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier(), "maxrank", maxRank), "count");
+	}
+
 	/**
 	 * Returns the set of articles to which this article links such that the first occurrence of the link
 	 * occurs in the introduction of this article.
@@ -298,12 +310,34 @@ public class Article extends Page {
 	 * occurs in the introduction of this article.
 	 */
 	public Set<Article> linksToIntro() {
-		PageFactory factory = new PageFactory(driver());
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.articles(graph.linksToIntro(index));
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)-[l:link]->(m:Article) WHERE id(n)={id-node} "
 				+ "AND exists(l.intro) return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier()), "target-node");
 	}
 
+	/**
+	 * Returns the number of articles to which this article links such that the first occurrence of the link
+	 * occurs in the introduction of this article.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @return The number of articles to which this article links such that the first occurrence of the link
+	 * occurs in the introduction of this article.
+	 */
+	public long countLinksToIntro() {
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.linksToIntro(index).length;
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)-[l:link]->(m:Article) WHERE id(n)={nodeid} AND exists(l.intro) "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "count");
+	}
+
 	/**
 	 * Returns the set of articles to which this article links such that the first occurrence of the link
 	 * occurs in the infobox of this article.
@@ -311,22 +345,79 @@ public class Article extends Page {
 	 * occurs in the infobox of this article.
 	 */
 	public Set<Article> linksToInfobox() {
-		PageFactory factory = new PageFactory(driver());
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.articles(graph.linksToInfobox(index));
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)-[l:link]->(m:Article) WHERE id(n)={id-node} "
 				+ "AND exists(l.infobox) return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier()), "target-node");
 	}
 
+	/**
+	 * Returns the number of articles to which this article links such that the first occurrence of the link
+	 * occurs in the infobox of this article.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @return The number of articles to which this article links such that the first occurrence of the link
+	 * occurs in the infobox of this article.
+	 */
+	public long countLinksToInfobox() {
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.linksToInfobox(index).length;
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)-[l:link]->(m:Article) WHERE id(n)={nodeid} AND exists(l.infobox) "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "count");
+	}
+
 	/**
 	 * Returns the set of articles that link to this article.
 	 * @return The set of articles that link to this article.
 	 */
 	public Set<Article> linksFrom() {
-		PageFactory factory = new PageFactory(driver());
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)<-[:link]-(m:Article) WHERE id(n)={id-node} return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier()), "target-node");
 	}
 
+	/**
+	 * Returns the set of articles that link to this article, whose attributes of the given projection are loaded
+	 * by the same query.
+	 * @param projection The attributes of the articles that are loaded.
+	 * @return The set of articles that link to this article.
+	 */
+	public Set<Article> linksFrom(Projection projection) {
+		return factory().createArticles("MATCH (n:Article)<-[:link]-(m:Article) WHERE id(n)={nodeid} " 
+				+ PageFactory.resolveRedirects("m", "target") + "WHERE target IS NOT NULL ", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "target", projection);
+	}
+
+	/**
+	 * Returns the identifiers of the articles that link to this article, without creating the articles.
+	 * The redirects are replaced with the articles to which they redirect.
+	 * @return The set of the identifiers of the articles that link to this article.
+	 */
+	public PageIdSet<Article> linksFromIds() {
+		return factory().articleIds("MATCH (n:Article)<-[:link]-(m:Article) WHERE id(n)={nodeid} " 
+				+ PageFactory.resolveRedirects("m", "target") + "WHERE target IS NOT NULL ", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "target");
+	}
+
+	/**
+	 * Returns the number of articles that link to this article.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @return The number of articles that link to this article.
+	 */
+	public long countLinksFrom() {
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)<-[:link]-(m:Article) WHERE id(n)={nodeid} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "count");
+	}
+
 	/**
 	 * Returns the set of articles that link to this article such that the first occurrence 
 	 * of the link is within the given maximum offset.
@@ -335,12 +426,35 @@ public class Article extends Page {
 	 * of the link is within the given maximum offset.
 	 */
 	public Set<Article> linksFromOffset(int maxOffset) {
-		PageFactory factory = new PageFactory(driver());
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.articles(graph.linksFromOffset(index, maxOffset));
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)<-[l:link]-(m:Article) WHERE id(n)={id-node} "
 				+ "AND l.offset<={max-offset} return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier(), "max-offset", maxOffset), "target-node");
 	}
 
+	/**
+	 * Returns the number of articles that link to this article such that the first occurrence 
+	 * of the link is within the given maximum offset.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @param maxOffset The maximum offset.
+	 * @return The number of articles that link to this article such that the first occurrence 
+	 * of the link is within the given maximum offset.
+	 */
+	public long countLinksFromOffset(int maxOffset) {
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.linksFromOffset(index, maxOffset).length;
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)<-[l:link]-(m:Article) WHERE id(n)={nodeid} AND l.offset<={maxoffset} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier(), "maxoffset", maxOffset), "count");
+	}
+
 	/**
 	 * Returns the set of articles that link to this article such that the first occurrence of the link 
 	 * is within  the maximum rank specified.
@@ -349,12 +463,35 @@ public class Article extends Page {
 	 * is within  the maximum rank specified.
 	 */
 	public Set<Article> linksFromRank(int maxRank) {
-		PageFactory factory = new PageFactory(driver());
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.articles(graph.linksFromRank(index, maxRank));
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)<-[l:link]-(m:Article) WHERE id(n)={id-node} "
 				+ "AND l.rank<={max-rank} return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier(), "max-rank", maxRank), "target-node");
 	}
 
+	/**
+	 * Returns the number of articles that link to this article such that the first occurrence of the link 
+	 * is within the maximum rank specified.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @param maxRank The maximum rank.
+	 * @return The number of articles that link to this article such that the first occurrence of the link 
+	 * is within the maximum rank specified.
+	 */
+	public long countLinksFromRank(int maxRank) {
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.linksFromRank(index, maxRank).length;
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)<-[l:link]-(m:Article) WHERE id(n)={nodeid} AND l.rank<={maxrank} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier(), "maxrank", maxRank), "count");
+	}
+
 	/**
 	 * Returns the set of articles that link to this article such that the first occurrence of the link
 	 * occurs in the introduction.
@@ -362,12 +499,34 @@ public class Article extends Page {
 	 * occurs in the introduction.
 	 */
 	public Set<Article> linksFromIntro() {
-		PageFactory factory = new PageFactory(driver());
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.articles(graph.linksFromIntro(index));
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)<-[l:link]-(m:Article) WHERE id(n)={id-node} "
 				+ "AND exists(l.intro) return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier()), "target-node");
 	}
 
+	/**
+	 * Returns the number of articles that link to this article such that the first occurrence of the link
+	 * occurs in the introduction.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @return The number of articles that link to this article such that the first occurrence of the link
+	 * occurs in the introduction.
+	 */
+	public long countLinksFromIntro() {
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.linksFromIntro(index).length;
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)<-[l:link]-(m:Article) WHERE id(n)={nodeid} AND exists(l.intro) "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "count");
+	}
+
 	/**
 	 * Returns the set of articles that link to this article such that the first occurrence of the link
 	 * occurs in the infobox of this article.
@@ -375,46 +534,142 @@ public class Article extends Page {
 	 * occurs in the infobox.
 	 */
 	public Set<Article> linksFromInfobox() {
-		PageFactory factory = new PageFactory(driver());
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.articles(graph.linksFromInfobox(index));
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)<-[l:link]-(m:Article) WHERE id(n)={id-node} "
 				+ "AND exists(l.infobox) return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier()), "target-node");
 	}
 
+	/**
+	 * Returns the number of articles that link to this article such that the first occurrence of the link
+	 * occurs in the infobox.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @return The number of articles that link to this article such that the first occurrence of the link
+	 * occurs in the infobox.
+	 */
+	public long countLinksFromInfobox() {
+		LinkGraph graph = factory().linkGraph();
+		int index = indexIn(graph);
+		if ( index >= 0 )
+			return graph.linksFromInfobox(index).length;
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)<-[l:link]-(m:Article) WHERE id(n)={nodeid} AND exists(l.infobox) "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "count");
+	}
+
+	/**
+	 * Returns the subgraph induced by the articles within the given number of hops from this article.
+	 * The expansion stops as soon as the number of articles or links reached exceeds its budget; 
+	 * in this case the links that occur first in the text of their source articles are kept.
+	 * @param hops The maximum number of hops from this article.
+	 * @param direction The direction of the links followed to reach the articles.
+	 * @param maxNodes The maximum number of articles in the subgraph.
+	 * @param maxEdges The maximum number of links in the subgraph.
+	 * @return The subgraph induced by the articles within the given number of hops from this article.
+	 */
+	public EgoNetwork egoNetwork(int hops, Direction direction, int maxNodes, int maxEdges) {
+		return EgoNetwork.extract(factory(), this.nodeIdentifier(), hops, direction, maxNodes, maxEdges);
+	}
+
 	/**
 	 * Returns the categories that contain this article.
 	 * @return The categories that contain this article.
 	 */
 	public Set<Category> parentCategories() {
-		PageFactory factory = new PageFactory(driver());
+		PageFactory factory = factory();
 		return factory.createCategories("MATCH (n:Article)-[:belongTo]->(m:Category) WHERE id(n)={id-node} "
 				+ "return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier()), "target-node");
 	}
 
+	/**
+	 * Returns the identifiers of the categories that contain this article, without creating the categories.
+	 * The redirects are replaced with the categories to which they redirect.
+	 * @return The set of the identifiers of the categories that contain this article.
+	 */
+	public PageIdSet<Category> parentCategoryIds() {
+		return factory().categoryIds("MATCH (n:Article)-[:belongTo]->(m:Category) WHERE id(n)={nodeid} " 
+				+ PageFactory.resolveRedirects("m", "target") + "WHERE target IS NOT NULL ", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "target");
+	}
+
+	/**
+	 * Returns the number of categories that contain this article.
+	 * The categories are counted in the underlying Neo4j database, without being created.
+	 * @return The number of categories that contain this article.
+	 */
+	public long countParentCategories() {
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)-[:belongTo]->(m:Category) WHERE id(n)={nodeid} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "count");
+	}
+
 	/**
 	 * Returns the set of articles that are linked through a cross-link to this article.
 	 * @return The set of articles that are linked through a cross-link to this article.
 	 */
 	public Set<Article> crossLinkedArticles() {
-		PageFactory factory = new PageFactory(driver());
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)-[:crosslink]->(m:Article) WHERE id(n)={id-node} "
 				+ "return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier()), "target-node");
 	}
 
+	/**
+	 * Returns the identifiers of the articles that are linked through a cross-link to this article, 
+	 * without creating the articles.
+	 * The redirects are replaced with the articles to which they redirect.
+	 * @return The set of the identifiers of the articles that are linked through a cross-link to this article.
+	 */
+	public PageIdSet<Article> crossLinkedArticleIds() {
+		return factory().articleIds("MATCH (n:Article)-[:crosslink]->(m:Article) WHERE id(n)={nodeid} " 
+				+ PageFactory.resolveRedirects("m", "target") + "WHERE target IS NOT NULL ", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "target");
+	}
+
+	/**
+	 * Returns the number of articles that are linked through a cross-link to this article.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @return The number of articles that are linked through a cross-link to this article.
+	 */
+	public long countCrossLinkedArticles() {
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)-[:crosslink]->(m:Article) WHERE id(n)={nodeid} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "count");
+	}
+
 	/**
 	 * Returns the set of articles in the specified language that are linked through a cross-link to this article.
 	 * @param language The code of the language of the target articles.
 	 * @return The set of articles in the specified language that are linked through a cross-link to this article.
 	 */
 	public Set<Article> crossLinkedArticles(String language) {
-		PageFactory factory = new PageFactory(driver());
+		PageFactory factory = factory();
 		return factory.createArticles("MATCH (n:Article)-[:crosslink]->(m:Article) WHERE id(n)={id-node} "
-				+ "AND m.language={lang} return m as target-node", 
+				+ "AND m.lang={lang} return m as target-node", 
 				Values.parameters("id-node", this.nodeIdentifier(), "lang", language), "target-node");
 	}
 
+	/**
+	 * Returns the number of articles in the specified language that are linked through a cross-link to this article.
+	 * The articles are counted in the underlying Neo4j database, without being created.
+	 * @param language The code of the language of the target articles.
+	 * @return The number of articles in the specified language that are linked through a cross-link to this article.
+	 */
+	public long countCrossLinkedArticles(String language) {
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Article)-[:crosslink]->(m:Article) WHERE id(n)={nodeid} AND m.lang={lang} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier(), "lang", language), "count");
+	}
+
 	/**
 	 * Returns the set of articles in the specified languages that are linked through a cross-link to 
 	 * this article.
@@ -426,4 +681,14 @@ public class Article extends Page {
 		return null;
 	}
 
+	/**
+	 * Returns the index of this article in an in-memory graph of the links.
+	 * @param graph The graph of the links, or {@code null} if no graph is loaded.
+	 * @return The index of this article in the graph, or {@code -1} if there is no graph or this article 
+	 * is not in the graph.
+	 */
+	private int indexIn(LinkGraph graph) {
+		return graph == null ? -1 : graph.indexOf(this);
+	}
+
 }
@@ -0,0 +1,167 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import org.neo4j.driver.v1.types.MapAccessor;
+
+/**
+ * The attributes of an article, once they are loaded from the underlying Neo4j database.
+ *
+ */
+class ArticleAttributes extends PageAttributes {
+
+	/**
+	 * The flags of all the attributes of an article.
+	 */
+	static final int ALL = TITLE | LANGUAGE | WIKIID | PARENTS | OUTDEGREE | INDEGREE | GLOBE | LATITUDE 
+			| LONGITUDE | TYPE;
+
+	/**
+	 * The number of articles to which the article links.
+	 */
+	int outdegree;
+
+	/**
+	 * The number of articles that link to the article.
+	 */
+	int indegree;
+
+	/**
+	 * If the article represents a spatial entity, the globe where the entity is.
+	 */
+	String globe;
+
+	/**
+	 * If the article represents a spatial entity, the latitude of the entity.
+	 */
+	Double latitude;
+
+	/**
+	 * If the article represents a spatial entity, the longitude of the entity.
+	 */
+	Double longitude;
+
+	/**
+	 * If the article represents a spatial entity, the type of the entity.
+	 */
+	String type;
+
+	/**
+	 * Creates the attributes of an article, none of which is loaded.
+	 */
+	ArticleAttributes() {
+		super();
+		this.outdegree = -1;
+		this.indegree = -1;
+		this.globe = null;
+		this.latitude = null;
+		this.longitude = null;
+		this.type = null;
+	}
+
+	/**
+	 * Creates a copy of the given attributes.
+	 * @param attributes The attributes of an article.
+	 */
+	ArticleAttributes(ArticleAttributes attributes) {
+		super(attributes);
+		this.outdegree = attributes.outdegree();
+		this.indegree = attributes.indegree();
+		this.globe = attributes.globe();
+		this.latitude = attributes.latitude();
+		this.longitude = attributes.longitude();
+		this.type = attributes.type();
+	}
+
+	/**
+	 * Returns the number of articles to which the article links.
+	 * @return The number of articles to which the article links.
+	 */
+	int outdegree() {
+		return this.outdegree;
+	}
+
+	/**
+	 * Returns the number of articles that link to the article.
+	 * @return The number of articles that link to the article.
+	 */
+	int indegree() {
+		return this.indegree;
+	}
+
+	/**
+	 * Returns the globe where the spatial entity described by the article is.
+	 * @return The globe of the spatial entity, if any, {@code null} otherwise.
+	 */
+	String globe() {
+		return this.globe;
+	}
+
+	/**
+	 * Returns the latitude of the spatial entity described by the article.
+	 * @return The latitude of the spatial entity, if any, {@code null} otherwise.
+	 */
+	Double latitude() {
+		return this.latitude;
+	}
+
+	/**
+	 * Returns the longitude of the spatial entity described by the article.
+	 * @return The longitude of the spatial entity, if any, {@code null} otherwise.
+	 */
+	Double longitude() {
+		return this.longitude;
+	}
+
+	/**
+	 * Returns the type of the spatial entity described by the article.
+	 * @return The type of the spatial entity, if any, {@code null} otherwise.
+	 */
+	String type() {
+		return this.type;
+	}
+
+	@Override
+	void assign(MapAccessor values, int attributes) {
+		if ( values != null ) {
+			if ( (attributes & OUTDEGREE) != 0 )
+				this.outdegree = values.get("outdegree").isNull() ? -1 : values.get("outdegree").asInt();
+			if ( (attributes & INDEGREE) != 0 )
+				this.indegree = values.get("indegree").isNull() ? -1 : values.get("indegree").asInt();
+			if ( (attributes & GLOBE) != 0 )
+				this.globe = values.get("globe").isNull() ? null : values.get("globe").asString();
+			if ( (attributes & LATITUDE) != 0 )
+				this.latitude = values.get("latitude").isNull() ? null : values.get("latitude").asDouble();
+			if ( (attributes & LONGITUDE) != 0 )
+				this.longitude = values.get("longitude").isNull() ? null : values.get("longitude").asDouble();
+			if ( (attributes & TYPE) != 0 )
+				this.type = values.get("type").isNull() ? null : values.get("type").asString();
+		}
+		super.assign(values, attributes);
+	}
+
+	@Override
+	ArticleAttributes copy() {
+		return new ArticleAttributes(this);
+	}
+
+}
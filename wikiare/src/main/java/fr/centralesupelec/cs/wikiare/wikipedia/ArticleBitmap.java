@@ -0,0 +1,307 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of dense article indexes, such as the indexes of a {@link LinkGraph}.
+ * A sparse set is stored as the sorted array of its indexes, and a dense set as an array of bits, 
+ * whichever is smaller, so that a bitmap never takes more than one bit per article of the graph.
+ *
+ */
+public class ArticleBitmap {
+
+	/**
+	 * The number of indexes under which a bitmap is stored as an array of indexes rather than of bits, 
+	 * for each bit of the universe.
+	 */
+	private static final int SPARSE_RATIO = 32;
+
+	/**
+	 * The number of indexes that a bitmap may contain, from {@code 0} (included) to this number (excluded).
+	 */
+	private int universe;
+
+	/**
+	 * The number of indexes of this bitmap.
+	 */
+	private int cardinality;
+
+	/**
+	 * The sorted indexes of this bitmap, if it is sparse, {@code null} otherwise.
+	 */
+	private int[] values;
+
+	/**
+	 * The bits of this bitmap, if it is dense, {@code null} otherwise.
+	 */
+	private long[] words;
+
+	/**
+	 * Creates a sparse bitmap.
+	 * @param universe The number of indexes that the bitmap may contain.
+	 * @param values The sorted indexes of the bitmap.
+	 */
+	private ArticleBitmap(int universe, int[] values) {
+		this.universe = universe;
+		this.cardinality = values.length;
+		this.values = values;
+	}
+
+	/**
+	 * Creates a dense bitmap.
+	 * @param universe The number of indexes that the bitmap may contain.
+	 * @param words The bits of the bitmap.
+	 */
+	private ArticleBitmap(int universe, long[] words) {
+		this.universe = universe;
+		this.words = words;
+		for ( long word : words )
+			this.cardinality += Long.bitCount(word);
+	}
+
+	/**
+	 * Returns the bitmap of the given indexes, in the smaller of its two representations.
+	 * @param universe The number of indexes that the bitmap may contain.
+	 * @param values The indexes of the bitmap, in increasing order and without duplicates.
+	 * @param count The number of indexes, at the beginning of the array.
+	 * @return The bitmap of the indexes.
+	 */
+	static ArticleBitmap of(int universe, int[] values, int count) {
+		if ( (long)count * SPARSE_RATIO < universe )
+			return new ArticleBitmap(universe, Arrays.copyOf(values, count));
+		long[] words = new long[(universe + 63) >>> 6];
+		for ( int i = 0; i < count; i += 1 )
+			words[values[i] >>> 6] |= 1L << values[i];
+		return new ArticleBitmap(universe, words);
+	}
+
+	/**
+	 * Returns the number of indexes that this bitmap may contain.
+	 * @return The number of indexes that this bitmap may contain.
+	 */
+	public int universe() {
+		return this.universe;
+	}
+
+	/**
+	 * Returns the number of indexes of this bitmap.
+	 * @return The number of indexes of this bitmap.
+	 */
+	public int cardinality() {
+		return this.cardinality;
+	}
+
+	/**
+	 * Returns whether this bitmap contains the given index.
+	 * @param index An index.
+	 * @return {@code true} if this bitmap contains the index, {@code false} otherwise.
+	 */
+	public boolean contains(int index) {
+		if ( index < 0 || index >= universe )
+			return false;
+		if ( words != null )
+			return (words[index >>> 6] & (1L << index)) != 0;
+		return Arrays.binarySearch(values, index) >= 0;
+	}
+
+	/**
+	 * Returns the indexes of this bitmap.
+	 * @return The indexes of this bitmap, in increasing order.
+	 */
+	public int[] toArray() {
+		if ( values != null )
+			return values.clone();
+		int[] indexes = new int[cardinality];
+		int count = 0;
+		for ( int word = 0; word < words.length; word += 1 )
+			for ( long bits = words[word]; bits != 0; bits &= bits - 1 )
+				indexes[count++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+		return indexes;
+	}
+
+	/**
+	 * Returns the intersection of this bitmap with another.
+	 * @param other A bitmap over the same indexes.
+	 * @return The bitmap of the indexes contained in both bitmaps.
+	 * @throws IllegalArgumentException If the bitmaps are not over the same indexes.
+	 */
+	public ArticleBitmap and(ArticleBitmap other) {
+		check(other);
+		if ( words != null && other.words != null ) {
+			long[] result = new long[words.length];
+			for ( int i = 0; i < words.length; i += 1 )
+				result[i] = words[i] & other.words[i];
+			return compact(result);
+		}
+		ArticleBitmap sparse = values != null ? this : other, dense = sparse == this ? other : this;
+		int[] result = new int[sparse.cardinality];
+		return of(universe, result, dense.filter(sparse.values, 0, sparse.values.length, result));
+	}
+
+	/**
+	 * Returns the union of this bitmap with another.
+	 * @param other A bitmap over the same indexes.
+	 * @return The bitmap of the indexes contained in either bitmap.
+	 * @throws IllegalArgumentException If the bitmaps are not over the same indexes.
+	 */
+	public ArticleBitmap or(ArticleBitmap other) {
+		check(other);
+		if ( values != null && other.values != null ) {
+			int[] result = new int[cardinality + other.cardinality];
+			int count = 0, i = 0, j = 0;
+			while ( i < values.length || j < other.values.length ) {
+				if ( j == other.values.length || i < values.length && values[i] < other.values[j] )
+					result[count++] = values[i++];
+				else if ( i == values.length || other.values[j] < values[i] )
+					result[count++] = other.values[j++];
+				else {
+					result[count++] = values[i++];
+					j += 1;
+				}
+			}
+			return of(universe, result, count);
+		}
+		long[] result = words();
+		for ( int i = 0; i < result.length; i += 1 )
+			result[i] |= other.word(i);
+		return new ArticleBitmap(universe, result);
+	}
+
+	/**
+	 * Returns the difference of this bitmap with another.
+	 * @param other A bitmap over the same indexes.
+	 * @return The bitmap of the indexes contained in this bitmap and not in the other.
+	 * @throws IllegalArgumentException If the bitmaps are not over the same indexes.
+	 */
+	public ArticleBitmap andNot(ArticleBitmap other) {
+		check(other);
+		if ( values != null ) {
+			int[] result = new int[cardinality];
+			int count = 0;
+			for ( int value : values )
+				if ( !other.contains(value) )
+					result[count++] = value;
+			return of(universe, result, count);
+		}
+		long[] result = words.clone();
+		for ( int i = 0; i < result.length; i += 1 )
+			result[i] &= ~other.word(i);
+		return compact(result);
+	}
+
+	/**
+	 * Copies to an array the indexes of a sorted range that are contained in this bitmap.
+	 * @param indexes The indexes, in increasing order.
+	 * @param from The position of the first index of the range.
+	 * @param to The position that follows the last index of the range.
+	 * @param result The array where the indexes contained in this bitmap are copied, from the position {@code 0}.
+	 * @return The number of indexes copied.
+	 */
+	int filter(int[] indexes, int from, int to, int[] result) {
+		int count = 0;
+		if ( words != null ) {
+			for ( int i = from; i < to; i += 1 )
+				if ( (words[indexes[i] >>> 6] & (1L << indexes[i])) != 0 )
+					result[count++] = indexes[i];
+			return count;
+		}
+		int position = 0;
+		for ( int i = from; i < to && position < values.length; i += 1 ) {
+			if ( values[position] < indexes[i] ) {
+				position = Arrays.binarySearch(values, position, values.length, indexes[i]);
+				if ( position >= 0 )
+					result[count++] = indexes[i];
+				else
+					position = -position - 1;
+			}
+			else if ( values[position] == indexes[i] )
+				result[count++] = indexes[i];
+		}
+		return count;
+	}
+
+	/**
+	 * Returns a word of the bits of this bitmap.
+	 * @param word The position of the word.
+	 * @return The bits of the indexes from {@code 64*word} to {@code 64*word+63}.
+	 */
+	private long word(int word) {
+		if ( words != null )
+			return words[word];
+		long bits = 0;
+		int position = Arrays.binarySearch(values, word << 6);
+		for ( int i = position >= 0 ? position : -position - 1; i < values.length && values[i] >>> 6 == word; i += 1 )
+			bits |= 1L << values[i];
+		return bits;
+	}
+
+	/**
+	 * Returns a copy of the bits of this bitmap.
+	 * @return The bits of this bitmap.
+	 */
+	private long[] words() {
+		if ( words != null )
+			return words.clone();
+		long[] bits = new long[(universe + 63) >>> 6];
+		for ( int value : values )
+			bits[value >>> 6] |= 1L << value;
+		return bits;
+	}
+
+	/**
+	 * Returns the bitmap of the given bits, in the smaller of its two representations.
+	 * @param bits The bits of the bitmap.
+	 * @return The bitmap of the bits.
+	 */
+	private ArticleBitmap compact(long[] bits) {
+		ArticleBitmap bitmap = new ArticleBitmap(universe, bits);
+		return (long)bitmap.cardinality * SPARSE_RATIO < universe ? new ArticleBitmap(universe, bitmap.toArray()) : bitmap;
+	}
+
+	/**
+	 * Checks that another bitmap is over the same indexes as this bitmap.
+	 * @param other Another bitmap.
+	 * @throws IllegalArgumentException If the bitmaps are not over the same indexes.
+	 */
+	private void check(ArticleBitmap other) {
+		if ( other.universe != universe )
+			throw new IllegalArgumentException("The bitmaps are not over the same articles: " + universe 
+					+ " and " + other.universe + " indexes");
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if ( !(other instanceof ArticleBitmap) )
+			return false;
+		ArticleBitmap bitmap = (ArticleBitmap)other;
+		return universe == bitmap.universe && cardinality == bitmap.cardinality 
+				&& Arrays.equals(toArray(), bitmap.toArray());
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(toArray());
+	}
+
+}
@@ -0,0 +1,257 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.neo4j.driver.v1.Record;
+
+/**
+ * The bitmaps of the articles of a {@link LinkGraph} that share a language, a type of spatial entity, 
+ * a geotag or the label of the disambiguation articles.
+ * Intersected with the links of the graph, the bitmaps filter the neighbours of an article without 
+ * creating them nor loading their attributes.
+ * The redirects have no bitmap, since they are replaced in the graph with the articles to which they redirect.
+ *
+ */
+public class ArticleBitmaps {
+
+	/**
+	 * The graph whose articles are indexed.
+	 */
+	private LinkGraph graph;
+
+	/**
+	 * The bitmaps of the languages, indexed by language.
+	 */
+	private Map<String, ArticleBitmap> languages;
+
+	/**
+	 * The bitmaps of the types of spatial entities, indexed by type.
+	 */
+	private Map<String, ArticleBitmap> types;
+
+	/**
+	 * The bitmap of the articles that describe a spatial entity.
+	 */
+	private ArticleBitmap spatial;
+
+	/**
+	 * The bitmap of the disambiguation articles.
+	 */
+	private ArticleBitmap disambiguation;
+
+	/**
+	 * Creates the bitmaps from their builder.
+	 * @param graph The graph whose articles are indexed.
+	 * @param builder The builder of the bitmaps.
+	 */
+	private ArticleBitmaps(LinkGraph graph, Builder builder) {
+		this.graph = graph;
+		this.languages = new HashMap<String, ArticleBitmap>();
+		for ( Map.Entry<String, Indexes> entry : builder.languages.entrySet() )
+			languages.put(entry.getKey(), entry.getValue().bitmap(graph.size()));
+		this.types = new HashMap<String, ArticleBitmap>();
+		for ( Map.Entry<String, Indexes> entry : builder.types.entrySet() )
+			types.put(entry.getKey(), entry.getValue().bitmap(graph.size()));
+		this.spatial = builder.spatial.bitmap(graph.size());
+		this.disambiguation = builder.disambiguation.bitmap(graph.size());
+	}
+
+	/**
+	 * Builds the bitmaps of the articles of a graph, by scanning the articles of the given language editions
+	 * in parallel.
+	 * @param factory The factory that creates the articles.
+	 * @param graph The graph whose articles are indexed.
+	 * @param parallelism The number of partitions that are scanned at the same time.
+	 * @param languages The languages of the Wikipedia editions of the graph.
+	 * @return The bitmaps of the articles of the graph.
+	 */
+	public static ArticleBitmaps build(PageFactory factory, LinkGraph graph, int parallelism, String... languages) {
+		Builder builder = new Builder(graph);
+		for ( String language : languages )
+			PageScan.records(factory, "Article", language, "WITH n WHERE NOT n:Redirect "
+					+ "RETURN id(n) AS nodeid, n.lang AS lang, n.type AS type, n.latitude IS NOT NULL AS spatial, "
+					+ "n:Disambiguation AS disambiguation")
+				.run(parallelism, builder::add);
+		return new ArticleBitmaps(graph, builder);
+	}
+
+	/**
+	 * Returns the graph whose articles are indexed by these bitmaps.
+	 * @return The graph whose articles are indexed.
+	 */
+	public LinkGraph graph() {
+		return this.graph;
+	}
+
+	/**
+	 * Returns the languages that have a bitmap.
+	 * @return The languages of the articles of the graph.
+	 */
+	public Set<String> languages() {
+		return Collections.unmodifiableSet(languages.keySet());
+	}
+
+	/**
+	 * Returns the bitmap of the articles of a language edition.
+	 * @param language The language of the Wikipedia edition.
+	 * @return The bitmap of the articles of the language edition, which is empty if the language is unknown.
+	 */
+	public ArticleBitmap language(String language) {
+		return languages.getOrDefault(language, empty());
+	}
+
+	/**
+	 * Returns the types of the spatial entities that have a bitmap.
+	 * @return The types of the spatial entities described by the articles of the graph.
+	 */
+	public Set<String> types() {
+		return Collections.unmodifiableSet(types.keySet());
+	}
+
+	/**
+	 * Returns the bitmap of the articles that describe a spatial entity of the given type.
+	 * @param type The type of the spatial entities.
+	 * @return The bitmap of the articles of the given type, which is empty if the type is unknown.
+	 */
+	public ArticleBitmap type(String type) {
+		return types.getOrDefault(type, empty());
+	}
+
+	/**
+	 * Returns the bitmap of the articles that describe a spatial entity.
+	 * @return The bitmap of the geotagged articles.
+	 */
+	public ArticleBitmap spatial() {
+		return this.spatial;
+	}
+
+	/**
+	 * Returns the bitmap of the disambiguation articles.
+	 * @return The bitmap of the disambiguation articles.
+	 */
+	public ArticleBitmap disambiguation() {
+		return this.disambiguation;
+	}
+
+	/**
+	 * Returns an empty bitmap over the articles of the graph.
+	 * @return An empty bitmap.
+	 */
+	private ArticleBitmap empty() {
+		return ArticleBitmap.of(graph.size(), new int[0], 0);
+	}
+
+	/**
+	 * A growable array of the indexes of a bitmap, while it is built.
+	 */
+	private static class Indexes {
+
+		/**
+		 * The indexes.
+		 */
+		private int[] values = new int[16];
+
+		/**
+		 * The number of indexes.
+		 */
+		private int size;
+
+		/**
+		 * Adds an index.
+		 * @param index The index.
+		 */
+		private void add(int index) {
+			if ( size == values.length )
+				values = Arrays.copyOf(values, 2 * size);
+			values[size++] = index;
+		}
+
+		/**
+		 * Returns the bitmap of the indexes.
+		 * @param universe The number of articles of the graph.
+		 * @return The bitmap of the indexes.
+		 */
+		private ArticleBitmap bitmap(int universe) {
+			Arrays.sort(values, 0, size);
+			return ArticleBitmap.of(universe, values, size);
+		}
+
+	}
+
+	/**
+	 * The builder of the bitmaps, that receives the records of the scanned articles.
+	 */
+	private static class Builder {
+
+		/**
+		 * The graph whose articles are indexed.
+		 */
+		private LinkGraph graph;
+
+		/**
+		 * The indexes of the bitmaps of the languages and of the types.
+		 */
+		private Map<String, Indexes> languages, types;
+
+		/**
+		 * The indexes of the geotagged articles and of the disambiguation articles.
+		 */
+		private Indexes spatial, disambiguation;
+
+		/**
+		 * Creates a new builder.
+		 * @param graph The graph whose articles are indexed.
+		 */
+		private Builder(LinkGraph graph) {
+			this.graph = graph;
+			this.languages = new HashMap<String, Indexes>();
+			this.types = new HashMap<String, Indexes>();
+			this.spatial = new Indexes();
+			this.disambiguation = new Indexes();
+		}
+
+		/**
+		 * Adds the scanned article to its bitmaps, if it is in the graph.
+		 * @param record The record of the article.
+		 */
+		private synchronized void add(Record record) {
+			int index = graph.indexOf(record.get("nodeid").asLong());
+			if ( index < 0 )
+				return;
+			languages.computeIfAbsent(record.get("lang").asString(), key -> new Indexes()).add(index);
+			if ( !record.get("type").isNull() )
+				types.computeIfAbsent(record.get("type").asString(), key -> new Indexes()).add(index);
+			if ( record.get("spatial").asBoolean() )
+				spatial.add(index);
+			if ( record.get("disambiguation").asBoolean() )
+				disambiguation.add(index);
+		}
+
+	}
+
+}
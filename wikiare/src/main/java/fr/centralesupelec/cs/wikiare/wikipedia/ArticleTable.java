@@ -0,0 +1,712 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Value;
+
+/**
+ * The attributes of all the articles of some Wikipedia language editions, stored in memory by columns.
+ * The articles are identified by a dense index, in the order of the identifiers of their nodes.
+ * The degrees and the coordinates are stored in arrays of primitive values, the languages, the globes 
+ * and the types are replaced with codes, and the titles are stored as UTF-8 bytes in a single array,
+ * so that the attributes of millions of articles fit in a fraction of the memory that the corresponding 
+ * {@link Article} objects would take.
+ * An article of the table is a view onto its row, created when requested, whose attributes are never loaded 
+ * from the underlying Neo4j database.
+ *
+ */
+public class ArticleTable {
+
+	/**
+	 * The flag of the disambiguation articles.
+	 */
+	private static final byte DISAMBIGUATION = 1;
+
+	/**
+	 * The flag of the redirect articles.
+	 */
+	private static final byte REDIRECT = 2;
+
+	/**
+	 * The flag of the articles whose title is not known, which are stored with an empty title.
+	 */
+	private static final byte NO_TITLE = 4;
+
+	/**
+	 * The value of the Wikipedia identifiers that are not known.
+	 */
+	private static final int NO_WIKIID = Integer.MIN_VALUE;
+
+	/**
+	 * The factory that creates the articles.
+	 */
+	private PageFactory factory;
+
+	/**
+	 * The number of articles.
+	 */
+	private int size;
+
+	/**
+	 * The identifiers of the nodes of the articles, in increasing order.
+	 */
+	private long[] nodeIds;
+
+	/**
+	 * The offsets of the titles of the articles in {@link #titles}; the title of the article {@code i} ends 
+	 * where the title of the article {@code i+1} starts.
+	 */
+	private int[] titleOffsets;
+
+	/**
+	 * The UTF-8 bytes of the titles of the articles.
+	 */
+	private byte[] titles;
+
+	/**
+	 * The codes of the languages of the articles.
+	 */
+	private byte[] languages;
+
+	/**
+	 * The languages, indexed by their codes.
+	 */
+	private String[] languageNames;
+
+	/**
+	 * The Wikipedia identifiers of the articles, when they are numbers.
+	 */
+	private int[] wikiids;
+
+	/**
+	 * The Wikipedia identifiers of the articles that are not numbers, indexed by article.
+	 */
+	private Map<Integer, String> textualWikiids;
+
+	/**
+	 * The numbers of parent categories of the articles.
+	 */
+	private int[] parents;
+
+	/**
+	 * The outdegrees of the articles.
+	 */
+	private int[] outdegrees;
+
+	/**
+	 * The indegrees of the articles.
+	 */
+	private int[] indegrees;
+
+	/**
+	 * The latitudes of the spatial entities described by the articles, {@code NaN} for the other articles.
+	 */
+	private double[] latitudes;
+
+	/**
+	 * The longitudes of the spatial entities described by the articles, {@code NaN} for the other articles.
+	 */
+	private double[] longitudes;
+
+	/**
+	 * The codes of the globes of the spatial entities described by the articles.
+	 */
+	private byte[] globes;
+
+	/**
+	 * The globes, indexed by their codes; the code {@code 0} denotes no globe.
+	 */
+	private String[] globeNames;
+
+	/**
+	 * The codes of the types of the spatial entities described by the articles.
+	 */
+	private short[] types;
+
+	/**
+	 * The types, indexed by their codes; the code {@code 0} denotes no type.
+	 */
+	private String[] typeNames;
+
+	/**
+	 * The flags of the articles.
+	 */
+	private byte[] flags;
+
+	/**
+	 * Creates a new table from the columns that have been read, sorted by node identifier.
+	 * @param factory The factory that creates the articles.
+	 * @param builder The columns that have been read.
+	 */
+	private ArticleTable(PageFactory factory, Builder builder) {
+		this.factory = factory;
+		this.size = builder.size;
+		this.nodeIds = Arrays.copyOf(builder.nodeIds, size);
+		Arrays.sort(nodeIds);
+		int[] position = new int[size];
+		for ( int row = 0; row < size; row += 1 )
+			position[row] = Arrays.binarySearch(nodeIds, builder.nodeIds[row]);
+		this.titleOffsets = new int[size + 1];
+		for ( int row = 0; row < size; row += 1 )
+			titleOffsets[position[row] + 1] = builder.titleLengths[row];
+		for ( int i = 0; i < size; i += 1 )
+			titleOffsets[i + 1] += titleOffsets[i];
+		this.titles = new byte[titleOffsets[size]];
+		for ( int row = 0; row < size; row += 1 )
+			System.arraycopy(builder.titles, builder.titleStarts[row], titles, titleOffsets[position[row]], 
+					builder.titleLengths[row]);
+		this.languages = new byte[size];
+		this.wikiids = new int[size];
+		this.parents = new int[size];
+		this.outdegrees = new int[size];
+		this.indegrees = new int[size];
+		this.latitudes = new double[size];
+		this.longitudes = new double[size];
+		this.globes = new byte[size];
+		this.types = new short[size];
+		this.flags = new byte[size];
+		this.textualWikiids = new HashMap<Integer, String>();
+		for ( int row = 0; row < size; row += 1 ) {
+			int i = position[row];
+			languages[i] = builder.languages[row];
+			wikiids[i] = builder.wikiids[row];
+			parents[i] = builder.parents[row];
+			outdegrees[i] = builder.outdegrees[row];
+			indegrees[i] = builder.indegrees[row];
+			latitudes[i] = builder.latitudes[row];
+			longitudes[i] = builder.longitudes[row];
+			globes[i] = builder.globes[row];
+			types[i] = builder.types[row];
+			flags[i] = builder.flags[row];
+		}
+		for ( Map.Entry<Integer, String> wikiid : builder.textualWikiids.entrySet() )
+			textualWikiids.put(position[wikiid.getKey()], wikiid.getValue());
+		this.languageNames = builder.languageNames.toArray(new String[0]);
+		this.globeNames = builder.globeNames.toArray(new String[0]);
+		this.typeNames = builder.typeNames.toArray(new String[0]);
+	}
+
+	/**
+	 * Builds the table of the articles of the given Wikipedia language editions, by scanning 
+	 * all their articles in parallel.
+	 * @param factory The factory that creates the articles.
+	 * @param parallelism The number of partitions that are scanned at the same time.
+	 * @param languages The languages of the Wikipedia editions.
+	 * @return The table of the articles of the given language editions.
+	 */
+	public static ArticleTable build(PageFactory factory, int parallelism, String... languages) {
+		Builder builder = new Builder();
+		for ( String language : languages )
+			PageScan.records(factory, "Article", language, "RETURN id(n) AS nodeid, n:Disambiguation AS disambiguation, "
+					+ "n:Redirect AS redirect, " + PageAttributes.projection("n", ArticleAttributes.ALL) + " AS attributes")
+				.run(parallelism, builder::add);
+		return new ArticleTable(factory, builder);
+	}
+
+	/**
+	 * Returns the number of articles of this table.
+	 * @return The number of articles of this table.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the index of the given article in this table.
+	 * @param article An article.
+	 * @return The index of the article in this table, or {@code -1} if the article is not in this table.
+	 */
+	public int indexOf(Article article) {
+		return indexOf(article.nodeIdentifier());
+	}
+
+	/**
+	 * Returns the index of the article corresponding to the given node in this table.
+	 * @param nodeIdentifier The identifier of a node.
+	 * @return The index of the article in this table, or {@code -1} if the article is not in this table.
+	 */
+	int indexOf(long nodeIdentifier) {
+		int index = Arrays.binarySearch(nodeIds, nodeIdentifier);
+		return index >= 0 ? index : -1;
+	}
+
+	/**
+	 * Returns the article with the given index in this table. 
+	 * The article is a view onto its row of this table, so that its attributes are never loaded 
+	 * from the underlying Neo4j database; setting one of its attributes detaches it from this table.
+	 * @param index The index of an article in this table.
+	 * @return The article with the given index.
+	 */
+	public Article article(int index) {
+		Article article;
+		if ( (flags[index] & REDIRECT) != 0 )
+			article = new RedirectArticle(factory, nodeIds[index]);
+		else if ( (flags[index] & DISAMBIGUATION) != 0 )
+			article = new DisambiguationArticle(factory, nodeIds[index]);
+		else
+			article = new Article(factory, nodeIds[index]);
+		article.attributes(new Row(this, index));
+		return article;
+	}
+
+	/**
+	 * Makes the given article a view onto its row of this table, if it is in this table.
+	 * @param article An article.
+	 */
+	void attach(Article article) {
+		int index = indexOf(article.nodeIdentifier());
+		if ( index >= 0 )
+			article.attributes(new Row(this, index));
+	}
+
+	/**
+	 * Returns the title of the article with the given index in this table.
+	 * @param index The index of an article in this table.
+	 * @return The title of the article, or {@code null} if the title is not known.
+	 */
+	public String title(int index) {
+		if ( (flags[index] & NO_TITLE) != 0 )
+			return null;
+		return new String(titles, titleOffsets[index], titleOffsets[index + 1] - titleOffsets[index], 
+				StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the language of the article with the given index in this table.
+	 * @param index The index of an article in this table.
+	 * @return The language of the article.
+	 */
+	public String language(int index) {
+		return languageNames[languages[index] & 0xFF];
+	}
+
+	/**
+	 * Returns the Wikipedia identifier of the article with the given index in this table.
+	 * @param index The index of an article in this table.
+	 * @return The Wikipedia identifier of the article, if known, {@code null} otherwise.
+	 */
+	public String wikiid(int index) {
+		if ( wikiids[index] != NO_WIKIID )
+			return Integer.toString(wikiids[index]);
+		return textualWikiids.get(index);
+	}
+
+	/**
+	 * Returns the number of parent categories of the article with the given index in this table.
+	 * @param index The index of an article in this table.
+	 * @return The number of parent categories of the article.
+	 */
+	public int parents(int index) {
+		return parents[index];
+	}
+
+	/**
+	 * Returns the outdegree of the article with the given index in this table.
+	 * @param index The index of an article in this table.
+	 * @return The outdegree of the article.
+	 */
+	public int outdegree(int index) {
+		return outdegrees[index];
+	}
+
+	/**
+	 * Returns the indegree of the article with the given index in this table.
+	 * @param index The index of an article in this table.
+	 * @return The indegree of the article.
+	 */
+	public int indegree(int index) {
+		return indegrees[index];
+	}
+
+	/**
+	 * Returns the globe of the spatial entity described by the article with the given index in this table.
+	 * @param index The index of an article in this table.
+	 * @return The globe of the spatial entity described by the article, if any, {@code null} otherwise.
+	 */
+	public String globe(int index) {
+		return globeNames[globes[index] & 0xFF];
+	}
+
+	/**
+	 * Returns the latitude of the spatial entity described by the article with the given index in this table.
+	 * @param index The index of an article in this table.
+	 * @return The latitude of the spatial entity described by the article, if any, {@code null} otherwise.
+	 */
+	public Double latitude(int index) {
+		return Double.isNaN(latitudes[index]) ? null : latitudes[index];
+	}
+
+	/**
+	 * Returns the longitude of the spatial entity described by the article with the given index in this table.
+	 * @param index The index of an article in this table.
+	 * @return The longitude of the spatial entity described by the article, if any, {@code null} otherwise.
+	 */
+	public Double longitude(int index) {
+		return Double.isNaN(longitudes[index]) ? null : longitudes[index];
+	}
+
+	/**
+	 * Returns the type of the spatial entity described by the article with the given index in this table.
+	 * @param index The index of an article in this table.
+	 * @return The type of the spatial entity described by the article, if any, {@code null} otherwise.
+	 */
+	public String type(int index) {
+		return typeNames[types[index] & 0xFFFF];
+	}
+
+	/**
+	 * Returns whether the article with the given index in this table is a disambiguation article.
+	 * @param index The index of an article in this table.
+	 * @return {@code true} if the article is a disambiguation article, {@code false} otherwise.
+	 */
+	public boolean isDisambiguation(int index) {
+		return (flags[index] & DISAMBIGUATION) != 0;
+	}
+
+	/**
+	 * Returns whether the article with the given index in this table is a redirect.
+	 * @param index The index of an article in this table.
+	 * @return {@code true} if the article is a redirect, {@code false} otherwise.
+	 */
+	public boolean isRedirect(int index) {
+		return (flags[index] & REDIRECT) != 0;
+	}
+
+	/**
+	 * The attributes of an article that is a view onto its row of a table.
+	 *
+	 */
+	private static class Row extends ArticleAttributes {
+
+		/**
+		 * The table.
+		 */
+		private ArticleTable table;
+
+		/**
+		 * The index of the article in the table.
+		 */
+		private int index;
+
+		/**
+		 * Creates a new view.
+		 * @param table The table.
+		 * @param index The index of the article in the table.
+		 */
+		Row(ArticleTable table, int index) {
+			super();
+			this.table = table;
+			this.index = index;
+			this.loaded = ALL;
+		}
+
+		@Override
+		String title() {
+			return table.title(index);
+		}
+
+		@Override
+		String language() {
+			return table.language(index);
+		}
+
+		@Override
+		String wikiid() {
+			return table.wikiid(index);
+		}
+
+		@Override
+		int parents() {
+			return table.parents(index);
+		}
+
+		@Override
+		int outdegree() {
+			return table.outdegree(index);
+		}
+
+		@Override
+		int indegree() {
+			return table.indegree(index);
+		}
+
+		@Override
+		String globe() {
+			return table.globe(index);
+		}
+
+		@Override
+		Double latitude() {
+			return table.latitude(index);
+		}
+
+		@Override
+		Double longitude() {
+			return table.longitude(index);
+		}
+
+		@Override
+		String type() {
+			return table.type(index);
+		}
+
+	}
+
+	/**
+	 * The columns of a table while its articles are read, in the order in which they are read.
+	 *
+	 */
+	private static class Builder {
+
+		/**
+		 * The number of articles that have been read.
+		 */
+		private int size;
+
+		/**
+		 * The identifiers of the nodes of the articles.
+		 */
+		private long[] nodeIds;
+
+		/**
+		 * The offsets of the titles of the articles in {@link #titles}.
+		 */
+		private int[] titleStarts;
+
+		/**
+		 * The lengths in bytes of the titles of the articles.
+		 */
+		private int[] titleLengths;
+
+		/**
+		 * The UTF-8 bytes of the titles of the articles.
+		 */
+		private byte[] titles;
+
+		/**
+		 * The number of bytes used in {@link #titles}.
+		 */
+		private int titlesLength;
+
+		/**
+		 * The codes of the languages of the articles.
+		 */
+		private byte[] languages;
+
+		/**
+		 * The Wikipedia identifiers of the articles, when they are numbers.
+		 */
+		private int[] wikiids;
+
+		/**
+		 * The Wikipedia identifiers of the articles that are not numbers, indexed by article.
+		 */
+		private Map<Integer, String> textualWikiids;
+
+		/**
+		 * The numbers of parent categories of the articles.
+		 */
+		private int[] parents;
+
+		/**
+		 * The outdegrees of the articles.
+		 */
+		private int[] outdegrees;
+
+		/**
+		 * The indegrees of the articles.
+		 */
+		private int[] indegrees;
+
+		/**
+		 * The latitudes of the spatial entities described by the articles.
+		 */
+		private double[] latitudes;
+
+		/**
+		 * The longitudes of the spatial entities described by the articles.
+		 */
+		private double[] longitudes;
+
+		/**
+		 * The codes of the globes of the spatial entities described by the articles.
+		 */
+		private byte[] globes;
+
+		/**
+		 * The codes of the types of the spatial entities described by the articles.
+		 */
+		private short[] types;
+
+		/**
+		 * The flags of the articles.
+		 */
+		private byte[] flags;
+
+		/**
+		 * The languages, indexed by their codes.
+		 */
+		private List<String> languageNames;
+
+		/**
+		 * The globes, indexed by their codes.
+		 */
+		private List<String> globeNames;
+
+		/**
+		 * The types, indexed by their codes.
+		 */
+		private List<String> typeNames;
+
+		/**
+		 * The codes of the languages, the globes and the types.
+		 */
+		private Map<String, Integer> languageCodes, globeCodes, typeCodes;
+
+		/**
+		 * Creates empty columns.
+		 */
+		Builder() {
+			this.size = 0;
+			this.nodeIds = new long[0];
+			this.titleStarts = new int[0];
+			this.titleLengths = new int[0];
+			this.titles = new byte[0];
+			this.titlesLength = 0;
+			this.languages = new byte[0];
+			this.wikiids = new int[0];
+			this.textualWikiids = new HashMap<Integer, String>();
+			this.parents = new int[0];
+			this.outdegrees = new int[0];
+			this.indegrees = new int[0];
+			this.latitudes = new double[0];
+			this.longitudes = new double[0];
+			this.globes = new byte[0];
+			this.types = new short[0];
+			this.flags = new byte[0];
+			this.languageNames = new ArrayList<String>();
+			this.globeNames = new ArrayList<String>();
+			this.typeNames = new ArrayList<String>();
+			this.globeNames.add(null);
+			this.typeNames.add(null);
+			this.languageCodes = new HashMap<String, Integer>();
+			this.globeCodes = new HashMap<String, Integer>();
+			this.typeCodes = new HashMap<String, Integer>();
+		}
+
+		/**
+		 * Adds the article read from a record.
+		 * @param record The record of a scanned article.
+		 */
+		synchronized void add(Record record) {
+			if ( size == nodeIds.length )
+				grow(size + (size >> 1) + 16);
+			Value attributes = record.get("attributes");
+			nodeIds[size] = record.get("nodeid").asLong();
+			byte[] title = attributes.get("title").isNull() ? new byte[0] 
+					: attributes.get("title").asString().getBytes(StandardCharsets.UTF_8);
+			if ( titlesLength + title.length > titles.length ) {
+				long capacity = Math.max(titlesLength + title.length, titles.length + (titles.length >> 1) + 1024L);
+				if ( capacity > Integer.MAX_VALUE - 8 )
+					throw new IllegalStateException("The titles of the articles do not fit in a table");
+				titles = Arrays.copyOf(titles, (int)capacity);
+			}
+			System.arraycopy(title, 0, titles, titlesLength, title.length);
+			titleStarts[size] = titlesLength;
+			titleLengths[size] = title.length;
+			titlesLength += title.length;
+			languages[size] = (byte)code(attributes.get("lang").asString(), languageNames, languageCodes, 0xFF);
+			wikiids[size] = NO_WIKIID;
+			if ( !attributes.get("wikiid").isNull() ) {
+				String wikiid = attributes.get("wikiid").asString();
+				try {
+					wikiids[size] = Integer.parseInt(wikiid);
+				} catch (NumberFormatException e) {
+					textualWikiids.put(size, wikiid);
+				}
+			}
+			parents[size] = attributes.get("parents").isNull() ? -1 : attributes.get("parents").asInt();
+			outdegrees[size] = attributes.get("outdegree").isNull() ? -1 : attributes.get("outdegree").asInt();
+			indegrees[size] = attributes.get("indegree").isNull() ? -1 : attributes.get("indegree").asInt();
+			latitudes[size] = attributes.get("latitude").isNull() ? Double.NaN : attributes.get("latitude").asDouble();
+			longitudes[size] = attributes.get("longitude").isNull() ? Double.NaN : attributes.get("longitude").asDouble();
+			globes[size] = attributes.get("globe").isNull() ? 0 
+					: (byte)code(attributes.get("globe").asString(), globeNames, globeCodes, 0xFF);
+			types[size] = attributes.get("type").isNull() ? 0 
+					: (short)code(attributes.get("type").asString(), typeNames, typeCodes, 0xFFFF);
+			flags[size] = (byte)((record.get("disambiguation").asBoolean() ? DISAMBIGUATION : 0) 
+					| (record.get("redirect").asBoolean() ? REDIRECT : 0) 
+					| (attributes.get("title").isNull() ? NO_TITLE : 0));
+			size += 1;
+		}
+
+		/**
+		 * Returns the code of a value, assigning a new code to a value that has none.
+		 * @param value A value.
+		 * @param names The values, indexed by their codes.
+		 * @param codes The codes of the values.
+		 * @param maxCode The greatest code that can be assigned.
+		 * @return The code of the value.
+		 * @throws IllegalStateException If there are too many distinct values.
+		 */
+		private static int code(String value, List<String> names, Map<String, Integer> codes, int maxCode) {
+			Integer code = codes.get(value);
+			if ( code != null )
+				return code;
+			if ( names.size() > maxCode )
+				throw new IllegalStateException("Too many distinct values to be coded: " + value);
+			codes.put(value, names.size());
+			names.add(value);
+			return names.size() - 1;
+		}
+
+		/**
+		 * Grows the columns.
+		 * @param capacity The new number of articles that the columns can hold.
+		 */
+		private void grow(int capacity) {
+			nodeIds = Arrays.copyOf(nodeIds, capacity);
+			titleStarts = Arrays.copyOf(titleStarts, capacity);
+			titleLengths = Arrays.copyOf(titleLengths, capacity);
+			languages = Arrays.copyOf(languages, capacity);
+			wikiids = Arrays.copyOf(wikiids, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			outdegrees = Arrays.copyOf(outdegrees, capacity);
+			indegrees = Arrays.copyOf(indegrees, capacity);
+			latitudes = Arrays.copyOf(latitudes, capacity);
+			longitudes = Arrays.copyOf(longitudes, capacity);
+			globes = Arrays.copyOf(globes, capacity);
+			types = Arrays.copyOf(types, capacity);
+			flags = Arrays.copyOf(flags, capacity);
+		}
+
+	}
+
+}
@@ -0,0 +1,477 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.Values;
+
+/**
+ * A persistent cache of the attributes of the pages, indexed by the identifiers of the corresponding
+ * nodes in the underlying Neo4j database.
+ * The attributes are appended to a file in a compact binary encoding, so that they are still available
+ * after a restart.
+ * A failure to read or write the file never fails the load of the attributes: a record that cannot be read 
+ * is a miss, and a record that cannot be written is dropped and counted.
+ * When the file exceeds its maximum size, it is compacted: the obsolete records are removed,
+ * as well as the oldest records if needed, until the file is half its maximum size.
+ * The header of the file holds the fingerprint of the database whose attributes it contains, 
+ * so that the records are discarded when the cache is opened against another database.
+ *
+ */
+public class AttributeCache {
+
+	/**
+	 * The number that identifies the files of a cache.
+	 */
+	private static final int MAGIC = 0x57434131;
+
+	/**
+	 * The size in bytes of the smallest record, without its length: the identifier of its node.
+	 */
+	private static final int MIN_RECORD_SIZE = 8;
+
+	/**
+	 * The names of the attributes that are encoded as a single byte.
+	 * The other names are encoded in full.
+	 */
+	private static final String[] NAMES = { "title", "lang", "wikiid", "parents", "outdegree", "indegree",
+			"globe", "latitude", "longitude", "type", "children", "size" };
+
+	/**
+	 * The code of a name that is encoded in full.
+	 */
+	private static final int OTHER_NAME = 0xFF;
+
+	/**
+	 * The type codes of the values.
+	 */
+	private static final int NULL = 0, STRING = 1, INTEGER = 2, DOUBLE = 3, BOOLEAN = 4;
+
+	/**
+	 * The file of this cache.
+	 */
+	private File file;
+
+	/**
+	 * The maximum size in bytes of the file of this cache.
+	 */
+	private long maxSize;
+
+	/**
+	 * The header of the file of this cache: the magic number, followed by the fingerprint of the database.
+	 */
+	private byte[] header;
+
+	/**
+	 * The channel used to read and write the file of this cache.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The size in bytes of the file of this cache.
+	 */
+	private long size;
+
+	/**
+	 * The position in the file of the last record of each node.
+	 */
+	private Map<Long, Long> positions;
+
+	/**
+	 * The lock that allows concurrent reads and exclusive writes.
+	 */
+	private ReadWriteLock lock;
+
+	/**
+	 * The number of records that could not be read or written.
+	 */
+	private AtomicLong dropped;
+
+	/**
+	 * Opens a cache.
+	 * If the file exists and was written for the same database, the records that it contains are indexed; 
+	 * otherwise, the file is emptied.
+	 * @param file The file of the cache.
+	 * @param maxSize The maximum size in bytes of the file of the cache.
+	 * @param fingerprint The fingerprint of the database whose attributes are cached, such as its store identifier.
+	 * @throws IllegalArgumentException If the file exists and is not the file of a cache.
+	 */
+	public AttributeCache(File file, long maxSize, String fingerprint) {
+		this.file = file;
+		this.maxSize = maxSize;
+		byte[] bytes = fingerprint.getBytes(StandardCharsets.UTF_8);
+		this.header = ByteBuffer.allocate(8 + bytes.length).putInt(MAGIC).putInt(bytes.length).put(bytes).array();
+		this.positions = new HashMap<Long, Long>();
+		this.lock = new ReentrantReadWriteLock();
+		this.dropped = new AtomicLong();
+		open();
+	}
+
+	/**
+	 * Returns the number of pages whose attributes are in this cache.
+	 * @return The number of pages whose attributes are in this cache.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return positions.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of records that could not be read from the file or written to it.
+	 * @return The number of records that could not be read or written.
+	 */
+	public long dropped() {
+		return this.dropped.get();
+	}
+
+	/**
+	 * Closes this cache, forcing its content to the file.
+	 */
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			channel.force(true);
+			channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to close the attribute cache " + file, e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the attributes of the page corresponding to the given node.
+	 * @param nodeIdentifier The identifier of a node in the underlying Neo4j database.
+	 * @return The attributes of the page, as a map from the names of the properties of the node
+	 * to their values, or {@code null} if they are not in this cache or cannot be read.
+	 */
+	Value get(long nodeIdentifier) {
+		lock.readLock().lock();
+		try {
+			Long position = positions.get(nodeIdentifier);
+			if ( position == null )
+				return null;
+			return decode(read(position));
+		} catch (IOException | RuntimeException e) {
+			dropped.incrementAndGet();
+			return null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Stores the attributes of the page corresponding to the given node.
+	 * If the file cannot be written, the attributes are not stored and the record is counted as dropped.
+	 * @param nodeIdentifier The identifier of a node in the underlying Neo4j database.
+	 * @param attributes The attributes of the page, as a map from the names of the properties of the node
+	 * to their values.
+	 */
+	void put(long nodeIdentifier, Value attributes) {
+		byte[] record = encode(nodeIdentifier, attributes);
+		lock.writeLock().lock();
+		try {
+			if ( size + record.length > maxSize )
+				compact();
+			if ( size + record.length > maxSize )
+				return;
+			channel.write(ByteBuffer.wrap(record), size);
+			positions.put(nodeIdentifier, size);
+			size += record.length;
+		} catch (IOException | RuntimeException e) {
+			dropped.incrementAndGet();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Opens the file of this cache and indexes its records.
+	 * If the file was written for another database, its records are discarded.
+	 * The file is truncated at the first invalid record, such as a record that was only partially written 
+	 * because of a crash.
+	 */
+	private void open() {
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			size = channel.size();
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			if ( size >= 4 && (channel.read(magic, 0) < 4 || magic.getInt(0) != MAGIC) ) {
+				channel.close();
+				throw new IllegalArgumentException("The file " + file + " is not an attribute cache");
+			}
+			ByteBuffer stored = ByteBuffer.allocate(header.length);
+			if ( size < header.length || channel.read(stored, 0) < header.length
+					|| !Arrays.equals(stored.array(), header) ) {
+				channel.truncate(0);
+				channel.write(ByteBuffer.wrap(header), 0);
+				size = header.length;
+				return;
+			}
+			ByteBuffer prefix = ByteBuffer.allocate(4);
+			long position = header.length;
+			while ( position + 4 <= size ) {
+				prefix.clear();
+				channel.read(prefix, position);
+				int length = prefix.getInt(0);
+				long next = position + 4 + length;
+				if ( length < MIN_RECORD_SIZE || next <= position || next > size )
+					break;
+				ByteBuffer record = read(position);
+				long nodeIdentifier = record.getLong(0);
+				try {
+					decode(record);
+				} catch (RuntimeException e) {
+					break;
+				}
+				positions.put(nodeIdentifier, position);
+				position = next;
+			}
+			channel.truncate(position);
+			size = position;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to open the attribute cache " + file, e);
+		}
+	}
+
+	/**
+	 * Reads the record at the given position of the file.
+	 * @param position The position of the record.
+	 * @return The record, without its length.
+	 * @throws IOException If the file cannot be read.
+	 */
+	private ByteBuffer read(long position) throws IOException {
+		ByteBuffer length = ByteBuffer.allocate(4);
+		channel.read(length, position);
+		ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+		while ( record.hasRemaining() )
+			channel.read(record, position + 4 + record.position());
+		record.flip();
+		return record;
+	}
+
+	/**
+	 * Rewrites the file of this cache, keeping only the last record of each node.
+	 * If the records exceed half the maximum size of the file, the oldest ones are discarded.
+	 * @throws IOException If the file cannot be rewritten.
+	 */
+	private void compact() throws IOException {
+		List<long[]> records = new ArrayList<long[]>();
+		for ( Map.Entry<Long, Long> entry : positions.entrySet() )
+			records.add(new long[] { entry.getValue(), entry.getKey() });
+		records.sort((first, second) -> Long.compare(second[0], first[0]));
+		File temporary = new File(file.getPath() + ".tmp");
+		Map<Long, Long> compactedPositions = new HashMap<Long, Long>();
+		long compactedSize = header.length;
+		List<ByteBuffer> kept = new ArrayList<ByteBuffer>();
+		for ( long[] record : records ) {
+			ByteBuffer content = read(record[0]);
+			if ( compactedSize + 4 + content.remaining() > maxSize / 2 )
+				break;
+			kept.add(content);
+			compactedSize += 4 + content.remaining();
+		}
+		try ( FileChannel compacted = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE) ) {
+			compacted.write(ByteBuffer.wrap(header), 0);
+			long position = header.length;
+			for ( int i = kept.size() - 1; i >= 0; i -= 1 ) {
+				ByteBuffer content = kept.get(i);
+				ByteBuffer length = ByteBuffer.allocate(4);
+				length.putInt(0, content.remaining());
+				compactedPositions.put(content.getLong(0), position);
+				compacted.write(length, position);
+				compacted.write(content, position + 4);
+				position += 4 + content.capacity();
+			}
+			compacted.force(true);
+		}
+		channel.close();
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+		positions = compactedPositions;
+		size = compactedSize;
+	}
+
+	/**
+	 * Encodes the attributes of a page into a record.
+	 * @param nodeIdentifier The identifier of the node corresponding to the page.
+	 * @param attributes The attributes of the page.
+	 * @return The record, preceded by its length.
+	 */
+	private static byte[] encode(long nodeIdentifier, Value attributes) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+		out.write(0);
+		out.write(0);
+		out.write(0);
+		out.write(0);
+		for ( int i = 56; i >= 0; i -= 8 )
+			out.write((int)(nodeIdentifier >>> i));
+		for ( String name : attributes.keys() ) {
+			int code = Arrays.asList(NAMES).indexOf(name);
+			if ( code >= 0 )
+				out.write(code);
+			else {
+				out.write(OTHER_NAME);
+				writeString(out, name);
+			}
+			Object value = attributes.get(name).asObject();
+			if ( value == null )
+				out.write(NULL);
+			else if ( value instanceof Long || value instanceof Integer ) {
+				out.write(INTEGER);
+				long number = ((Number)value).longValue();
+				writeVarLong(out, (number << 1) ^ (number >> 63));
+			}
+			else if ( value instanceof Double ) {
+				out.write(DOUBLE);
+				long bits = Double.doubleToLongBits((Double)value);
+				for ( int i = 56; i >= 0; i -= 8 )
+					out.write((int)(bits >>> i));
+			}
+			else if ( value instanceof Boolean ) {
+				out.write(BOOLEAN);
+				out.write((Boolean)value ? 1 : 0);
+			}
+			else {
+				out.write(STRING);
+				writeString(out, value.toString());
+			}
+		}
+		byte[] record = out.toByteArray();
+		ByteBuffer.wrap(record).putInt(0, record.length - 4);
+		return record;
+	}
+
+	/**
+	 * Decodes the attributes of a page from a record.
+	 * @param record The record, without its length.
+	 * @return The attributes of the page.
+	 */
+	private static Value decode(ByteBuffer record) {
+		record.getLong();
+		Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+		while ( record.hasRemaining() ) {
+			int code = record.get() & 0xFF;
+			String name = code == OTHER_NAME ? readString(record) : NAMES[code];
+			switch ( record.get() ) {
+			case STRING:
+				attributes.put(name, readString(record));
+				break;
+			case INTEGER:
+				long number = readVarLong(record);
+				attributes.put(name, (number >>> 1) ^ -(number & 1));
+				break;
+			case DOUBLE:
+				attributes.put(name, record.getDouble());
+				break;
+			case BOOLEAN:
+				attributes.put(name, record.get() != 0);
+				break;
+			default:
+				attributes.put(name, null);
+			}
+		}
+		return Values.value(attributes);
+	}
+
+	/**
+	 * Writes a string as its length followed by its UTF-8 bytes.
+	 * @param out The output.
+	 * @param string The string.
+	 */
+	private static void writeString(ByteArrayOutputStream out, String string) {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(ByteArrayOutputStream, String)}.
+	 * @param in The input.
+	 * @return The string.
+	 */
+	private static String readString(ByteBuffer in) {
+		long length = readVarLong(in);
+		if ( length < 0 || length > in.remaining() )
+			throw new BufferUnderflowException();
+		byte[] bytes = new byte[(int)length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a non-negative number in as few bytes as possible, seven bits per byte.
+	 * @param out The output.
+	 * @param number The number.
+	 */
+	private static void writeVarLong(ByteArrayOutputStream out, long number) {
+		while ( (number & ~0x7FL) != 0 ) {
+			out.write((int)((number & 0x7F) | 0x80));
+			number >>>= 7;
+		}
+		out.write((int)number);
+	}
+
+	/**
+	 * Reads a number written by {@link #writeVarLong(ByteArrayOutputStream, long)}.
+	 * @param in The input.
+	 * @return The number.
+	 */
+	private static long readVarLong(ByteBuffer in) {
+		long number = 0;
+		for ( int shift = 0; ; shift += 7 ) {
+			byte b = in.get();
+			number |= (long)(b & 0x7F) << shift;
+			if ( (b & 0x80) == 0 )
+				return number;
+		}
+	}
+
+}
@@ -0,0 +1,400 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.Values;
+import org.neo4j.driver.v1.types.MapAccessor;
+
+/**
+ * A loader that gathers the requests for the attributes of the pages received within a short window, 
+ * and loads the attributes of all the requested pages with a single query.
+ * A batch of requests is loaded when the window that started with its first request expires, 
+ * or as soon as it contains the maximum number of pages.
+ *
+ */
+public class AttributeLoader {
+
+	/**
+	 * The default duration of the window within which the requests are gathered, in milliseconds.
+	 */
+	public static final long DEFAULT_WINDOW = 2;
+
+	/**
+	 * The default maximum number of pages whose attributes are loaded with a single query.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	/**
+	 * The factory that creates the pages of the underlying Neo4j database.
+	 */
+	private PageFactory factory;
+
+	/**
+	 * The duration of the window within which the requests are gathered, in milliseconds.
+	 */
+	private long window;
+
+	/**
+	 * The maximum number of pages whose attributes are loaded with a single query.
+	 */
+	private int batchSize;
+
+	/**
+	 * The batches of requests that are being gathered, indexed by the label of the requested pages.
+	 */
+	private Map<String, Batch> batches;
+
+	/**
+	 * The scheduler that loads the batches when their window expires.
+	 */
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Whether the loader has been stopped, so that the requests are no longer gathered.
+	 */
+	private boolean closed;
+
+	/**
+	 * Creates a new loader.
+	 * @param factory The factory that creates the pages of the underlying Neo4j database.
+	 * @param window The duration of the window within which the requests are gathered, in milliseconds.
+	 * @param batchSize The maximum number of pages whose attributes are loaded with a single query.
+	 * @throws IllegalArgumentException If the window or the batch size are not positive.
+	 */
+	public AttributeLoader(PageFactory factory, long window, int batchSize) {
+		if ( window <= 0 || batchSize <= 0 )
+			throw new IllegalArgumentException("The window and the batch size must be positive");
+		this.factory = factory;
+		this.window = window;
+		this.batchSize = batchSize;
+		this.batches = new HashMap<String, Batch>();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "wikiare-attribute-loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.closed = false;
+	}
+
+	/**
+	 * Returns the duration of the window within which the requests are gathered.
+	 * @return The duration of the window within which the requests are gathered, in milliseconds.
+	 */
+	public long window() {
+		return this.window;
+	}
+
+	/**
+	 * Returns the maximum number of pages whose attributes are loaded with a single query.
+	 * @return The maximum number of pages whose attributes are loaded with a single query.
+	 */
+	public int batchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Stops the loader. The batches that are being gathered are still loaded; the later requests 
+	 * are loaded one at a time, without waiting for other requests.
+	 */
+	public void close() {
+		synchronized (this) {
+			closed = true;
+		}
+		scheduler.shutdown();
+	}
+
+	/**
+	 * Loads some attributes of a page, together with those of the other pages requested within the same window.
+	 * If the loader has been stopped, the attributes are loaded right away.
+	 * The wait is bounded by the deadline of the scope open in the current thread, if any.
+	 * @param page A page.
+	 * @param requested The flags of the requested attributes.
+	 * @return The values of the attributes, indexed by the names of the properties of the node, 
+	 * or {@code null} if the node does not exist.
+	 */
+	MapAccessor load(Page page, int requested) {
+		CompletableFuture<MapAccessor> attributes = new CompletableFuture<MapAccessor>();
+		String key = page.label() + ":" + requested;
+		Batch full = null;
+		synchronized (this) {
+			Batch batch = batches.get(key);
+			if ( batch == null ) {
+				Batch created = new Batch(key, page.label(), requested, requested == page.allAttributes());
+				if ( closed )
+					full = created;
+				else {
+					try {
+						scheduler.schedule(() -> flush(created), window, TimeUnit.MILLISECONDS);
+						batches.put(key, created);
+					} catch (RejectedExecutionException e) {
+						full = created;
+					}
+				}
+				batch = created;
+			}
+			batch.add(page.nodeIdentifier(), attributes);
+			if ( full == null && batch.size() >= batchSize ) {
+				batches.remove(key);
+				full = batch;
+			}
+		}
+		if ( full != null )
+			full.load();
+		return await(attributes);
+	}
+
+	/**
+	 * Loads at once all the attributes of the given pages that are not loaded yet, 
+	 * with one query for each batch of pages, so that the pages returned by a traversal can be read 
+	 * without a query for each page.
+	 * @param pages The pages whose attributes are loaded.
+	 */
+	public void load(Collection<? extends Page> pages) {
+		load(pages, Projection.ALL);
+	}
+
+	/**
+	 * Loads at once the attributes of the given projection of the given pages that are not loaded yet, 
+	 * with one query for each batch of pages, so that the pages returned by a traversal can be read 
+	 * without a query for each page.
+	 * @param pages The pages whose attributes are loaded.
+	 * @param projection The attributes that are loaded.
+	 */
+	public void load(Collection<? extends Page> pages, Projection projection) {
+		AttributeCache cache = factory.attributeCache();
+		Map<String, Batch> pending = new HashMap<String, Batch>();
+		List<Request> requests = new ArrayList<Request>();
+		for ( Page page : pages ) {
+			PageAttributes loaded = page.loadedAttributes();
+			int requested = projection.attributes() & page.allAttributes() & (loaded != null ? ~loaded.loaded : ~0);
+			if ( requested == 0 )
+				continue;
+			Value cached = cache != null ? cache.get(page.nodeIdentifier()) : null;
+			if ( cached != null ) {
+				page.merge(cached, page.allAttributes());
+				continue;
+			}
+			String key = page.label() + ":" + requested;
+			Batch batch = pending.computeIfAbsent(key, 
+					k -> new Batch(k, page.label(), requested, requested == page.allAttributes()));
+			Request request = new Request(page, requested, new CompletableFuture<MapAccessor>());
+			batch.add(page.nodeIdentifier(), request.attributes);
+			requests.add(request);
+			if ( batch.size() >= batchSize ) {
+				pending.remove(key);
+				batch.load();
+			}
+		}
+		for ( Batch batch : pending.values() )
+			batch.load();
+		for ( Request request : requests )
+			request.page.merge(await(request.attributes), request.requested);
+	}
+
+	/**
+	 * Waits for the attributes of a page, until the deadline of the scope open in the current thread, if any.
+	 * @param attributes The result that waits for the attributes of a page.
+	 * @return The values of the attributes of the page.
+	 * @throws QueryAbortedException If the deadline of the scope passes or the scope is cancelled.
+	 */
+	private MapAccessor await(CompletableFuture<MapAccessor> attributes) {
+		QueryScope scope = factory.currentScope();
+		try {
+			if ( scope == null )
+				return attributes.get();
+			scope.check();
+			long remaining = scope.remaining();
+			return remaining == Long.MAX_VALUE ? attributes.get() : attributes.get(remaining, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			scope.check();
+			throw factory.abort(QueryAbortedException.Reason.TIMEOUT, "The query has exceeded its timeout of " 
+					+ scope.limits().timeout() + "ms");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The load of the attributes has been interrupted", e);
+		} catch (ExecutionException e) {
+			if ( e.getCause() instanceof RuntimeException )
+				throw (RuntimeException)e.getCause();
+			throw new IllegalStateException("The load of the attributes has failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Loads a batch whose window has expired, unless it has already been loaded because it was full.
+	 * @param batch A batch of requests.
+	 */
+	private void flush(Batch batch) {
+		synchronized (this) {
+			if ( batches.get(batch.key) != batch )
+				return;
+			batches.remove(batch.key);
+		}
+		batch.load();
+	}
+
+	/**
+	 * The requests for the same attributes of pages with the same label, that are loaded with a single query.
+	 *
+	 */
+	private class Batch {
+
+		/**
+		 * The key of this batch, made of the label and of the flags of the requested attributes.
+		 */
+		private String key;
+
+		/**
+		 * The label of the requested pages.
+		 */
+		private String label;
+
+		/**
+		 * The flags of the requested attributes.
+		 */
+		private int requested;
+
+		/**
+		 * Whether all the attributes of the pages are requested, so that they can be put in the persistent cache.
+		 */
+		private boolean complete;
+
+		/**
+		 * The results that wait for the attributes of the requested pages, indexed by node identifier.
+		 */
+		private Map<Long, List<CompletableFuture<MapAccessor>>> requests;
+
+		/**
+		 * Creates a new batch.
+		 * @param key The key of the batch, made of the label and of the flags of the requested attributes.
+		 * @param label The label of the requested pages.
+		 * @param requested The flags of the requested attributes.
+		 * @param complete Whether all the attributes of the pages are requested.
+		 */
+		Batch(String key, String label, int requested, boolean complete) {
+			this.key = key;
+			this.label = label;
+			this.requested = requested;
+			this.complete = complete;
+			this.requests = new LinkedHashMap<Long, List<CompletableFuture<MapAccessor>>>();
+		}
+
+		/**
+		 * Returns the number of distinct pages requested in this batch.
+		 * @return The number of distinct pages requested in this batch.
+		 */
+		int size() {
+			return requests.size();
+		}
+
+		/**
+		 * Adds a request to this batch.
+		 * @param nodeIdentifier The identifier of the node corresponding to the requested page.
+		 * @param attributes The result that waits for the attributes of the page.
+		 */
+		void add(long nodeIdentifier, CompletableFuture<MapAccessor> attributes) {
+			requests.computeIfAbsent(nodeIdentifier, n -> new ArrayList<CompletableFuture<MapAccessor>>())
+				.add(attributes);
+		}
+
+		/**
+		 * Loads the attributes of all the pages of this batch, and passes them to the waiting requests.
+		 */
+		void load() {
+			try {
+				List<Record> records = factory.query("UNWIND {nodeids} AS nodeid MATCH (n:" + label + ") "
+						+ "WHERE id(n)=nodeid RETURN nodeid, " + PageAttributes.projection("n", requested) + " AS attributes", 
+						Values.parameters("nodeids", new ArrayList<Long>(requests.keySet())));
+				AttributeCache cache = factory.attributeCache();
+				for ( Record record : records ) {
+					long nodeIdentifier = record.get("nodeid").asLong();
+					Value attributes = record.get("attributes");
+					if ( cache != null && complete )
+						cache.put(nodeIdentifier, attributes);
+					for ( CompletableFuture<MapAccessor> request : requests.remove(nodeIdentifier) )
+						request.complete(attributes);
+				}
+				for ( List<CompletableFuture<MapAccessor>> missing : requests.values() )
+					for ( CompletableFuture<MapAccessor> request : missing )
+						request.complete(null);
+			} catch (Throwable e) {
+				for ( List<CompletableFuture<MapAccessor>> failed : requests.values() )
+					for ( CompletableFuture<MapAccessor> request : failed )
+						request.completeExceptionally(e);
+				if ( e instanceof Error )
+					throw (Error)e;
+			}
+		}
+
+	}
+
+	/**
+	 * A request for some attributes of a page.
+	 *
+	 */
+	private static class Request {
+
+		/**
+		 * The requested page.
+		 */
+		private Page page;
+
+		/**
+		 * The flags of the requested attributes.
+		 */
+		private int requested;
+
+		/**
+		 * The result that waits for the attributes of the page.
+		 */
+		private CompletableFuture<MapAccessor> attributes;
+
+		/**
+		 * Creates a new request.
+		 * @param page The requested page.
+		 * @param requested The flags of the requested attributes.
+		 * @param attributes The result that waits for the attributes of the page.
+		 */
+		Request(Page page, int requested, CompletableFuture<MapAccessor> attributes) {
+			this.page = page;
+			this.requested = requested;
+			this.attributes = attributes;
+		}
+
+	}
+
+}
@@ -21,12 +21,15 @@
 //
 package fr.centralesupelec.cs.wikiare.wikipedia;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
-import org.neo4j.driver.v1.Driver;
 import org.neo4j.driver.v1.Record;
-import org.neo4j.driver.v1.Session;
-import org.neo4j.driver.v1.StatementResult;
+
 import org.neo4j.driver.v1.Values;
 
 /**
@@ -36,65 +39,61 @@ import org.neo4j.driver.v1.Values;
 public class Category extends Page {
 	
 	/**
-	 * The number of categories that are children of this category.
+	 * The number of member articles whose attributes are read with a single query when the members 
+	 * of a category are streamed.
 	 */
-	private int children;
-	
-	/**
-	 * The number of articles that this category contains.
-	 */
-	private int size;
+	public static final int MEMBERS_PAGE_SIZE = 1000;
 	
 	/**
 	 * Creates a new category.
-	 * @param driver The driver used to connect to the underlying Neo4j database.
+	 * @param factory The factory that creates the pages of the underlying Neo4j database.
 	 * @param nodeIdentifier The identifier in the underlying Neo4j database of the node
 	 * corresponding to the new category.
 	 */
-	protected Category(Driver driver, long nodeIdentifier) {
-		super(driver, nodeIdentifier);
-		this.children = -1;
-		this.size = -1;
+	protected Category(PageFactory factory, long nodeIdentifier) {
+		super(factory, nodeIdentifier);
+	}
+	
+	@Override
+	String label() {
+		return "Category";
+	}
+	
+	@Override
+	int allAttributes() {
+		return CategoryAttributes.ALL;
+	}
+	
+	@Override
+	CategoryAttributes createAttributes() {
+		return new CategoryAttributes();
 	}
 	
 	/**
-	 * Loads the attributes of this article from the underlying Neo4j database.
+	 * Returns the attributes of this category, making sure that the given attributes are loaded.
+	 * @param requested The flags of the requested attributes.
+	 * @return The attributes of this category.
 	 */
-	private void loadAttributesFromNeo4j() {
-		if (this.loadAttributes()) {
-			Session session = driver().session();
-			StatementResult result = session.run("MATCH (n:Category) WHERE id(n)={node-identifier} return n.title, n.lang, n.wikiid, n.parents, n.children, "
-					+ "n.size", 
-					Values.parameters("node-identifier", this.nodeIdentifier()));
-			for ( Record record : result.list() ) {
-				super.title(record.get("n.title").asString());
-				super.language(record.get("n.lang").asString());
-				super.wikiid(record.get("n.wikiid").asString());
-				super.parents(record.get("n.parents").asInt());
-				this.children = record.get("n.children").asInt();
-				this.size = record.get("n.size").asInt();
-			}
-			session.close();
-			this.loadAttributes(false);
-		}
+	private CategoryAttributes categoryAttributes(int requested) {
+		return (CategoryAttributes)attributes(requested);
 	}
-
 	
 	/**
 	 * Returns the number of categories of which this category is parent.
 	 * @return The number of categories of which this category is parent.
 	 */
 	public int children() {
-		loadAttributesFromNeo4j();
-		return this.children;
+		return categoryAttributes(PageAttributes.CHILDREN).children();
 	}
 	
 	/**
 	 * Sets the number of categories of which this category is parent.
 	 * @param children The number of categories of which this category is parent.
 	 */
-	public void children(int children) {
-		this.children = children;
+	public synchronized void children(int children) {
+		CategoryAttributes attributes = (CategoryAttributes)modifiableAttributes(PageAttributes.CHILDREN);
+		attributes.children = children;
+		attributes(attributes);
 	}
 	
 	/**
@@ -102,16 +101,31 @@ public class Category extends Page {
 	 * @return The number of articles that this category contains.
 	 */
 	public int size() {
-		loadAttributesFromNeo4j();
-		return this.size;
+		return categoryAttributes(PageAttributes.SIZE).size();
 	}
 	
 	/**
 	 * Sets the number of articles that this category contains.
 	 * @param size The number of articles that this category contains.
 	 */
-	public void size(int size) {
-		this.size = size;
+	public synchronized void size(int size) {
+		CategoryAttributes attributes = (CategoryAttributes)modifiableAttributes(PageAttributes.SIZE);
+		attributes.size = size;
+		attributes(attributes);
+	}
+	
+	/**
+	 * Returns the depth of this category in the hierarchy of the categories of its language edition, 
+	 * that is its distance from the root category of the hierarchy.
+	 * The depth is read from the index of the categories of the language edition.
+	 * @return The depth of this category, or {@code -1} if this category is not a descendant of the root.
+	 * @throws IllegalStateException If the categories of the language edition of this category are not indexed.
+	 */
+	public int depth() {
+		CategoryIndex index = factory().categoryIndex(language());
+		if ( index == null )
+			throw new IllegalStateException("The categories of the language edition " + language() + " are not indexed");
+		return index.depth(this);
 	}
 	
 	/**
@@ -119,43 +133,219 @@ public class Category extends Page {
 	 * @return The parent categories of this category.
 	 */
 	public Set<Category> parentCategories() {
-		PageFactory factory = new PageFactory(driver());
+		PageFactory factory = factory();
 		return factory.createCategories("MATCH (n:Category)-[:belongTo]->(m:Category) WHERE id(n)={id-cat}"
 				+ " RETURN m as target-node", Values.parameters("id-cat", nodeIdentifier()), "target-node");
 	}
+
+	/**
+	 * Returns the identifiers of the parent categories of this category, without creating the categories.
+	 * The redirects are replaced with the categories to which they redirect.
+	 * @return The set of the identifiers of the parent categories of this category.
+	 */
+	public PageIdSet<Category> parentCategoryIds() {
+		return factory().categoryIds("MATCH (n:Category)-[:belongTo]->(m:Category) WHERE id(n)={nodeid} " 
+				+ PageFactory.resolveRedirects("m", "target") + "WHERE target IS NOT NULL ", 
+				Values.parameters("nodeid", nodeIdentifier()), "target");
+	}
+	
+	/**
+	 * Returns the number of parent categories of this category.
+	 * The categories are counted in the underlying Neo4j database, without being created.
+	 * @return The number of parent categories of this category.
+	 */
+	public long countParentCategories() {
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Category)-[:belongTo]->(m:Category) WHERE id(n)={nodeid} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", nodeIdentifier()), "count");
+	}
 	
 	/**
 	 * Returns the categories of which this category is the parent.
 	 * @return The categories of which this category is the parent.
 	 */
 	public Set<Category> childrenCategories() {
-		PageFactory factory = new PageFactory(driver());
+		PageFactory factory = factory();
 		return factory.createCategories("MATCH (n:Category)<-[:belongTo]-(m:Category) WHERE id(n)={id-cat}"
 				+ " RETURN m as target-node", Values.parameters("id-cat", nodeIdentifier()), "target-node");
 	}
+
+	/**
+	 * Returns the identifiers of the categories of which this category is the parent, without creating 
+	 * the categories.
+	 * The redirects are replaced with the categories to which they redirect.
+	 * @return The set of the identifiers of the categories of which this category is the parent.
+	 */
+	public PageIdSet<Category> childrenCategoryIds() {
+		return factory().categoryIds("MATCH (n:Category)<-[:belongTo]-(m:Category) WHERE id(n)={nodeid} " 
+				+ PageFactory.resolveRedirects("m", "target") + "WHERE target IS NOT NULL ", 
+				Values.parameters("nodeid", nodeIdentifier()), "target");
+	}
+	
+	/**
+	 * Returns the number of categories of which this category is the parent.
+	 * The categories are counted in the underlying Neo4j database, without being created.
+	 * @return The number of categories of which this category is the parent.
+	 */
+	public long countChildrenCategories() {
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Category)<-[:belongTo]-(m:Category) WHERE id(n)={nodeid} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", nodeIdentifier()), "count");
+	}
+	
+	/**
+	 * Returns the articles that belong to this category, in the order of the identifiers of their nodes.
+	 * The identifiers of all the articles are read with a single query when the iterator is created; 
+	 * the attributes of the articles are then read one page at a time as the iterator advances, 
+	 * each page with a lookup of its articles by identifier.
+	 * The redirects are replaced with the articles to which they redirect, and each article is returned once.
+	 * @return An iterator over the articles that belong to this category.
+	 */
+	public Iterator<Article> members() {
+		return members(factory().projection());
+	}
+	
+	/**
+	 * Returns the articles that belong to this category, in the order of the identifiers of their nodes.
+	 * The identifiers of all the articles are read with a single query when the iterator is created; 
+	 * the attributes of the articles are then read one page at a time as the iterator advances, 
+	 * each page with a lookup of its articles by identifier.
+	 * The redirects are replaced with the articles to which they redirect, and each article is returned once.
+	 * @param projection The attributes of the articles that are loaded with each page.
+	 * @return An iterator over the articles that belong to this category.
+	 */
+	public Iterator<Article> members(Projection projection) {
+		return new MemberIterator(projection);
+	}
+	
+	/**
+	 * Returns a page of the articles that belong to this category, in the order of the identifiers 
+	 * of their nodes.
+	 * A page starts right after the last article of the previous page.
+	 * Since the redirects must be resolved and the articles deduplicated and sorted before a page can be 
+	 * selected, each page matches all the members of this category: iterating over all the members 
+	 * page by page costs a time quadratic in their number. Use {@link #members(Projection)} instead, 
+	 * which reads the members once.
+	 * The redirects are replaced with the articles to which they redirect.
+	 * @param after The last article of the previous page, or {@code null} to read the first page.
+	 * @param limit The maximum number of articles in the page.
+	 * @param projection The attributes of the articles that are loaded with the page.
+	 * @return The articles of the page; the page is shorter than the limit only if it is the last one.
+	 * @throws IllegalArgumentException If the limit is not positive.
+	 */
+	public List<Article> members(Article after, int limit, Projection projection) {
+		if ( limit <= 0 )
+			throw new IllegalArgumentException("The number of articles in a page must be positive: " + limit);
+		List<Article> members = new ArrayList<Article>();
+		for ( Record record : factory().query("MATCH (n:Category)<-[:belongTo]-(m:Article) WHERE id(n)={nodeid} "
+				+ PageFactory.resolveRedirects("m", "target") + "WITH DISTINCT target "
+				+ "WHERE target IS NOT NULL AND id(target) > {after} "
+				+ "RETURN id(target) AS nodeid, target:Disambiguation AS disambiguation, " 
+				+ PageAttributes.projection("target", projection.attributes() & ArticleAttributes.ALL) + " AS attributes "
+				+ "ORDER BY nodeid LIMIT {limit}", 
+				Values.parameters("nodeid", nodeIdentifier(), "after", after == null ? -1 : after.nodeIdentifier(), 
+						"limit", limit)) )
+			members.add(factory().createArticle(record, projection));
+		return members;
+	}
+
+	/**
+	 * Returns the identifiers of all the articles that belong to this category, without creating the articles.
+	 * The redirects are replaced with the articles to which they redirect.
+	 * @return The set of the identifiers of the articles that belong to this category.
+	 */
+	public PageIdSet<Article> memberIds() {
+		return factory().articleIds("MATCH (n:Category)<-[:belongTo]-(m:Article) WHERE id(n)={nodeid} " 
+				+ PageFactory.resolveRedirects("m", "target") + "WHERE target IS NOT NULL ", 
+				Values.parameters("nodeid", nodeIdentifier()), "target");
+	}
+	
+	/**
+	 * Returns the number of distinct articles that belong to this category or to any of its descendant 
+	 * categories, up to the given depth.
+	 * The descendant categories are reached level by level, each level with a single query that expands 
+	 * the categories reached at the previous level, so that each category is expanded once whatever 
+	 * the number of paths that lead to it.
+	 * The articles are then counted in the underlying Neo4j database, without being created; the redirects 
+	 * are replaced with the articles to which they redirect.
+	 * @param maxDepth The maximum depth of the descendant categories, {@code 0} to count only the articles 
+	 * of this category.
+	 * @return The number of distinct articles in the subtree of this category.
+	 * @throws IllegalArgumentException If the depth is negative.
+	 */
+	public long transitiveMemberCount(int maxDepth) {
+		if ( maxDepth < 0 )
+			throw new IllegalArgumentException("The depth of the descendant categories must not be negative: " + maxDepth);
+		PageFactory factory = factory();
+		Set<Long> reached = new HashSet<Long>();
+		reached.add(nodeIdentifier());
+		List<Long> frontier = new ArrayList<Long>(reached);
+		for ( int depth = 1; depth <= maxDepth && !frontier.isEmpty(); depth += 1 ) {
+			List<Long> nextFrontier = new ArrayList<Long>();
+			for ( Record record : factory.query("UNWIND {nodeids} AS nodeid "
+					+ "MATCH (n:Category)<-[:belongTo]-(c:Category) WHERE id(n)=nodeid RETURN DISTINCT id(c) AS nodeid", 
+					Values.parameters("nodeids", frontier)) ) {
+				long category = record.get("nodeid").asLong();
+				if ( reached.add(category) )
+					nextFrontier.add(category);
+			}
+			frontier = nextFrontier;
+		}
+		return factory.countPages("UNWIND {nodeids} AS nodeid MATCH (c:Category)<-[:belongTo]-(m:Article) "
+				+ "WHERE id(c)=nodeid " + PageFactory.resolveRedirects("m", "target") 
+				+ "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeids", new ArrayList<Long>(reached)), "count");
+	}
 	
 	/**
 	 * Returns the categories that have a cross-link to this category.
 	 * @return The categories that have a cross-link to this category.
 	 */
 	public Set<Category> getCrossLinkedCategories() {
-		PageFactory factory = new PageFactory(driver());
+		PageFactory factory = factory();
 		return factory.createCategories("MATCH (n:Category)-[:crosslink]->(m:Category) WHERE id(n)={id-cat}"
 				+ " RETURN m as target-node", Values.parameters("id-cat", nodeIdentifier()), "target-node");
 	}
 	
+	/**
+	 * Returns the number of categories that have a cross-link to this category.
+	 * The categories are counted in the underlying Neo4j database, without being created.
+	 * @return The number of categories that have a cross-link to this category.
+	 */
+	public long countCrossLinkedCategories() {
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Category)-[:crosslink]->(m:Category) WHERE id(n)={nodeid} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", nodeIdentifier()), "count");
+	}
+	
 	/**
 	 * Returns the categories in the specified language that have a cross-link to this category
 	 * @param language The code of the language of the target categories. 
 	 * @return The categories in the specified language that have a cross-link to this category
 	 */
 	public Set<Category> getCrossLinkedCategories(String language) {
-		PageFactory factory = new PageFactory(driver());
+		PageFactory factory = factory();
 		return factory.createCategories("MATCH (n:Category)-[:crosslink]->(m:Category) WHERE id(n)={id-cat} "
 				+ "AND m.lang={lang} "
 				+ " RETURN m as target-node", Values.parameters("id-cat", nodeIdentifier(), "lang", language), "target-node");
 	}
 	
+	/**
+	 * Returns the number of categories in the specified language that have a cross-link to this category.
+	 * The categories are counted in the underlying Neo4j database, without being created.
+	 * @param language The code of the language of the target categories.
+	 * @return The number of categories in the specified language that have a cross-link to this category.
+	 */
+	public long countCrossLinkedCategories(String language) {
+		PageFactory factory = factory();
+		return factory.countPages("MATCH (n:Category)-[:crosslink]->(m:Category) WHERE id(n)={nodeid} AND m.lang={lang} "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", nodeIdentifier(), "lang", language), "count");
+	}
+	
 	/**
 	 * Returns the categories in the specified languages that have a cross-link to this category.
 	 * @param languages The languages of the target categories.
@@ -166,4 +356,87 @@ public class Category extends Page {
 		return null;
 	}
 
+	/**
+	 * Returns the articles with the given node identifiers, with the attributes of the given projection.
+	 * @param nodeIdentifiers The identifiers of the nodes of articles that are not redirects.
+	 * @param projection The attributes of the articles that are loaded.
+	 * @return The articles, in the order of the identifiers of their nodes.
+	 */
+	private List<Article> members(long[] nodeIdentifiers, Projection projection) {
+		List<Article> members = new ArrayList<Article>();
+		for ( Record record : factory().query("MATCH (target:Article) WHERE id(target) IN {nodeids} "
+				+ "RETURN id(target) AS nodeid, target:Disambiguation AS disambiguation, " 
+				+ PageAttributes.projection("target", projection.attributes() & ArticleAttributes.ALL) + " AS attributes "
+				+ "ORDER BY nodeid", Values.parameters("nodeids", nodeIdentifiers)) )
+			members.add(factory().createArticle(record, projection));
+		return members;
+	}
+
+	/**
+	 * An iterator over the articles that belong to this category, that reads their identifiers once 
+	 * and their attributes one page at a time.
+	 *
+	 */
+	private class MemberIterator implements Iterator<Article> {
+		
+		/**
+		 * The attributes of the articles that are loaded with each page.
+		 */
+		private Projection projection;
+		
+		/**
+		 * The keys of the articles, in increasing order of the identifiers of their nodes.
+		 */
+		private long[] keys;
+		
+		/**
+		 * The position in {@link #keys} of the first article of the next page.
+		 */
+		private int next;
+		
+		/**
+		 * The articles of the current page.
+		 */
+		private List<Article> page;
+		
+		/**
+		 * The position of the next article in the current page.
+		 */
+		private int position;
+		
+		/**
+		 * Creates a new iterator.
+		 * @param projection The attributes of the articles that are loaded with each page.
+		 */
+		MemberIterator(Projection projection) {
+			this.projection = projection;
+			this.keys = memberIds().keys();
+			this.next = 0;
+			this.page = new ArrayList<Article>();
+			this.position = 0;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			while ( position == page.size() && next < keys.length ) {
+				long[] nodeIdentifiers = new long[Math.min(MEMBERS_PAGE_SIZE, keys.length - next)];
+				for ( int i = 0; i < nodeIdentifiers.length; i += 1 )
+					nodeIdentifiers[i] = keys[next + i] >>> 1;
+				next += nodeIdentifiers.length;
+				page = members(nodeIdentifiers, projection);
+				position = 0;
+			}
+			return position < page.size();
+		}
+		
+		@Override
+		public Article next() {
+			if ( !hasNext() )
+				throw new NoSuchElementException();
+			position += 1;
+			return page.get(position - 1);
+		}
+		
+	}
+
 }
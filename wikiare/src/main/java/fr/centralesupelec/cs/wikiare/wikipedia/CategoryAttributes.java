@@ -0,0 +1,98 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import org.neo4j.driver.v1.types.MapAccessor;
+
+/**
+ * The attributes of a category, once they are loaded from the underlying Neo4j database.
+ *
+ */
+class CategoryAttributes extends PageAttributes {
+
+	/**
+	 * The flags of all the attributes of a category.
+	 */
+	static final int ALL = TITLE | LANGUAGE | WIKIID | PARENTS | CHILDREN | SIZE;
+
+	/**
+	 * The number of categories that are children of the category.
+	 */
+	int children;
+
+	/**
+	 * The number of articles that the category contains.
+	 */
+	int size;
+
+	/**
+	 * Creates the attributes of a category, none of which is loaded.
+	 */
+	CategoryAttributes() {
+		super();
+		this.children = -1;
+		this.size = -1;
+	}
+
+	/**
+	 * Creates a copy of the given attributes.
+	 * @param attributes The attributes of a category.
+	 */
+	CategoryAttributes(CategoryAttributes attributes) {
+		super(attributes);
+		this.children = attributes.children();
+		this.size = attributes.size();
+	}
+
+	/**
+	 * Returns the number of categories that are children of the category.
+	 * @return The number of categories that are children of the category.
+	 */
+	int children() {
+		return this.children;
+	}
+
+	/**
+	 * Returns the number of articles that the category contains.
+	 * @return The number of articles that the category contains.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	@Override
+	void assign(MapAccessor values, int attributes) {
+		if ( values != null ) {
+			if ( (attributes & CHILDREN) != 0 )
+				this.children = values.get("children").isNull() ? -1 : values.get("children").asInt();
+			if ( (attributes & SIZE) != 0 )
+				this.size = values.get("size").isNull() ? -1 : values.get("size").asInt();
+		}
+		super.assign(values, attributes);
+	}
+
+	@Override
+	CategoryAttributes copy() {
+		return new CategoryAttributes(this);
+	}
+
+}
@@ -0,0 +1,497 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.Values;
+
+/**
+ * The hierarchy of the categories of a Wikipedia language edition, indexed in memory from a root category.
+ * The depth of each category is its distance from the root along the edges from the parent categories 
+ * to their children; the cycles of the Wikipedia category graph are broken by keeping, as the parents 
+ * of a category, only the parents that are one level above it.
+ * The resulting hierarchy is acyclic, so that the common ancestors of two categories, and the similarity 
+ * of two categories or articles based on their depths, are computed in memory, without querying 
+ * the underlying Neo4j database.
+ *
+ */
+public class CategoryIndex {
+
+	/**
+	 * The factory that creates the categories.
+	 */
+	private PageFactory factory;
+
+	/**
+	 * The language of the Wikipedia edition of the categories.
+	 */
+	private String language;
+
+	/**
+	 * The index of the root category.
+	 */
+	private int root;
+
+	/**
+	 * The identifiers of the nodes of the categories, in increasing order.
+	 */
+	private long[] nodeIds;
+
+	/**
+	 * The depths of the categories, {@code -1} for the categories that are not descendants of the root.
+	 */
+	private int[] depths;
+
+	/**
+	 * The offsets of the parents of the categories in {@link #parents}; the parents of the category {@code i} 
+	 * end where the parents of the category {@code i+1} start.
+	 */
+	private int[] parentOffsets;
+
+	/**
+	 * The indexes of the parents of the categories, that are one level above them.
+	 */
+	private int[] parents;
+
+	/**
+	 * Creates a new index.
+	 * @param factory The factory that creates the categories.
+	 * @param language The language of the Wikipedia edition of the categories.
+	 * @param root The index of the root category.
+	 * @param nodeIds The identifiers of the nodes of the categories, in increasing order.
+	 * @param depths The depths of the categories.
+	 * @param parentOffsets The offsets of the parents of the categories.
+	 * @param parents The indexes of the parents of the categories.
+	 */
+	private CategoryIndex(PageFactory factory, String language, int root, long[] nodeIds, int[] depths, 
+			int[] parentOffsets, int[] parents) {
+		this.factory = factory;
+		this.language = language;
+		this.root = root;
+		this.nodeIds = nodeIds;
+		this.depths = depths;
+		this.parentOffsets = parentOffsets;
+		this.parents = parents;
+	}
+
+	/**
+	 * Builds the index of the categories of a Wikipedia language edition, by scanning all 
+	 * the categories in parallel.
+	 * The redirects are replaced with the categories to which they redirect.
+	 * @param factory The factory that creates the categories.
+	 * @param language The language of the Wikipedia edition.
+	 * @param rootTitle The title of the root category.
+	 * @param parallelism The number of partitions that are scanned at the same time.
+	 * @return The index of the categories of the language edition.
+	 * @throws IllegalArgumentException If there is no category with the given title.
+	 */
+	public static CategoryIndex build(PageFactory factory, String language, String rootTitle, int parallelism) {
+		Map<Long, long[]> categoryParents = new HashMap<Long, long[]>();
+		List<Long> roots = new ArrayList<Long>();
+		PageScan.records(factory, "Category", language, "WITH n WHERE NOT n:Redirect "
+				+ "OPTIONAL MATCH (n)-[:belongTo]->(m:Category) " + PageFactory.resolveRedirects("m", "target", "n")
+				+ "RETURN id(n) AS nodeid, n.title AS title, collect(DISTINCT id(target)) AS parents")
+			.run(parallelism, record -> {
+				List<Object> parentIds = record.get("parents").asList();
+				long[] parentNodeIds = new long[parentIds.size()];
+				for ( int i = 0; i < parentNodeIds.length; i += 1 )
+					parentNodeIds[i] = ((Number)parentIds.get(i)).longValue();
+				synchronized (categoryParents) {
+					categoryParents.put(record.get("nodeid").asLong(), parentNodeIds);
+					if ( !record.get("title").isNull() && rootTitle.equals(record.get("title").asString()) )
+						roots.add(record.get("nodeid").asLong());
+				}
+			});
+		if ( roots.isEmpty() )
+			throw new IllegalArgumentException("No category " + rootTitle + " in the language edition " + language);
+		int size = categoryParents.size();
+		long[] nodeIds = new long[size];
+		int index = 0;
+		for ( long nodeId : categoryParents.keySet() )
+			nodeIds[index++] = nodeId;
+		Arrays.sort(nodeIds);
+		int[] childOffsets = new int[size + 1];
+		List<int[]> edges = new ArrayList<int[]>();
+		for ( int child = 0; child < size; child += 1 )
+			for ( long parentNodeId : categoryParents.get(nodeIds[child]) ) {
+				int parent = Arrays.binarySearch(nodeIds, parentNodeId);
+				if ( parent >= 0 && parent != child ) {
+					edges.add(new int[] { parent, child });
+					childOffsets[parent + 1] += 1;
+				}
+			}
+		for ( int i = 0; i < size; i += 1 )
+			childOffsets[i + 1] += childOffsets[i];
+		int[] children = new int[edges.size()];
+		int[] next = Arrays.copyOf(childOffsets, size);
+		for ( int[] edge : edges )
+			children[next[edge[0]]++] = edge[1];
+		int root = Arrays.binarySearch(nodeIds, roots.get(0));
+		int[] depths = new int[size];
+		Arrays.fill(depths, -1);
+		depths[root] = 0;
+		int[] queue = new int[size];
+		int head = 0, tail = 0;
+		queue[tail++] = root;
+		while ( head < tail ) {
+			int category = queue[head++];
+			for ( int i = childOffsets[category]; i < childOffsets[category + 1]; i += 1 )
+				if ( depths[children[i]] < 0 ) {
+					depths[children[i]] = depths[category] + 1;
+					queue[tail++] = children[i];
+				}
+		}
+		int[] parentOffsets = new int[size + 1];
+		for ( int[] edge : edges )
+			if ( depths[edge[0]] >= 0 && depths[edge[1]] == depths[edge[0]] + 1 )
+				parentOffsets[edge[1] + 1] += 1;
+		for ( int i = 0; i < size; i += 1 )
+			parentOffsets[i + 1] += parentOffsets[i];
+		int[] parents = new int[parentOffsets[size]];
+		next = Arrays.copyOf(parentOffsets, size);
+		for ( int[] edge : edges )
+			if ( depths[edge[0]] >= 0 && depths[edge[1]] == depths[edge[0]] + 1 )
+				parents[next[edge[1]]++] = edge[0];
+		return new CategoryIndex(factory, language, root, nodeIds, depths, parentOffsets, parents);
+	}
+
+	/**
+	 * Returns the language of the Wikipedia edition of the categories of this index.
+	 * @return The language of the Wikipedia edition of the categories of this index.
+	 */
+	public String language() {
+		return this.language;
+	}
+
+	/**
+	 * Returns the number of categories of this index.
+	 * @return The number of categories of this index.
+	 */
+	public int size() {
+		return nodeIds.length;
+	}
+
+	/**
+	 * Returns the root category of this index.
+	 * @return The root category of this index.
+	 */
+	public Category root() {
+		return new Category(factory, nodeIds[root]);
+	}
+
+	/**
+	 * Returns the depth of the given category, that is its distance from the root.
+	 * A redirect is replaced with the category to which it redirects.
+	 * @param category A category of this index.
+	 * @return The depth of the category, or {@code -1} if the category is not a descendant of the root.
+	 * @throws IllegalArgumentException If the category is not in this index.
+	 */
+	public int depth(Category category) {
+		return depths[indexOf(category)];
+	}
+
+	/**
+	 * Returns the lowest common ancestors of two categories, that are the deepest categories 
+	 * that are ancestors of both; a category is an ancestor of itself.
+	 * @param a A category of this index.
+	 * @param b A category of this index.
+	 * @return The lowest common ancestors of the categories, or an empty set if the categories are not 
+	 * descendants of the root.
+	 * @throws IllegalArgumentException If a category is not in this index.
+	 */
+	public Set<Category> lca(Category a, Category b) {
+		return categories(lowestCommonAncestors(new int[] { indexOf(a) }, new int[] { indexOf(b) }));
+	}
+
+	/**
+	 * Returns the lowest common ancestors of the categories of two articles, that are the deepest categories 
+	 * that are ancestors of a category of each article.
+	 * The categories of the articles are read from the underlying Neo4j database.
+	 * @param a An article of the language edition of this index.
+	 * @param b An article of the language edition of this index.
+	 * @return The lowest common ancestors of the categories of the articles, or an empty set if they have none.
+	 */
+	public Set<Category> lca(Article a, Article b) {
+		return categories(lowestCommonAncestors(categoriesOf(a), categoriesOf(b)));
+	}
+
+	/**
+	 * Returns the similarity of two categories, that is twice the depth of their lowest common ancestors 
+	 * over the sum of their depths, where the root is at depth {@code 1}.
+	 * @param a A category of this index.
+	 * @param b A category of this index.
+	 * @return The similarity of the categories, between {@code 0} and {@code 1}.
+	 * @throws IllegalArgumentException If a category is not in this index.
+	 */
+	public double similarity(Category a, Category b) {
+		return similarity(new int[] { indexOf(a) }, new int[] { indexOf(b) }, 0);
+	}
+
+	/**
+	 * Returns the similarity of two articles, that is twice the depth of the lowest common ancestors 
+	 * of their categories over the sum of their depths, where the root is at depth {@code 1} and 
+	 * an article is one level below its shallowest category.
+	 * The categories of the articles are read from the underlying Neo4j database.
+	 * @param a An article of the language edition of this index.
+	 * @param b An article of the language edition of this index.
+	 * @return The similarity of the articles, between {@code 0} and {@code 1}.
+	 */
+	public double similarity(Article a, Article b) {
+		return similarity(categoriesOf(a), categoriesOf(b), 1);
+	}
+
+	/**
+	 * Returns the similarity of two sets of categories, based on the depth of their lowest common ancestors.
+	 * @param a The indexes of the first categories.
+	 * @param b The indexes of the second categories.
+	 * @param below The number of levels of the compared pages below their shallowest categories.
+	 * @return The similarity of the sets of categories.
+	 */
+	private double similarity(int[] a, int[] b, int below) {
+		int[] ancestors = lowestCommonAncestors(a, b);
+		if ( ancestors.length == 0 )
+			return 0;
+		return 2.0 * (depths[ancestors[0]] + 1) / (minDepth(a) + minDepth(b) + 2 + 2 * below);
+	}
+
+	/**
+	 * Returns the smallest depth of the given categories that are descendants of the root.
+	 * @param categories The indexes of some categories.
+	 * @return The smallest depth of the categories.
+	 */
+	private int minDepth(int[] categories) {
+		int depth = Integer.MAX_VALUE;
+		for ( int category : categories )
+			if ( depths[category] >= 0 )
+				depth = Math.min(depth, depths[category]);
+		return depth;
+	}
+
+	/**
+	 * Returns the deepest categories that are ancestors of a category of each of the given sets.
+	 * Since the parents of a category are one level above it, the ancestors of both sets are walked 
+	 * upwards one level at a time, starting from the deepest level that both sets reach, and the walk 
+	 * stops at the first level where they meet, without visiting the levels above.
+	 * @param a The indexes of the first categories.
+	 * @param b The indexes of the second categories.
+	 * @return The indexes of the lowest common ancestors.
+	 */
+	private int[] lowestCommonAncestors(int[] a, int[] b) {
+		int depth = Math.min(maxDepth(a), maxDepth(b));
+		if ( depth < 0 )
+			return new int[0];
+		int[] levelOfA = ancestorsAt(a, depth);
+		int[] levelOfB = ancestorsAt(b, depth);
+		while ( true ) {
+			int[] common = intersection(levelOfA, levelOfB);
+			if ( common.length > 0 || depth == 0 )
+				return common;
+			depth -= 1;
+			levelOfA = union(parentsOf(levelOfA), at(a, depth));
+			levelOfB = union(parentsOf(levelOfB), at(b, depth));
+		}
+	}
+
+	/**
+	 * Returns the ancestors of the given categories, including the categories themselves, at the given depth.
+	 * @param categories The indexes of some categories.
+	 * @param depth A depth.
+	 * @return The indexes of the ancestors at the depth, in increasing order.
+	 */
+	private int[] ancestorsAt(int[] categories, int depth) {
+		int level = maxDepth(categories);
+		int[] ancestors = at(categories, level);
+		while ( level > depth ) {
+			level -= 1;
+			ancestors = union(parentsOf(ancestors), at(categories, level));
+		}
+		return ancestors;
+	}
+
+	/**
+	 * Returns the largest depth of the given categories.
+	 * @param categories The indexes of some categories.
+	 * @return The largest depth of the categories, or {@code -1} if none is a descendant of the root.
+	 */
+	private int maxDepth(int[] categories) {
+		int depth = -1;
+		for ( int category : categories )
+			depth = Math.max(depth, depths[category]);
+		return depth;
+	}
+
+	/**
+	 * Returns the given categories that are at the given depth.
+	 * @param categories The indexes of some categories.
+	 * @param depth A depth.
+	 * @return The indexes of the categories at the depth, in increasing order and without duplicates.
+	 */
+	private int[] at(int[] categories, int depth) {
+		int[] level = new int[categories.length];
+		int count = 0;
+		for ( int category : categories )
+			if ( depths[category] == depth )
+				level[count++] = category;
+		return distinct(level, count);
+	}
+
+	/**
+	 * Returns the parents of the given categories, that are one level above them.
+	 * @param categories The indexes of some categories at the same depth.
+	 * @return The indexes of the parents, in increasing order and without duplicates.
+	 */
+	private int[] parentsOf(int[] categories) {
+		int count = 0;
+		for ( int category : categories )
+			count += parentOffsets[category + 1] - parentOffsets[category];
+		int[] level = new int[count];
+		count = 0;
+		for ( int category : categories )
+			for ( int i = parentOffsets[category]; i < parentOffsets[category + 1]; i += 1 )
+				level[count++] = parents[i];
+		return distinct(level, count);
+	}
+
+	/**
+	 * Sorts the first elements of an array and removes their duplicates.
+	 * @param values An array.
+	 * @param count The number of elements of the array that are kept.
+	 * @return The distinct elements, in increasing order.
+	 */
+	private static int[] distinct(int[] values, int count) {
+		Arrays.sort(values, 0, count);
+		int size = 0;
+		for ( int i = 0; i < count; i += 1 )
+			if ( size == 0 || values[size - 1] != values[i] )
+				values[size++] = values[i];
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * Returns the union of two sorted sets of categories.
+	 * @param a The indexes of some categories, in increasing order.
+	 * @param b The indexes of some categories, in increasing order.
+	 * @return The indexes of the categories of either set, in increasing order.
+	 */
+	private static int[] union(int[] a, int[] b) {
+		if ( b.length == 0 )
+			return a;
+		int[] union = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, union, a.length, b.length);
+		return distinct(union, union.length);
+	}
+
+	/**
+	 * Returns the intersection of two sorted sets of categories.
+	 * @param a The indexes of some categories, in increasing order.
+	 * @param b The indexes of some categories, in increasing order.
+	 * @return The indexes of the categories of both sets, in increasing order.
+	 */
+	private static int[] intersection(int[] a, int[] b) {
+		int[] intersection = new int[Math.min(a.length, b.length)];
+		int count = 0;
+		for ( int i = 0, j = 0; i < a.length && j < b.length; ) {
+			if ( a[i] < b[j] )
+				i += 1;
+			else if ( a[i] > b[j] )
+				j += 1;
+			else {
+				intersection[count++] = a[i];
+				i += 1;
+				j += 1;
+			}
+		}
+		return Arrays.copyOf(intersection, count);
+	}
+
+	/**
+	 * Returns the indexes of the categories of the given article that are in this index.
+	 * @param article An article.
+	 * @return The indexes of the categories of the article.
+	 */
+	private int[] categoriesOf(Article article) {
+		List<Record> records = factory.query("MATCH (n:Article)-[:belongTo]->(m:Category) WHERE id(n)={nodeid} " 
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN DISTINCT id(target) AS nodeid", 
+				Values.parameters("nodeid", article.nodeIdentifier()));
+		int[] categories = new int[records.size()];
+		int count = 0;
+		for ( Record record : records ) {
+			Value nodeId = record.get("nodeid");
+			int index = nodeId.isNull() ? -1 : Arrays.binarySearch(nodeIds, nodeId.asLong());
+			if ( index >= 0 )
+				categories[count++] = index;
+		}
+		return Arrays.copyOf(categories, count);
+	}
+
+	/**
+	 * Returns the categories with the given indexes.
+	 * @param indexes The indexes of some categories.
+	 * @return The categories.
+	 */
+	private Set<Category> categories(int[] indexes) {
+		Set<Category> categories = new HashSet<Category>();
+		for ( int index : indexes )
+			categories.add(new Category(factory, nodeIds[index]));
+		return categories;
+	}
+
+	/**
+	 * Returns the index of the given category; a redirect is replaced with the category to which it redirects.
+	 * @param category A category.
+	 * @return The index of the category.
+	 * @throws IllegalArgumentException If the category is not in this index.
+	 */
+	private int indexOf(Category category) {
+		if ( category.isRedirect() ) {
+			Category target = ((RedirectCategory)category).redirectsTo();
+			if ( target == null )
+				throw new IllegalArgumentException("The redirect category does not lead to a category of the index of " 
+						+ "the language edition " + language);
+			category = target;
+		}
+		return indexOf(category.nodeIdentifier());
+	}
+
+	/**
+	 * Returns the index of the category corresponding to the given node.
+	 * @param nodeIdentifier The identifier of the node of a category.
+	 * @return The index of the category.
+	 * @throws IllegalArgumentException If the category is not in this index.
+	 */
+	private int indexOf(long nodeIdentifier) {
+		int index = Arrays.binarySearch(nodeIds, nodeIdentifier);
+		if ( index < 0 )
+			throw new IllegalArgumentException("The category is not in the index of the language edition " + language);
+		return index;
+	}
+
+}
@@ -0,0 +1,400 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiFunction;
+
+import org.neo4j.driver.v1.Record;
+
+/**
+ * The concepts described by the pages of some Wikipedia language editions, where a concept is a set of pages 
+ * connected by cross-links, usually the editions of the same page in several languages.
+ * The concepts are computed in memory, with a parallel union-find over the cross-links, and stored in arrays 
+ * of primitive values, so that the editions of a page are found without querying the underlying Neo4j database.
+ *
+ * @param <P> The kind of the pages of the concepts.
+ */
+public class ConceptTable<P extends Page> {
+
+	/**
+	 * The flag of the disambiguation articles.
+	 */
+	private static final byte DISAMBIGUATION = 1;
+
+	/**
+	 * The function that creates a page from the identifier of its node and whether it is a disambiguation article.
+	 */
+	private BiFunction<Long, Boolean, P> creator;
+
+	/**
+	 * The identifiers of the nodes of the pages, in increasing order.
+	 */
+	private long[] nodeIds;
+
+	/**
+	 * The codes of the languages of the pages.
+	 */
+	private byte[] languages;
+
+	/**
+	 * The languages, indexed by their codes.
+	 */
+	private String[] languageNames;
+
+	/**
+	 * The flags of the pages.
+	 */
+	private byte[] flags;
+
+	/**
+	 * The concepts of the pages.
+	 */
+	private int[] concepts;
+
+	/**
+	 * The offsets of the pages of the concepts in {@link #members}; the pages of the concept {@code i} 
+	 * end where the pages of the concept {@code i+1} start.
+	 */
+	private int[] memberOffsets;
+
+	/**
+	 * The indexes of the pages of the concepts, grouped by concept, in increasing order within each concept.
+	 */
+	private int[] members;
+
+	/**
+	 * Creates a new table, by grouping the pages into concepts.
+	 * @param creator The function that creates a page from the identifier of its node and whether it 
+	 * is a disambiguation article.
+	 * @param builder The pages and cross-links that have been read.
+	 * @param languageNames The languages, indexed by their codes.
+	 * @param parallelism The number of threads that group the pages.
+	 */
+	private ConceptTable(BiFunction<Long, Boolean, P> creator, Builder builder, String[] languageNames, 
+			int parallelism) {
+		this.creator = creator;
+		this.languageNames = languageNames;
+		int size = builder.size;
+		this.nodeIds = Arrays.copyOf(builder.nodeIds, size);
+		Arrays.sort(nodeIds);
+		this.languages = new byte[size];
+		this.flags = new byte[size];
+		for ( int i = 0; i < size; i += 1 ) {
+			int index = Arrays.binarySearch(nodeIds, builder.nodeIds[i]);
+			languages[index] = builder.languages[i];
+			flags[index] = builder.flags[i];
+		}
+		AtomicIntegerArray parents = new AtomicIntegerArray(size);
+		for ( int i = 0; i < size; i += 1 )
+			parents.set(i, i);
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		int chunk = (builder.links + parallelism - 1) / parallelism;
+		for ( int start = 0; start < builder.links; start += chunk ) {
+			int from = start, to = Math.min(start + chunk, builder.links);
+			futures.add(executor.submit(() -> {
+				for ( int link = from; link < to; link += 1 ) {
+					int source = Arrays.binarySearch(nodeIds, builder.sources[link]);
+					int target = Arrays.binarySearch(nodeIds, builder.targets[link]);
+					if ( source >= 0 && target >= 0 )
+						union(parents, source, target);
+				}
+			}));
+		}
+		executor.shutdown();
+		try {
+			for ( Future<?> future : futures )
+				future.get();
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The grouping of the pages has been interrupted", e);
+		} catch (ExecutionException e) {
+			executor.shutdownNow();
+			if ( e.getCause() instanceof RuntimeException )
+				throw (RuntimeException)e.getCause();
+			throw new IllegalStateException("The grouping of the pages has failed", e.getCause());
+		}
+		// the representative of a set is its page with the smallest index, whose concept is numbered first.
+		this.concepts = new int[size];
+		int conceptCount = 0;
+		for ( int i = 0; i < size; i += 1 )
+			concepts[i] = find(parents, i) == i ? conceptCount++ : concepts[find(parents, i)];
+		this.memberOffsets = new int[conceptCount + 1];
+		for ( int i = 0; i < size; i += 1 )
+			memberOffsets[concepts[i] + 1] += 1;
+		for ( int concept = 0; concept < conceptCount; concept += 1 )
+			memberOffsets[concept + 1] += memberOffsets[concept];
+		this.members = new int[size];
+		int[] next = Arrays.copyOf(memberOffsets, conceptCount);
+		for ( int i = 0; i < size; i += 1 )
+			members[next[concepts[i]]++] = i;
+	}
+
+	/**
+	 * Builds the table of the concepts described by the articles of the given language editions.
+	 * The cross-links to redirects are replaced with cross-links to the articles to which they redirect.
+	 * @param factory The factory that creates the articles.
+	 * @param parallelism The number of threads that read and group the articles.
+	 * @param languages The languages of the Wikipedia editions.
+	 * @return The table of the concepts described by the articles.
+	 * @throws IllegalArgumentException If there are more than 256 languages.
+	 */
+	public static ConceptTable<Article> articles(PageFactory factory, int parallelism, String... languages) {
+		return new ConceptTable<Article>((nodeId, disambiguation) -> factory.createArticleById(nodeId, disambiguation), 
+				scan(factory, "Article", parallelism, languages), languages, parallelism);
+	}
+
+	/**
+	 * Builds the table of the concepts described by the categories of the given language editions.
+	 * The cross-links to redirects are replaced with cross-links to the categories to which they redirect.
+	 * @param factory The factory that creates the categories.
+	 * @param parallelism The number of threads that read and group the categories.
+	 * @param languages The languages of the Wikipedia editions.
+	 * @return The table of the concepts described by the categories.
+	 * @throws IllegalArgumentException If there are more than 256 languages.
+	 */
+	public static ConceptTable<Category> categories(PageFactory factory, int parallelism, String... languages) {
+		return new ConceptTable<Category>((nodeId, disambiguation) -> new Category(factory, nodeId), 
+				scan(factory, "Category", parallelism, languages), languages, parallelism);
+	}
+
+	/**
+	 * Reads the pages of the given language editions, with their cross-links.
+	 * @param factory The factory that creates the pages.
+	 * @param label The label of the nodes of the pages.
+	 * @param parallelism The number of partitions that are scanned at the same time.
+	 * @param languages The languages of the Wikipedia editions.
+	 * @return The pages and cross-links that have been read.
+	 */
+	private static Builder scan(PageFactory factory, String label, int parallelism, String[] languages) {
+		if ( languages.length > 256 )
+			throw new IllegalArgumentException("Too many languages: " + languages.length);
+		Builder builder = new Builder();
+		for ( int code = 0; code < languages.length; code += 1 ) {
+			byte language = (byte)code;
+			PageScan.records(factory, label, languages[code], "WITH n WHERE NOT n:Redirect "
+					+ "OPTIONAL MATCH (n)-[:crosslink]->(m:" + label + ") " + PageFactory.resolveRedirects("m", "target", "n")
+					+ "RETURN id(n) AS nodeid, n:Disambiguation AS disambiguation, collect(DISTINCT id(target)) AS crosslinks")
+				.run(parallelism, record -> builder.add(record, language));
+		}
+		return builder;
+	}
+
+	/**
+	 * Returns the number of concepts of this table.
+	 * @return The number of concepts of this table.
+	 */
+	public int size() {
+		return memberOffsets.length - 1;
+	}
+
+	/**
+	 * Returns the concept described by the given page.
+	 * @param page A page.
+	 * @return The concept described by the page, or {@code -1} if the page is not in this table.
+	 */
+	public int concept(P page) {
+		int index = Arrays.binarySearch(nodeIds, page.nodeIdentifier());
+		return index >= 0 ? concepts[index] : -1;
+	}
+
+	/**
+	 * Returns the pages that describe the given concept, in all the language editions of this table.
+	 * @param concept A concept of this table.
+	 * @return The pages that describe the concept.
+	 */
+	public List<P> members(int concept) {
+		List<P> pages = new ArrayList<P>();
+		for ( int i = memberOffsets[concept]; i < memberOffsets[concept + 1]; i += 1 )
+			pages.add(page(members[i]));
+		return pages;
+	}
+
+	/**
+	 * Returns all the editions of the given page, that are the pages that describe the same concept, 
+	 * including the page itself.
+	 * @param page A page.
+	 * @return The editions of the page, or an empty list if the page is not in this table.
+	 */
+	public List<P> editions(P page) {
+		int concept = concept(page);
+		return concept >= 0 ? members(concept) : new ArrayList<P>();
+	}
+
+	/**
+	 * Returns the edition of the given page in the given language.
+	 * If the concept of the page has several pages in the language, the one with the smallest node 
+	 * identifier is returned.
+	 * @param page A page.
+	 * @param language A language of this table.
+	 * @return The edition of the page in the language, or {@code null} if there is none.
+	 */
+	public P edition(P page, String language) {
+		int concept = concept(page);
+		if ( concept < 0 )
+			return null;
+		for ( int i = memberOffsets[concept]; i < memberOffsets[concept + 1]; i += 1 )
+			if ( languageNames[languages[members[i]] & 0xFF].equals(language) )
+				return page(members[i]);
+		return null;
+	}
+
+	/**
+	 * Creates the page with the given index.
+	 * @param index The index of a page.
+	 * @return The page.
+	 */
+	private P page(int index) {
+		return creator.apply(nodeIds[index], (flags[index] & DISAMBIGUATION) != 0);
+	}
+
+	/**
+	 * Returns the representative of the set of the given page, halving the path to it on the way.
+	 * @param parents The parents of the pages in the union-find forest.
+	 * @param index The index of a page.
+	 * @return The index of the representative of the set of the page.
+	 */
+	private static int find(AtomicIntegerArray parents, int index) {
+		int parent = parents.get(index);
+		while ( parent != index ) {
+			int grandparent = parents.get(parent);
+			parents.compareAndSet(index, parent, grandparent);
+			index = grandparent;
+			parent = parents.get(index);
+		}
+		return index;
+	}
+
+	/**
+	 * Merges the sets of the given pages, linking the representative with the greatest index to the other one, 
+	 * so that concurrent merges never create a cycle.
+	 * @param parents The parents of the pages in the union-find forest.
+	 * @param a The index of a page.
+	 * @param b The index of a page.
+	 */
+	private static void union(AtomicIntegerArray parents, int a, int b) {
+		while ( true ) {
+			a = find(parents, a);
+			b = find(parents, b);
+			if ( a == b )
+				return;
+			if ( a < b ) {
+				int swap = a;
+				a = b;
+				b = swap;
+			}
+			if ( parents.compareAndSet(a, a, b) )
+				return;
+		}
+	}
+
+	/**
+	 * The pages and the cross-links of a table while they are read.
+	 *
+	 */
+	private static class Builder {
+
+		/**
+		 * The number of pages that have been read.
+		 */
+		private int size;
+
+		/**
+		 * The identifiers of the nodes of the pages.
+		 */
+		private long[] nodeIds;
+
+		/**
+		 * The codes of the languages of the pages.
+		 */
+		private byte[] languages;
+
+		/**
+		 * The flags of the pages.
+		 */
+		private byte[] flags;
+
+		/**
+		 * The number of cross-links that have been read.
+		 */
+		private int links;
+
+		/**
+		 * The identifiers of the nodes of the sources of the cross-links.
+		 */
+		private long[] sources;
+
+		/**
+		 * The identifiers of the nodes of the targets of the cross-links.
+		 */
+		private long[] targets;
+
+		/**
+		 * Creates empty columns.
+		 */
+		Builder() {
+			this.nodeIds = new long[1024];
+			this.languages = new byte[1024];
+			this.flags = new byte[1024];
+			this.sources = new long[1024];
+			this.targets = new long[1024];
+		}
+
+		/**
+		 * Adds the page read from a record, with its cross-links.
+		 * @param record The record of a scanned page.
+		 * @param language The code of the language of the page.
+		 */
+		synchronized void add(Record record, byte language) {
+			if ( size == nodeIds.length ) {
+				nodeIds = Arrays.copyOf(nodeIds, 2 * size);
+				languages = Arrays.copyOf(languages, 2 * size);
+				flags = Arrays.copyOf(flags, 2 * size);
+			}
+			long nodeId = record.get("nodeid").asLong();
+			nodeIds[size] = nodeId;
+			languages[size] = language;
+			flags[size] = record.get("disambiguation").asBoolean() ? DISAMBIGUATION : 0;
+			size += 1;
+			for ( Object crosslink : record.get("crosslinks").asList() ) {
+				if ( links == sources.length ) {
+					sources = Arrays.copyOf(sources, 2 * links);
+					targets = Arrays.copyOf(targets, 2 * links);
+				}
+				sources[links] = nodeId;
+				targets[links] = ((Number)crosslink).longValue();
+				links += 1;
+			}
+		}
+
+	}
+
+}
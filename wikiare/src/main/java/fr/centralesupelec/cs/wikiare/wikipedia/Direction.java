@@ -0,0 +1,66 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+/**
+ * The direction in which the links of an article are followed.
+ *
+ */
+public enum Direction {
+	
+	/**
+	 * The links from the article to other articles.
+	 */
+	OUTGOING("-[l:link]->"),
+	
+	/**
+	 * The links from other articles to the article.
+	 */
+	INCOMING("<-[l:link]-"),
+	
+	/**
+	 * The links in both directions.
+	 */
+	BOTH("-[l:link]-");
+	
+	/**
+	 * The Cypher pattern of a link in this direction, where the link is bound to the variable {@code l}.
+	 */
+	private String pattern;
+	
+	/**
+	 * Creates a new direction.
+	 * @param pattern The Cypher pattern of a link in the new direction.
+	 */
+	private Direction(String pattern) {
+		this.pattern = pattern;
+	}
+	
+	/**
+	 * Returns the Cypher pattern of a link in this direction, where the link is bound to the variable {@code l}.
+	 * @return The Cypher pattern of a link in this direction.
+	 */
+	String pattern() {
+		return this.pattern;
+	}
+
+}
@@ -24,10 +24,7 @@ package fr.centralesupelec.cs.wikiare.wikipedia;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.neo4j.driver.v1.Driver;
 import org.neo4j.driver.v1.Record;
-import org.neo4j.driver.v1.Session;
-import org.neo4j.driver.v1.StatementResult;
 import org.neo4j.driver.v1.Values;
 import org.neo4j.driver.v1.types.Node;
 
@@ -40,12 +37,12 @@ public class DisambiguationArticle extends Article {
 	/**
 	 * Creates a new disambiguation article.
 	 * 
-	 * @param driver The driver used to connect to the underlying Neo4j database.
+	 * @param factory The factory that creates the pages of the underlying Neo4j database.
 	 * @param nodeIdentifier The identifier in the underlying Neo4j database of the node
 	 * corresponding to the new article.
 	 */
-	protected DisambiguationArticle(Driver driver, long nodeIdentifier) {
-		super(driver, nodeIdentifier);
+	protected DisambiguationArticle(PageFactory factory, long nodeIdentifier) {
+		super(factory, nodeIdentifier);
 	}
 	
 	/**
@@ -53,13 +50,11 @@ public class DisambiguationArticle extends Article {
 	 * @return The interpretations of this disambiguation article.
 	 */
 	public Set<Article> interpretations() {
-		PageFactory pageFactory = new PageFactory(driver());
+		PageFactory pageFactory = factory();
 		Set<Article> interpretations = new HashSet<Article>();
-		Session session = driver().session();
-		StatementResult result = session.run("MATCH (n:Disambiguation)-[l:link]->(m:Article) WHERE id(n)={node-identifier} "
+		for (Record record : pageFactory.query("MATCH (n:Disambiguation)-[l:link]->(m:Article) WHERE id(n)={nodeid} "
 				+ "AND exists(l.disambig) return m as interpretation", 
-				Values.parameters("node-identifier", this.nodeIdentifier()));
-		for (Record record : result.list()) {
+				Values.parameters("nodeid", this.nodeIdentifier()))) {
 			Node interpretationNode = record.get("interpretation").asNode();
 			Article interpretationArticle = pageFactory.createArticle(interpretationNode);
 			if ( !interpretationArticle.isRedirect() && !interpretationArticle.isDisambiguation() )
@@ -74,10 +69,26 @@ public class DisambiguationArticle extends Article {
 					if ( interpretationArticle.isDisambiguation() ) 
 						interpretations.addAll(((DisambiguationArticle)interpretationArticle).interpretations());
 		}
-		session.close();
 		return interpretations;
 	}
 	
+	/**
+	 * Returns the number of interpretations of this disambiguation article.
+	 * As in {@link #interpretations()}, the links to other disambiguation articles are followed
+	 * and the redirects are replaced with their targets.
+	 * The interpretations are counted in the underlying Neo4j database, without being created.
+	 * @return The number of interpretations of this disambiguation article.
+	 */
+	public long countInterpretations() {
+		PageFactory pageFactory = factory();
+		return pageFactory.countPages("MATCH p=(n:Disambiguation)-[:link*1..]->(m:Article) WHERE id(n)={nodeid} "
+				+ "AND ALL(l IN relationships(p) WHERE exists(l.disambig)) "
+				+ "AND ALL(d IN nodes(p)[1..-1] WHERE d:Disambiguation) AND NOT m:Disambiguation "
+				+ "WITH DISTINCT m "
+				+ PageFactory.resolveRedirects("m", "target") + "RETURN count(DISTINCT target) AS count", 
+				Values.parameters("nodeid", this.nodeIdentifier()), "count");
+	}
+	
 	@Override
 	public boolean isDisambiguation() {
 		return true;
@@ -0,0 +1,330 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Values;
+
+/**
+ * The subgraph induced by the articles within a given number of hops from a seed article.
+ * The articles of the subgraph are identified by dense integers from {@code 0} (the seed) to 
+ * {@code size() - 1}, in the order in which they are reached; the links between them are stored 
+ * in adjacency arrays, and the title, indegree and type of each article are stored along with them.
+ *
+ */
+public class EgoNetwork {
+
+	/**
+	 * The rank given to the links that have no rank, so that they are pruned first.
+	 */
+	private static final int NO_RANK = Integer.MAX_VALUE;
+
+	/**
+	 * The factory that creates the articles of this ego network.
+	 */
+	private PageFactory factory;
+
+	/**
+	 * The node identifiers of the articles, indexed by their dense identifiers.
+	 */
+	private long[] nodeIdentifiers;
+
+	/**
+	 * The dense identifiers of the articles, indexed by their node identifiers.
+	 */
+	private Map<Long, Integer> denseIdentifiers;
+
+	/**
+	 * The number of hops between the seed and each article.
+	 */
+	private int[] hops;
+
+	/**
+	 * The position in {@code targets} of the first link of each article; 
+	 * the links of the article {@code i} are in the positions from {@code offsets[i]} to {@code offsets[i+1]} (excluded).
+	 */
+	private int[] offsets;
+
+	/**
+	 * The dense identifiers of the targets of the links.
+	 */
+	private int[] targets;
+
+	/**
+	 * The ranks of the links.
+	 */
+	private int[] ranks;
+
+	/**
+	 * The titles of the articles.
+	 */
+	private String[] titles;
+
+	/**
+	 * The indegrees of the articles.
+	 */
+	private int[] indegrees;
+
+	/**
+	 * The types of the articles.
+	 */
+	private String[] types;
+
+	/**
+	 * Whether each article is a disambiguation article.
+	 */
+	private boolean[] disambiguations;
+
+	/**
+	 * Creates a new ego network that contains only its seed.
+	 * @param factory The factory that creates the articles of the new ego network.
+	 * @param seed The node identifier of the seed.
+	 */
+	private EgoNetwork(PageFactory factory, long seed) {
+		this.factory = factory;
+		this.nodeIdentifiers = new long[] { seed };
+		this.denseIdentifiers = new HashMap<Long, Integer>();
+		this.denseIdentifiers.put(seed, 0);
+		this.hops = new int[] { 0 };
+	}
+
+	/**
+	 * Extracts the ego network of an article.
+	 * The articles are reached hop by hop, following the links in the given direction. 
+	 * When the articles or the links reached exceed the budget, the expansion stops
+	 * and the links with the lowest rank (the ones that occur first in the text of the source article) are kept.
+	 * Redirects are replaced with their targets.
+	 * The links of the ego network are all the links between its articles, whatever the direction followed 
+	 * in the expansion.
+	 * @param factory The factory that creates the articles of the ego network.
+	 * @param seed The node identifier of the seed article.
+	 * @param maxHops The maximum number of hops from the seed.
+	 * @param direction The direction of the links followed to reach the articles.
+	 * @param maxNodes The maximum number of articles in the ego network.
+	 * @param maxEdges The maximum number of links in the ego network.
+	 * @return The ego network of the seed article.
+	 */
+	static EgoNetwork extract(PageFactory factory, long seed, int maxHops, Direction direction, int maxNodes, 
+			int maxEdges) {
+		EgoNetwork network = new EgoNetwork(factory, seed);
+		List<Long> reached = new ArrayList<Long>();
+		List<Integer> reachedHops = new ArrayList<Integer>();
+		reached.add(seed);
+		reachedHops.add(0);
+		List<Long> frontier = new ArrayList<Long>(reached);
+		long edges = 0;
+		for ( int hop = 1; hop <= maxHops && !frontier.isEmpty() 
+				&& reached.size() < maxNodes && edges < maxEdges; hop += 1 ) {
+			List<Record> records = factory.query("UNWIND {nodeids} AS nodeid "
+					+ "MATCH (n:Article)" + direction.pattern() + "(m:Article) WHERE id(n)=nodeid "
+					+ PageFactory.resolveRedirects("m", "target", "nodeid", "l") + "WHERE target IS NOT NULL "
+					+ "RETURN nodeid, id(target) AS target, min(coalesce(l.rank, {norank})) AS rank "
+					+ "ORDER BY rank LIMIT {remainingedges}",
+					Values.parameters("nodeids", frontier, "norank", NO_RANK, "remainingedges", maxEdges - edges));
+			List<Long> nextFrontier = new ArrayList<Long>();
+			for ( Record record : records ) {
+				long target = record.get("target").asLong();
+				if ( !network.denseIdentifiers.containsKey(target) ) {
+					if ( reached.size() >= maxNodes )
+						continue;
+					network.denseIdentifiers.put(target, reached.size());
+					reached.add(target);
+					reachedHops.add(hop);
+					nextFrontier.add(target);
+				}
+				edges += 1;
+				if ( edges >= maxEdges )
+					break;
+			}
+			frontier = nextFrontier;
+		}
+		network.nodeIdentifiers = new long[reached.size()];
+		network.hops = new int[reached.size()];
+		for ( int i = 0; i < reached.size(); i += 1 ) {
+			network.nodeIdentifiers[i] = reached.get(i);
+			network.hops[i] = reachedHops.get(i);
+		}
+		network.loadLinks(reached, maxEdges);
+		network.loadMetadata(reached);
+		return network;
+	}
+
+	/**
+	 * Loads the links between the articles of this ego network, keeping the ones with the lowest rank.
+	 * @param reached The node identifiers of the articles of this ego network.
+	 * @param maxEdges The maximum number of links.
+	 */
+	private void loadLinks(List<Long> reached, int maxEdges) {
+		List<Record> records = factory.query("UNWIND {nodeids} AS nodeid "
+				+ "MATCH (n:Article)-[l:link]->(m:Article) WHERE id(n)=nodeid "
+				+ PageFactory.resolveRedirects("m", "target", "nodeid", "l") + "WHERE id(target) IN {nodeids} "
+				+ "AND id(target)<>nodeid "
+				+ "RETURN nodeid, id(target) AS target, min(coalesce(l.rank, {norank})) AS rank "
+				+ "ORDER BY rank LIMIT {maxedges}",
+				Values.parameters("nodeids", reached, "norank", NO_RANK, "maxedges", maxEdges));
+		int[] sources = new int[records.size()];
+		this.offsets = new int[nodeIdentifiers.length + 1];
+		for ( int i = 0; i < sources.length; i += 1 ) {
+			sources[i] = denseIdentifiers.get(records.get(i).get("nodeid").asLong());
+			offsets[sources[i] + 1] += 1;
+		}
+		for ( int i = 0; i < nodeIdentifiers.length; i += 1 )
+			offsets[i + 1] += offsets[i];
+		this.targets = new int[records.size()];
+		this.ranks = new int[records.size()];
+		int[] next = Arrays.copyOf(offsets, nodeIdentifiers.length);
+		for ( int i = 0; i < sources.length; i += 1 ) {
+			int position = next[sources[i]]++;
+			targets[position] = denseIdentifiers.get(records.get(i).get("target").asLong());
+			ranks[position] = records.get(i).get("rank").asInt();
+		}
+	}
+
+	/**
+	 * Loads the title, indegree and type of the articles of this ego network.
+	 * @param reached The node identifiers of the articles of this ego network.
+	 */
+	private void loadMetadata(List<Long> reached) {
+		this.titles = new String[nodeIdentifiers.length];
+		this.indegrees = new int[nodeIdentifiers.length];
+		this.types = new String[nodeIdentifiers.length];
+		this.disambiguations = new boolean[nodeIdentifiers.length];
+		for ( Record record : factory.query("UNWIND {nodeids} AS nodeid MATCH (n:Article) WHERE id(n)=nodeid "
+				+ "RETURN nodeid, n.title AS title, n.indegree AS indegree, n.type AS type, "
+				+ "n:Disambiguation AS disambiguation", Values.parameters("nodeids", reached)) ) {
+			int article = denseIdentifiers.get(record.get("nodeid").asLong());
+			if ( !record.get("title").isNull() )
+				titles[article] = record.get("title").asString();
+			if ( !record.get("indegree").isNull() )
+				indegrees[article] = record.get("indegree").asInt();
+			if ( !record.get("type").isNull() )
+				types[article] = record.get("type").asString();
+			disambiguations[article] = record.get("disambiguation").asBoolean();
+		}
+	}
+
+	/**
+	 * Returns the number of articles in this ego network.
+	 * @return The number of articles in this ego network.
+	 */
+	public int size() {
+		return nodeIdentifiers.length;
+	}
+
+	/**
+	 * Returns the number of links in this ego network.
+	 * @return The number of links in this ego network.
+	 */
+	public int edges() {
+		return targets.length;
+	}
+
+	/**
+	 * Returns the dense identifier of the given article in this ego network.
+	 * @param article An article.
+	 * @return The dense identifier of the article, or {@code -1} if the article is not in this ego network.
+	 */
+	public int indexOf(Article article) {
+		Integer dense = denseIdentifiers.get(article.nodeIdentifier());
+		return dense == null ? -1 : dense;
+	}
+
+	/**
+	 * Returns the article with the given dense identifier.
+	 * @param article The dense identifier of an article.
+	 * @return The article with the given dense identifier.
+	 */
+	public Article article(int article) {
+		return factory.createArticleById(nodeIdentifiers[article], disambiguations[article]);
+	}
+
+	/**
+	 * Returns the number of hops between the seed and the given article.
+	 * @param article The dense identifier of an article.
+	 * @return The number of hops between the seed and the article.
+	 */
+	public int hops(int article) {
+		return hops[article];
+	}
+
+	/**
+	 * Returns the number of links from the given article to other articles of this ego network.
+	 * @param article The dense identifier of an article.
+	 * @return The number of links from the article in this ego network.
+	 */
+	public int outdegree(int article) {
+		return offsets[article + 1] - offsets[article];
+	}
+
+	/**
+	 * Returns the dense identifiers of the articles of this ego network to which the given article links.
+	 * The targets are sorted by increasing rank of the links.
+	 * @param article The dense identifier of an article.
+	 * @return The dense identifiers of the targets of the links of the article.
+	 */
+	public int[] linksTo(int article) {
+		return Arrays.copyOfRange(targets, offsets[article], offsets[article + 1]);
+	}
+
+	/**
+	 * Returns the ranks of the links from the given article, in the same order as {@link #linksTo(int)}.
+	 * @param article The dense identifier of an article.
+	 * @return The ranks of the links from the article.
+	 */
+	public int[] linkRanks(int article) {
+		return Arrays.copyOfRange(ranks, offsets[article], offsets[article + 1]);
+	}
+
+	/**
+	 * Returns the title of the given article.
+	 * @param article The dense identifier of an article.
+	 * @return The title of the article, or {@code null} if it has no title.
+	 */
+	public String title(int article) {
+		return titles[article];
+	}
+
+	/**
+	 * Returns the number of articles of the whole Wikipedia edition that link to the given article.
+	 * @param article The dense identifier of an article.
+	 * @return The indegree of the article, or {@code 0} if it is unknown.
+	 */
+	public int indegree(int article) {
+		return indegrees[article];
+	}
+
+	/**
+	 * Returns the type of the spatial entity described by the given article, if any.
+	 * @param article The dense identifier of an article.
+	 * @return The type of the spatial entity described by the article, if any, {@code null} otherwise.
+	 */
+	public String type(int article) {
+		return types[article];
+	}
+
+}
@@ -0,0 +1,188 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Values;
+
+/**
+ * This class is used to obtain the links of many articles at once, as required when 
+ * a whole frontier of articles is expanded at each step of a graph walk.
+ * The articles are split into chunks and the links of the articles of a chunk are obtained
+ * with a single query, where the redirects are also replaced with their targets.
+ * The chunks are processed in parallel, within the scope of the queries of the calling thread.
+ *
+ */
+public class FrontierExpander {
+
+	/**
+	 * The default number of articles whose links are obtained with a single query.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+
+	/**
+	 * The default number of chunks that are processed at the same time.
+	 */
+	public static final int DEFAULT_PARALLELISM = 4;
+
+	/**
+	 * The factory that creates the linked articles.
+	 */
+	private PageFactory factory;
+
+	/**
+	 * The number of articles whose links are obtained with a single query.
+	 */
+	private int chunkSize;
+
+	/**
+	 * The number of chunks that are processed at the same time.
+	 */
+	private int parallelism;
+
+	/**
+	 * Creates a new {@code FrontierExpander} with the default chunk size and parallelism.
+	 * @param factory The factory that creates the linked articles.
+	 */
+	public FrontierExpander(PageFactory factory) {
+		this(factory, DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * Creates a new {@code FrontierExpander}.
+	 * @param factory The factory that creates the linked articles.
+	 * @param chunkSize The number of articles whose links are obtained with a single query.
+	 * @param parallelism The number of chunks that are processed at the same time.
+	 */
+	public FrontierExpander(PageFactory factory, int chunkSize, int parallelism) {
+		this.factory = factory;
+		this.chunkSize = chunkSize;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the articles linked to or from each of the given articles.
+	 * The targets of the links that are redirects are replaced with the final targets of the redirections.
+	 * @param articles The articles to expand.
+	 * @param direction The direction of the links that are followed.
+	 * @return The set of the articles linked to or from each of the given articles.
+	 */
+	public Map<Article, Set<Article>> expand(Collection<? extends Article> articles, Direction direction) {
+		List<Long> nodeIdentifiers = new ArrayList<Long>();
+		for ( Article article : articles )
+			nodeIdentifiers.add(article.nodeIdentifier());
+		nodeIdentifiers = new ArrayList<Long>(new LinkedHashSet<Long>(nodeIdentifiers));
+		Map<Long, Set<Article>> neighbours = new ConcurrentHashMap<Long, Set<Article>>();
+		Map<Long, Article> targets = new ConcurrentHashMap<Long, Article>();
+		List<List<Long>> chunks = new ArrayList<List<Long>>();
+		for ( int i = 0; i < nodeIdentifiers.size(); i += chunkSize )
+			chunks.add(nodeIdentifiers.subList(i, Math.min(i + chunkSize, nodeIdentifiers.size())));
+		if ( chunks.size() <= 1 || parallelism <= 1 ) {
+			for ( List<Long> chunk : chunks )
+				expandChunk(chunk, direction, neighbours, targets);
+		}
+		else
+			expandChunks(chunks, direction, neighbours, targets);
+		Map<Article, Set<Article>> expansion = new HashMap<Article, Set<Article>>();
+		Set<Long> assigned = new HashSet<Long>();
+		for ( Article article : articles ) {
+			Set<Article> articleNeighbours = neighbours.get(article.nodeIdentifier());
+			if ( articleNeighbours == null )
+				articleNeighbours = new HashSet<Article>();
+			else if ( !assigned.add(article.nodeIdentifier()) )
+				articleNeighbours = new HashSet<Article>(articleNeighbours);
+			expansion.put(article, articleNeighbours);
+		}
+		return expansion;
+	}
+
+	/**
+	 * Processes the given chunks in parallel.
+	 * @param chunks The chunks of the node identifiers of the articles to expand.
+	 * @param direction The direction of the links that are followed.
+	 * @param neighbours The sets of the linked articles, indexed by the identifiers of the expanded articles.
+	 * @param targets The linked articles created so far, indexed by their node identifiers.
+	 */
+	private void expandChunks(List<List<Long>> chunks, Direction direction, Map<Long, Set<Article>> neighbours, 
+			Map<Long, Article> targets) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, chunks.size()));
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		QueryScope scope = factory.currentScope();
+		for ( List<Long> chunk : chunks )
+			futures.add(executor.submit(() -> factory.within(scope, 
+					() -> expandChunk(chunk, direction, neighbours, targets))));
+		executor.shutdown();
+		try {
+			for ( Future<?> future : futures )
+				future.get();
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The expansion has been interrupted", e);
+		} catch (ExecutionException e) {
+			executor.shutdownNow();
+			if ( e.getCause() instanceof RuntimeException )
+				throw (RuntimeException)e.getCause();
+			throw new IllegalStateException("The expansion has failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Obtains the links of the articles of a chunk with a single query.
+	 * @param chunk The node identifiers of the articles to expand.
+	 * @param direction The direction of the links that are followed.
+	 * @param neighbours The sets of the linked articles, indexed by the identifiers of the expanded articles.
+	 * @param targets The linked articles created so far, indexed by their node identifiers.
+	 */
+	private void expandChunk(List<Long> chunk, Direction direction, Map<Long, Set<Article>> neighbours, 
+			Map<Long, Article> targets) {
+		long[] nodeIdentifiers = new long[chunk.size()];
+		for ( int i = 0; i < nodeIdentifiers.length; i += 1 )
+			nodeIdentifiers[i] = chunk.get(i);
+		for ( Record record : factory.query("UNWIND {nodeids} AS nodeid "
+				+ "MATCH (n:Article)" + direction.pattern() + "(m:Article) WHERE id(n)=nodeid "
+				+ PageFactory.resolveRedirects("m", "target", "nodeid") + "WHERE target IS NOT NULL "
+				+ "RETURN DISTINCT nodeid, id(target) AS target, target:Disambiguation AS disambiguation",
+				Values.parameters("nodeids", nodeIdentifiers)) ) {
+			boolean disambiguation = record.get("disambiguation").asBoolean();
+			Article target = targets.computeIfAbsent(record.get("target").asLong(), 
+					nodeIdentifier -> factory.createArticleById(nodeIdentifier, disambiguation));
+			neighbours.computeIfAbsent(record.get("nodeid").asLong(), nodeIdentifier -> new HashSet<Article>())
+				.add(target);
+		}
+	}
+
+}
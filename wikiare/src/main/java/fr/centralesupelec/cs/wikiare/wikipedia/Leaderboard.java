@@ -0,0 +1,353 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Values;
+
+/**
+ * The articles with the highest indegree in a Wikipedia language edition, overall and for each type 
+ * of spatial entity.
+ * The rankings are computed in bulk by a scan of the articles, keep at most a given number of articles 
+ * each, and are recomputed when the leaderboard is refreshed.
+ *
+ */
+public class Leaderboard {
+
+	/**
+	 * The factory that creates the articles.
+	 */
+	private PageFactory factory;
+
+	/**
+	 * The language of the Wikipedia edition.
+	 */
+	private String language;
+
+	/**
+	 * The maximum number of articles of each ranking.
+	 */
+	private int capacity;
+
+	/**
+	 * The ranking of all the articles, under the key {@code null}, and the ranking of the articles 
+	 * of each type.
+	 */
+	private volatile Map<String, Ranking> rankings;
+
+	/**
+	 * Creates a new empty leaderboard.
+	 * @param factory The factory that creates the articles.
+	 * @param language The language of the Wikipedia edition.
+	 * @param capacity The maximum number of articles of each ranking.
+	 */
+	private Leaderboard(PageFactory factory, String language, int capacity) {
+		this.factory = factory;
+		this.language = language;
+		this.capacity = capacity;
+		this.rankings = Collections.emptyMap();
+	}
+
+	/**
+	 * Builds the leaderboard of a Wikipedia language edition.
+	 * @param factory The factory that creates the articles.
+	 * @param language The language of the Wikipedia edition.
+	 * @param capacity The maximum number of articles of each ranking.
+	 * @param parallelism The number of threads that read the articles from the underlying Neo4j database.
+	 * @return The leaderboard of the language edition.
+	 * @throws IllegalArgumentException If the capacity is not positive.
+	 */
+	public static Leaderboard build(PageFactory factory, String language, int capacity, int parallelism) {
+		if ( capacity <= 0 )
+			throw new IllegalArgumentException("The capacity of a leaderboard must be positive: " + capacity);
+		Leaderboard leaderboard = new Leaderboard(factory, language, capacity);
+		leaderboard.refresh(parallelism);
+		return leaderboard;
+	}
+
+	/**
+	 * Recomputes the rankings from the current indegrees of the articles.
+	 * The previous rankings are answered until the new ones are complete.
+	 * @param parallelism The number of threads that read the articles from the underlying Neo4j database.
+	 */
+	public void refresh(int parallelism) {
+		Builder builder = new Builder(capacity);
+		PageScan.records(factory, "Article", language, "WITH n WHERE NOT n:Redirect AND n.indegree IS NOT NULL "
+				+ "RETURN id(n) AS nodeid, n.title AS title, n.indegree AS indegree, n.type AS type, "
+				+ "n:Disambiguation AS disambiguation")
+			.run(parallelism, builder::add);
+		Map<String, Ranking> rankings = new HashMap<String, Ranking>();
+		for ( Map.Entry<String, PriorityQueue<Entry>> heap : builder.heaps.entrySet() )
+			rankings.put(heap.getKey(), new Ranking(heap.getValue()));
+		this.rankings = rankings;
+	}
+
+	/**
+	 * Returns the language of the Wikipedia edition of this leaderboard.
+	 * @return The language of the Wikipedia edition.
+	 */
+	public String language() {
+		return this.language;
+	}
+
+	/**
+	 * Returns the maximum number of articles of each ranking.
+	 * @return The maximum number of articles of each ranking.
+	 */
+	public int capacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Returns the types of the spatial entities that have a ranking.
+	 * @return The types of the spatial entities described by at least one article.
+	 */
+	public Set<String> types() {
+		Set<String> types = new HashSet<String>(rankings.keySet());
+		types.remove(null);
+		return types;
+	}
+
+	/**
+	 * Returns the {@code k} articles with the highest indegree, overall or of a given type.
+	 * If {@code k} exceeds the capacity of this leaderboard, the articles are queried from 
+	 * the underlying Neo4j database.
+	 * @param type The type of the spatial entities described by the articles, or {@code null} for all the articles.
+	 * @param k The maximum number of articles returned.
+	 * @return The articles with the highest indegree, sorted by decreasing indegree.
+	 */
+	public List<Article> top(String type, int k) {
+		if ( k > capacity )
+			return query(type, k);
+		List<Article> articles = new ArrayList<Article>();
+		Ranking ranking = rankings.get(type);
+		if ( ranking == null )
+			return articles;
+		for ( int i = 0; i < Math.min(k, ranking.size()); i += 1 )
+			articles.add(ranking.article(i));
+		return articles;
+	}
+
+	/**
+	 * Returns the {@code k} articles with the highest indegree whose titles start with the given prefix, 
+	 * overall or of a given type.
+	 * The candidates are taken from the ranking only, so that an article that is not among the 
+	 * most linked articles is never returned; the dictionary of the titles completes any prefix exhaustively.
+	 * @param type The type of the spatial entities described by the articles, or {@code null} for all the articles.
+	 * @param prefix A prefix.
+	 * @param k The maximum number of articles returned.
+	 * @return The ranked articles whose titles start with the given prefix, sorted by decreasing indegree.
+	 */
+	public List<Article> candidates(String type, String prefix, int k) {
+		List<Article> articles = new ArrayList<Article>();
+		Ranking ranking = rankings.get(type);
+		if ( ranking == null )
+			return articles;
+		for ( int i = 0; i < ranking.size() && articles.size() < k; i += 1 )
+			if ( ranking.titles[i].startsWith(prefix) )
+				articles.add(ranking.article(i));
+		return articles;
+	}
+
+	/**
+	 * Queries the {@code k} articles with the highest indegree from the underlying Neo4j database.
+	 * @param type The type of the spatial entities described by the articles, or {@code null} for all the articles.
+	 * @param k The maximum number of articles returned.
+	 * @return The articles with the highest indegree, sorted by decreasing indegree.
+	 */
+	private List<Article> query(String type, int k) {
+		List<Article> articles = new ArrayList<Article>();
+		for ( Record record : factory.query("MATCH (n:Article) WHERE n.lang={lang} AND NOT n:Redirect "
+				+ (type == null ? "" : "AND n.type={type} ") + "AND n.indegree IS NOT NULL "
+				+ "RETURN id(n) AS nodeid, n:Disambiguation AS disambiguation ORDER BY n.indegree DESC LIMIT {k}", 
+				Values.parameters("lang", language, "type", type, "k", k)) )
+			articles.add(factory.createArticleById(record.get("nodeid").asLong(), record.get("disambiguation").asBoolean()));
+		return articles;
+	}
+
+	/**
+	 * The ranking of the articles of a type, sorted by decreasing indegree.
+	 */
+	private class Ranking {
+
+		/**
+		 * The node identifiers of the articles.
+		 */
+		private long[] nodeIds;
+
+		/**
+		 * The titles of the articles.
+		 */
+		private String[] titles;
+
+		/**
+		 * Whether the articles are disambiguation articles.
+		 */
+		private boolean[] disambiguations;
+
+		/**
+		 * Creates a ranking from the heap of its entries.
+		 * @param heap The heap of the entries, that is emptied.
+		 */
+		private Ranking(PriorityQueue<Entry> heap) {
+			int size = heap.size();
+			this.nodeIds = new long[size];
+			this.titles = new String[size];
+			this.disambiguations = new boolean[size];
+			for ( int i = size - 1; i >= 0; i -= 1 ) {
+				Entry entry = heap.poll();
+				nodeIds[i] = entry.nodeIdentifier;
+				titles[i] = entry.title;
+				disambiguations[i] = entry.disambiguation;
+			}
+		}
+
+		/**
+		 * Returns the number of articles of this ranking.
+		 * @return The number of articles of this ranking.
+		 */
+		private int size() {
+			return nodeIds.length;
+		}
+
+		/**
+		 * Returns the article at the given rank.
+		 * @param rank The rank of the article, starting from {@code 0}.
+		 * @return The article at the given rank.
+		 */
+		private Article article(int rank) {
+			return factory.createArticleById(nodeIds[rank], disambiguations[rank]);
+		}
+
+	}
+
+	/**
+	 * A ranked article, while the rankings are computed.
+	 */
+	private static class Entry implements Comparable<Entry> {
+
+		/**
+		 * The node identifier of the article.
+		 */
+		private long nodeIdentifier;
+
+		/**
+		 * The indegree of the article.
+		 */
+		private int indegree;
+
+		/**
+		 * The title of the article.
+		 */
+		private String title;
+
+		/**
+		 * Whether the article is a disambiguation article.
+		 */
+		private boolean disambiguation;
+
+		/**
+		 * Creates an entry from a record.
+		 * @param record The record of an article.
+		 */
+		private Entry(Record record) {
+			this.nodeIdentifier = record.get("nodeid").asLong();
+			this.indegree = record.get("indegree").asInt();
+			this.title = record.get("title").asString();
+			this.disambiguation = record.get("disambiguation").asBoolean();
+		}
+
+		/**
+		 * Compares the articles by indegree, and the articles with the same indegree by node identifier, 
+		 * so that the rankings do not depend on the order of the scan.
+		 */
+		@Override
+		public int compareTo(Entry other) {
+			if ( indegree != other.indegree )
+				return Integer.compare(indegree, other.indegree);
+			return Long.compare(other.nodeIdentifier, nodeIdentifier);
+		}
+
+	}
+
+	/**
+	 * The bounded heaps of the rankings, while they are computed.
+	 */
+	private static class Builder {
+
+		/**
+		 * The maximum number of articles of each ranking.
+		 */
+		private int capacity;
+
+		/**
+		 * The heaps of the rankings, whose heads are the articles with the lowest indegree.
+		 */
+		private Map<String, PriorityQueue<Entry>> heaps;
+
+		/**
+		 * Creates a new builder.
+		 * @param capacity The maximum number of articles of each ranking.
+		 */
+		private Builder(int capacity) {
+			this.capacity = capacity;
+			this.heaps = new HashMap<String, PriorityQueue<Entry>>();
+		}
+
+		/**
+		 * Adds an article to the overall ranking and to the ranking of its type.
+		 * @param record The record of the article.
+		 */
+		private synchronized void add(Record record) {
+			Entry entry = new Entry(record);
+			offer(null, entry);
+			if ( !record.get("type").isNull() )
+				offer(record.get("type").asString(), entry);
+		}
+
+		/**
+		 * Adds an article to a ranking, if its indegree is high enough.
+		 * @param type The type of the ranking.
+		 * @param entry The article.
+		 */
+		private void offer(String type, Entry entry) {
+			PriorityQueue<Entry> heap = heaps.computeIfAbsent(type, key -> new PriorityQueue<Entry>());
+			if ( heap.size() < capacity )
+				heap.add(entry);
+			else if ( entry.compareTo(heap.peek()) > 0 ) {
+				heap.poll();
+				heap.add(entry);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,662 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Value;
+
+/**
+ * The graph of the links between the articles of some Wikipedia language editions, loaded in memory.
+ * The articles are identified by dense integers, in the order of the identifiers of their nodes, and 
+ * the links of each article are stored in adjacency arrays of primitive values, sorted by target, 
+ * along with the cumulative weights of the links derived from their ranks.
+ * The attributes of the links are stored in columns aligned with the adjacency arrays, and the links 
+ * are also indexed by target, so that the links of an article can be filtered in both directions 
+ * with the same results as the corresponding queries of {@link Article}.
+ * The redirects are replaced with the articles to which they redirect; the links of an article to the 
+ * same target, directly or through redirects, are merged into a single link with the smallest rank and offset 
+ * and the union of the flags.
+ * The index by target keeps only the links that point directly to their target, with the attributes 
+ * of these links alone, since the queries of the links to an article ignore the links to its redirects.
+ *
+ */
+public class LinkGraph {
+
+	/**
+	 * The flag of the disambiguation articles.
+	 */
+	private static final byte DISAMBIGUATION = 1;
+
+	/**
+	 * The rank given to the links that have no rank.
+	 */
+	private static final int NO_RANK = Integer.MAX_VALUE;
+
+	/**
+	 * The offset given to the links that have no offset.
+	 */
+	private static final int NO_OFFSET = Integer.MAX_VALUE;
+
+	/**
+	 * The flag of the links that occur in the introduction of their source.
+	 */
+	private static final byte INTRO = 1;
+
+	/**
+	 * The flag of the links that occur in the infobox of their source.
+	 */
+	private static final byte INFOBOX = 2;
+
+	/**
+	 * The flag of the links from a disambiguation article to one of its interpretations.
+	 */
+	private static final byte DISAMBIG = 4;
+
+	/**
+	 * The flag of the links that point directly to their target, rather than through a redirect.
+	 */
+	private static final byte DIRECT = 8;
+
+	/**
+	 * The factory that creates the articles.
+	 */
+	private PageFactory factory;
+
+	/**
+	 * The identifiers of the nodes of the articles, in increasing order.
+	 */
+	private long[] nodeIds;
+
+	/**
+	 * The flags of the articles.
+	 */
+	private byte[] flags;
+
+	/**
+	 * The position in {@link #targets} of the first link of each article; the links of the article {@code i} 
+	 * are in the positions from {@code offsets[i]} to {@code offsets[i+1]} (excluded).
+	 */
+	private int[] offsets;
+
+	/**
+	 * The targets of the links, sorted by target within the links of each article.
+	 */
+	private int[] targets;
+
+	/**
+	 * The cumulative weights of the links of each article: the weight of a link is the inverse of 
+	 * its rank plus one, and the links without rank weigh as the link with the greatest rank of the article.
+	 */
+	private float[] weights;
+
+	/**
+	 * The ranks of the links, aligned with {@link #targets}.
+	 */
+	private int[] ranks;
+
+	/**
+	 * The offsets of the links in the text of their sources, aligned with {@link #targets}.
+	 */
+	private int[] textOffsets;
+
+	/**
+	 * The flags of the links, aligned with {@link #targets}.
+	 */
+	private byte[] linkFlags;
+
+	/**
+	 * The position in {@link #sources} of the first direct link to each article, as in {@link #offsets}.
+	 */
+	private int[] reverseOffsets;
+
+	/**
+	 * The sources of the direct links, sorted by source within the links to each article.
+	 */
+	private int[] sources;
+
+	/**
+	 * The ranks of the direct links, aligned with {@link #sources}.
+	 */
+	private int[] directRanks;
+
+	/**
+	 * The offsets of the direct links in the text of their sources, aligned with {@link #sources}.
+	 */
+	private int[] directTextOffsets;
+
+	/**
+	 * The flags of the direct links, aligned with {@link #sources}.
+	 */
+	private byte[] directFlags;
+
+	/**
+	 * Creates a new graph from the links that have been read.
+	 * @param factory The factory that creates the articles.
+	 * @param builder The links that have been read.
+	 */
+	private LinkGraph(PageFactory factory, Builder builder) {
+		this.factory = factory;
+		int size = builder.size;
+		this.nodeIds = Arrays.copyOf(builder.nodeIds, size);
+		Arrays.sort(nodeIds);
+		this.flags = new byte[size];
+		for ( int i = 0; i < size; i += 1 )
+			flags[Arrays.binarySearch(nodeIds, builder.nodeIds[i])] = builder.flags[i];
+		int[] origins = new int[builder.links];
+		long[] edges = new long[builder.links];
+		int count = 0;
+		this.offsets = new int[size + 1];
+		for ( int link = 0; link < builder.links; link += 1 ) {
+			int target = Arrays.binarySearch(nodeIds, builder.targets[link]);
+			if ( target < 0 )
+				continue;
+			origins[count] = Arrays.binarySearch(nodeIds, builder.sources[link]);
+			edges[count] = (long)target << 32 | link;
+			offsets[origins[count] + 1] += 1;
+			count += 1;
+		}
+		for ( int i = 0; i < size; i += 1 )
+			offsets[i + 1] += offsets[i];
+		long[] sorted = new long[count];
+		int[] next = Arrays.copyOf(offsets, size);
+		for ( int link = 0; link < count; link += 1 )
+			sorted[next[origins[link]]++] = edges[link];
+		this.targets = new int[count];
+		this.weights = new float[count];
+		this.ranks = new int[count];
+		this.textOffsets = new int[count];
+		this.linkFlags = new byte[count];
+		int[] mergedDirectRanks = new int[count], mergedDirectTextOffsets = new int[count];
+		byte[] mergedDirectFlags = new byte[count];
+		int position = 0;
+		for ( int source = 0; source < size; source += 1 ) {
+			int start = position;
+			Arrays.sort(sorted, offsets[source], offsets[source + 1]);
+			int maxRank = 0;
+			for ( int link = offsets[source]; link < offsets[source + 1]; link += 1 ) {
+				int target = (int)(sorted[link] >>> 32), read = (int)sorted[link];
+				if ( position == start || targets[position - 1] != target ) {
+					targets[position] = target;
+					ranks[position] = mergedDirectRanks[position] = NO_RANK;
+					textOffsets[position] = mergedDirectTextOffsets[position] = NO_OFFSET;
+					position += 1;
+				}
+				ranks[position - 1] = Math.min(ranks[position - 1], builder.ranks[read]);
+				textOffsets[position - 1] = Math.min(textOffsets[position - 1], builder.textOffsets[read]);
+				linkFlags[position - 1] |= builder.linkFlags[read];
+				if ( (builder.linkFlags[read] & DIRECT) != 0 ) {
+					mergedDirectRanks[position - 1] = Math.min(mergedDirectRanks[position - 1], builder.ranks[read]);
+					mergedDirectTextOffsets[position - 1] = Math.min(mergedDirectTextOffsets[position - 1], builder.textOffsets[read]);
+					mergedDirectFlags[position - 1] |= builder.linkFlags[read];
+				}
+			}
+			for ( int link = start; link < position; link += 1 )
+				if ( ranks[link] != NO_RANK )
+					maxRank = Math.max(maxRank, ranks[link]);
+			float cumulative = 0;
+			for ( int link = start; link < position; link += 1 ) {
+				cumulative += 1.0f / (Math.max(0, ranks[link] == NO_RANK ? maxRank : ranks[link]) + 1);
+				weights[link] = cumulative;
+			}
+			offsets[source] = start;
+		}
+		offsets[size] = position;
+		this.targets = Arrays.copyOf(targets, position);
+		this.weights = Arrays.copyOf(weights, position);
+		this.ranks = Arrays.copyOf(ranks, position);
+		this.textOffsets = Arrays.copyOf(textOffsets, position);
+		this.linkFlags = Arrays.copyOf(linkFlags, position);
+		this.reverseOffsets = new int[size + 1];
+		for ( int link = 0; link < position; link += 1 )
+			if ( (mergedDirectFlags[link] & DIRECT) != 0 )
+				reverseOffsets[targets[link] + 1] += 1;
+		for ( int i = 0; i < size; i += 1 )
+			reverseOffsets[i + 1] += reverseOffsets[i];
+		this.sources = new int[reverseOffsets[size]];
+		this.directRanks = new int[reverseOffsets[size]];
+		this.directTextOffsets = new int[reverseOffsets[size]];
+		this.directFlags = new byte[reverseOffsets[size]];
+		next = Arrays.copyOf(reverseOffsets, size);
+		for ( int source = 0; source < size; source += 1 )
+			for ( int link = offsets[source]; link < offsets[source + 1]; link += 1 ) {
+				if ( (mergedDirectFlags[link] & DIRECT) == 0 )
+					continue;
+				int reverse = next[targets[link]]++;
+				sources[reverse] = source;
+				directRanks[reverse] = mergedDirectRanks[link];
+				directTextOffsets[reverse] = mergedDirectTextOffsets[link];
+				directFlags[reverse] = mergedDirectFlags[link];
+			}
+	}
+
+	/**
+	 * Builds the graph of the links between the articles of the given language editions, by scanning 
+	 * all the articles in parallel.
+	 * @param factory The factory that creates the articles.
+	 * @param parallelism The number of partitions that are scanned at the same time.
+	 * @param languages The languages of the Wikipedia editions.
+	 * @return The graph of the links between the articles of the language editions.
+	 */
+	public static LinkGraph build(PageFactory factory, int parallelism, String... languages) {
+		Builder builder = new Builder();
+		for ( String language : languages )
+			PageScan.records(factory, "Article", language, "WITH n WHERE NOT n:Redirect "
+					+ "OPTIONAL MATCH (n)-[l:link]->(m:Article) " + PageFactory.resolveRedirects("m", "target", "n", "l", "m")
+					+ "RETURN id(n) AS nodeid, n:Disambiguation AS disambiguation, "
+					+ "collect(CASE WHEN target IS NULL THEN NULL ELSE [id(target), l.rank, l.offset, exists(l.intro), "
+					+ "exists(l.infobox), exists(l.disambig), NOT m:Redirect] END) AS links")
+				.run(parallelism, builder::add);
+		return new LinkGraph(factory, builder);
+	}
+
+	/**
+	 * Returns the number of articles of this graph.
+	 * @return The number of articles of this graph.
+	 */
+	public int size() {
+		return nodeIds.length;
+	}
+
+	/**
+	 * Returns the number of links of this graph.
+	 * @return The number of links of this graph.
+	 */
+	public int links() {
+		return targets.length;
+	}
+
+	/**
+	 * Returns the index of the given article in this graph.
+	 * @param article An article.
+	 * @return The index of the article, or {@code -1} if the article is not in this graph.
+	 */
+	public int indexOf(Article article) {
+		return indexOf(article.nodeIdentifier());
+	}
+
+	/**
+	 * Returns the index of the article with the given node identifier in this graph.
+	 * @param nodeIdentifier The identifier of the node of an article.
+	 * @return The index of the article, or {@code -1} if the article is not in this graph.
+	 */
+	int indexOf(long nodeIdentifier) {
+		int index = Arrays.binarySearch(nodeIds, nodeIdentifier);
+		return index >= 0 ? index : -1;
+	}
+
+	/**
+	 * Returns the article with the given index in this graph.
+	 * @param index The index of an article.
+	 * @return The article with the given index.
+	 */
+	public Article article(int index) {
+		return factory.createArticleById(nodeIds[index], (flags[index] & DISAMBIGUATION) != 0);
+	}
+
+	/**
+	 * Returns the identifier of the node of the article with the given index in this graph.
+	 * @param index The index of an article.
+	 * @return The identifier of the node of the article.
+	 */
+	long nodeIdentifier(int index) {
+		return nodeIds[index];
+	}
+
+	/**
+	 * Returns the number of links of the article with the given index.
+	 * @param index The index of an article.
+	 * @return The number of articles to which the article links.
+	 */
+	public int outdegree(int index) {
+		return offsets[index + 1] - offsets[index];
+	}
+
+	/**
+	 * Returns the target of a link of the article with the given index.
+	 * @param index The index of an article.
+	 * @param link The position of the link among the links of the article, from {@code 0} to its outdegree 
+	 * (excluded), in the order of the indexes of the targets.
+	 * @return The index of the target of the link.
+	 */
+	public int target(int index, int link) {
+		return targets[offsets[index] + link];
+	}
+
+	/**
+	 * Returns the targets of the links of the article with the given index that are in a bitmap.
+	 * @param index The index of an article.
+	 * @param filter The bitmap of the articles that are kept.
+	 * @return The indexes of the articles of the bitmap to which the article links, in increasing order.
+	 * @throws IllegalArgumentException If the bitmap is not over the articles of this graph.
+	 */
+	public int[] targets(int index, ArticleBitmap filter) {
+		if ( filter.universe() != size() )
+			throw new IllegalArgumentException("The bitmap is not over the articles of the graph");
+		int[] result = new int[outdegree(index)];
+		return Arrays.copyOf(result, filter.filter(targets, offsets[index], offsets[index + 1], result));
+	}
+
+	/**
+	 * Returns the articles of a bitmap to which the article with the given index links.
+	 * Only the articles that pass the filter are created.
+	 * @param index The index of an article.
+	 * @param filter The bitmap of the articles that are kept.
+	 * @return The articles of the bitmap to which the article links.
+	 * @throws IllegalArgumentException If the bitmap is not over the articles of this graph.
+	 */
+	public List<Article> linksTo(int index, ArticleBitmap filter) {
+		List<Article> articles = new ArrayList<Article>();
+		for ( int target : targets(index, filter) )
+			articles.add(article(target));
+		return articles;
+	}
+
+	/**
+	 * Returns the articles to which the article with the given index links such that the first occurrence 
+	 * of the link is within the given maximum rank, as {@link Article#linksToRank(int)}.
+	 * @param index The index of an article.
+	 * @param maxRank The maximum rank.
+	 * @return The indexes of the articles to which the article links within the maximum rank.
+	 */
+	public int[] linksToRank(int index, int maxRank) {
+		return linksTo(index, link -> ranks[link] <= maxRank);
+	}
+
+	/**
+	 * Returns the articles to which the article with the given index links such that the first occurrence 
+	 * of the link is within the given maximum offset, as {@link Article#linksToOffset(int)}.
+	 * @param index The index of an article.
+	 * @param maxOffset The maximum offset.
+	 * @return The indexes of the articles to which the article links within the maximum offset.
+	 */
+	public int[] linksToOffset(int index, int maxOffset) {
+		return linksTo(index, link -> textOffsets[link] <= maxOffset);
+	}
+
+	/**
+	 * Returns the articles to which the article with the given index links from its introduction, 
+	 * as {@link Article#linksToIntro()}.
+	 * @param index The index of an article.
+	 * @return The indexes of the articles to which the article links from its introduction.
+	 */
+	public int[] linksToIntro(int index) {
+		return linksTo(index, link -> (linkFlags[link] & INTRO) != 0);
+	}
+
+	/**
+	 * Returns the articles to which the article with the given index links from its infobox, 
+	 * as {@link Article#linksToInfobox()}.
+	 * @param index The index of an article.
+	 * @return The indexes of the articles to which the article links from its infobox.
+	 */
+	public int[] linksToInfobox(int index) {
+		return linksTo(index, link -> (linkFlags[link] & INFOBOX) != 0);
+	}
+
+	/**
+	 * Returns the articles to which the disambiguation article with the given index links as interpretations.
+	 * @param index The index of an article.
+	 * @return The indexes of the articles to which the article links as interpretations.
+	 */
+	public int[] linksToInterpretations(int index) {
+		return linksTo(index, link -> (linkFlags[link] & DISAMBIG) != 0);
+	}
+
+	/**
+	 * Returns the articles that link directly to the article with the given index, as {@link Article#linksFrom()}.
+	 * @param index The index of an article.
+	 * @return The indexes of the articles that link to the article.
+	 */
+	public int[] linksFrom(int index) {
+		return linksFrom(index, link -> true);
+	}
+
+	/**
+	 * Returns the articles that link to the article with the given index such that the first occurrence 
+	 * of the link is within the given maximum rank, as {@link Article#linksFromRank(int)}.
+	 * @param index The index of an article.
+	 * @param maxRank The maximum rank.
+	 * @return The indexes of the articles that link to the article within the maximum rank.
+	 */
+	public int[] linksFromRank(int index, int maxRank) {
+		return linksFrom(index, link -> directRanks[link] <= maxRank);
+	}
+
+	/**
+	 * Returns the articles that link to the article with the given index such that the first occurrence 
+	 * of the link is within the given maximum offset, as {@link Article#linksFromOffset(int)}.
+	 * @param index The index of an article.
+	 * @param maxOffset The maximum offset.
+	 * @return The indexes of the articles that link to the article within the maximum offset.
+	 */
+	public int[] linksFromOffset(int index, int maxOffset) {
+		return linksFrom(index, link -> directTextOffsets[link] <= maxOffset);
+	}
+
+	/**
+	 * Returns the articles that link to the article with the given index from their introduction, 
+	 * as {@link Article#linksFromIntro()}.
+	 * @param index The index of an article.
+	 * @return The indexes of the articles that link to the article from their introduction.
+	 */
+	public int[] linksFromIntro(int index) {
+		return linksFrom(index, link -> (directFlags[link] & INTRO) != 0);
+	}
+
+	/**
+	 * Returns the articles that link to the article with the given index from their infobox, 
+	 * as {@link Article#linksFromInfobox()}.
+	 * @param index The index of an article.
+	 * @return The indexes of the articles that link to the article from their infobox.
+	 */
+	public int[] linksFromInfobox(int index) {
+		return linksFrom(index, link -> (directFlags[link] & INFOBOX) != 0);
+	}
+
+	/**
+	 * Returns the articles with the given indexes in this graph.
+	 * @param indexes The indexes of some articles.
+	 * @return The articles with the given indexes.
+	 */
+	public Set<Article> articles(int[] indexes) {
+		Set<Article> articles = new HashSet<Article>();
+		for ( int index : indexes )
+			articles.add(article(index));
+		return articles;
+	}
+
+	/**
+	 * Returns the targets of the links of an article that pass a filter.
+	 * @param index The index of an article.
+	 * @param filter The filter of the positions of the links.
+	 * @return The indexes of the targets of the links that pass the filter, in increasing order.
+	 */
+	private int[] linksTo(int index, IntPredicate filter) {
+		int[] result = new int[outdegree(index)];
+		int count = 0;
+		for ( int link = offsets[index]; link < offsets[index + 1]; link += 1 )
+			if ( filter.test(link) )
+				result[count++] = targets[link];
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Returns the sources of the direct links to an article that pass a filter.
+	 * The links through a redirect are ignored, since the queries match only the links that point 
+	 * directly to the article.
+	 * @param index The index of an article.
+	 * @param filter The filter of the positions of the direct links in {@link #sources}.
+	 * @return The indexes of the sources of the links that pass the filter, in increasing order.
+	 */
+	private int[] linksFrom(int index, IntPredicate filter) {
+		int[] result = new int[reverseOffsets[index + 1] - reverseOffsets[index]];
+		int count = 0;
+		for ( int link = reverseOffsets[index]; link < reverseOffsets[index + 1]; link += 1 )
+			if ( filter.test(link) )
+				result[count++] = sources[link];
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Returns whether the article with the given index links to another article.
+	 * @param index The index of an article.
+	 * @param target The index of another article.
+	 * @return {@code true} if the article links to the other article, {@code false} otherwise.
+	 */
+	public boolean linksTo(int index, int target) {
+		return Arrays.binarySearch(targets, offsets[index], offsets[index + 1], target) >= 0;
+	}
+
+	/**
+	 * Returns the position of the link of the article with the given index whose cumulative weight 
+	 * is the first to exceed the given weight.
+	 * @param index The index of an article that has links.
+	 * @param weight A weight, between {@code 0} and the total weight of the links of the article.
+	 * @return The position of the link among the links of the article.
+	 */
+	int link(int index, float weight) {
+		int low = offsets[index], high = offsets[index + 1] - 1;
+		while ( low < high ) {
+			int middle = (low + high) >>> 1;
+			if ( weights[middle] > weight )
+				high = middle;
+			else
+				low = middle + 1;
+		}
+		return low - offsets[index];
+	}
+
+	/**
+	 * Returns the total weight of the links of the article with the given index.
+	 * @param index The index of an article that has links.
+	 * @return The total weight of the links of the article.
+	 */
+	float weight(int index) {
+		return weights[offsets[index + 1] - 1];
+	}
+
+	/**
+	 * The articles and the links of a graph while they are read.
+	 *
+	 */
+	private static class Builder {
+
+		/**
+		 * The number of articles that have been read.
+		 */
+		private int size;
+
+		/**
+		 * The identifiers of the nodes of the articles.
+		 */
+		private long[] nodeIds;
+
+		/**
+		 * The flags of the articles.
+		 */
+		private byte[] flags;
+
+		/**
+		 * The number of links that have been read.
+		 */
+		private int links;
+
+		/**
+		 * The identifiers of the nodes of the sources of the links.
+		 */
+		private long[] sources;
+
+		/**
+		 * The identifiers of the nodes of the targets of the links.
+		 */
+		private long[] targets;
+
+		/**
+		 * The ranks of the links.
+		 */
+		private int[] ranks;
+
+		/**
+		 * The offsets of the links in the text of their sources.
+		 */
+		private int[] textOffsets;
+
+		/**
+		 * The flags of the links.
+		 */
+		private byte[] linkFlags;
+
+		/**
+		 * Creates empty columns.
+		 */
+		Builder() {
+			this.nodeIds = new long[1024];
+			this.flags = new byte[1024];
+			this.sources = new long[1024];
+			this.targets = new long[1024];
+			this.ranks = new int[1024];
+			this.textOffsets = new int[1024];
+			this.linkFlags = new byte[1024];
+		}
+
+		/**
+		 * Adds the article read from a record, with its links.
+		 * @param record The record of a scanned article.
+		 */
+		synchronized void add(Record record) {
+			if ( size == nodeIds.length ) {
+				nodeIds = Arrays.copyOf(nodeIds, 2 * size);
+				flags = Arrays.copyOf(flags, 2 * size);
+			}
+			long nodeId = record.get("nodeid").asLong();
+			nodeIds[size] = nodeId;
+			flags[size] = record.get("disambiguation").asBoolean() ? DISAMBIGUATION : 0;
+			size += 1;
+			List<Value> links = record.get("links").asList(value -> value);
+			for ( Value link : links ) {
+				if ( this.links == sources.length ) {
+					sources = Arrays.copyOf(sources, 2 * this.links);
+					targets = Arrays.copyOf(targets, 2 * this.links);
+					ranks = Arrays.copyOf(ranks, 2 * this.links);
+					textOffsets = Arrays.copyOf(textOffsets, 2 * this.links);
+					linkFlags = Arrays.copyOf(linkFlags, 2 * this.links);
+				}
+				sources[this.links] = nodeId;
+				targets[this.links] = link.get(0).asLong();
+				ranks[this.links] = link.get(1).isNull() ? NO_RANK : link.get(1).asInt();
+				textOffsets[this.links] = link.get(2).isNull() ? NO_OFFSET : link.get(2).asInt();
+				linkFlags[this.links] = (byte)((link.get(3).asBoolean() ? INTRO : 0) | (link.get(4).asBoolean() ? INFOBOX : 0)
+						| (link.get(5).asBoolean() ? DISAMBIG : 0) | (link.get(6).asBoolean() ? DIRECT : 0));
+				this.links += 1;
+			}
+		}
+
+	}
+
+}
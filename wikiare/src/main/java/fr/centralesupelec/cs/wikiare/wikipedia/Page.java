@@ -21,7 +21,13 @@
 //
 package fr.centralesupelec.cs.wikiare.wikipedia;
 
+import java.util.List;
+
 import org.neo4j.driver.v1.Driver;
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.Values;
+import org.neo4j.driver.v1.types.MapAccessor;
 
 /**
  * A Wikipedia page.
@@ -30,9 +36,9 @@ import org.neo4j.driver.v1.Driver;
 public abstract class Page {
 	
 	/**
-	 * The driver used to connect to the underlying Neo4j database.
+	 * The factory that creates the pages of the underlying Neo4j database.
 	 */
-	private Driver driver;
+	private PageFactory factory;
 	
 	/**
 	 * The identifier of the node in the Neo4j database that corresponds to this page.
@@ -40,48 +46,31 @@ public abstract class Page {
 	private long nodeIdentifier;
 	
 	/**
-	 * Whether the attributes of this page need to be loaded to memory from the underlying Neo4j database.
-	 * The first time a page is loaded from the underlying Neo4j database, only its identifier is 
-	 * obtained (this to reduce the response time).
-	 * The first time an attribute of this page is requested, all its attributes are loaded to memory and
-	 * the field loadAttirbutes is set to false.    
-	 */
-	private boolean loadAttributes;
-	
-	/**
-	 * The title of this page.
-	 */
-	private String title;
-	
-	/**
-	 * The language of the Wikipedia edition of this page.
-	 */
-	private String language;
-	
-	/**
-	 * The identifier in Wikipedia of this page.
+	 * The attributes of this page that are loaded the first time an attribute is requested.
 	 */
-	private String wikiid;
+	private Projection projection;
 	
 	/**
-	 * The number of categories that are parent of this page.
+	 * The attributes of this page, once they are loaded, {@code null} otherwise.
+	 * The first time a page is loaded from the underlying Neo4j database, only its identifier is 
+	 * obtained (this to reduce the response time).
+	 * The first time an attribute of this page is requested, the attributes of its projection are loaded 
+	 * and published with a single write, so that a thread never sees a page whose attributes are partially set;
+	 * the other attributes are loaded and published the same way when they are requested.
 	 */
-	private int parents;
+	private volatile PageAttributes attributes;
 	
 	/**
 	 * Initializes the fields of the new page.
-	 * @param driver The driver used to connect to the underlying Neo4j database.
+	 * @param factory The factory that creates the pages of the underlying Neo4j database.
 	 * @param nodeIdentifier The identifier in the underlying Neo4j database of the node
 	 * corresponding to the new page.
 	 */
-	protected Page(Driver driver, long nodeIdentifier) {
-		this.driver = driver;
+	protected Page(PageFactory factory, long nodeIdentifier) {
+		this.factory = factory;
 		this.nodeIdentifier = nodeIdentifier;
-		this.title = null;
-		this.language = null;
-		this.wikiid = null;
-		this.parents = -1;
-		this.loadAttributes = true;
+		this.projection = factory.projection();
+		this.attributes = null;
 	}
 	
 	
@@ -90,15 +79,17 @@ public abstract class Page {
 	 * @return The title of this page.
 	 */
 	public String title() {
-		return this.title;
+		return attributes(PageAttributes.TITLE).title();
 	}
 	
 	/**
 	 * Sets the title of this page.
 	 * @param title The title of this page.
 	 */
-	public void title(String title) {
-		this.title = title;
+	public synchronized void title(String title) {
+		PageAttributes attributes = modifiableAttributes(PageAttributes.TITLE);
+		attributes.title = title;
+		this.attributes = attributes;
 	}
 	
 	/**
@@ -106,15 +97,17 @@ public abstract class Page {
 	 * @return The code of the language of the Wikipedia edition to which this page belongs.
 	 */
 	public String language() {
-		return this.language;
+		return attributes(PageAttributes.LANGUAGE).language();
 	}
 	
 	/**
 	 * Sets the code of the language of the Wikipedia edition of this page. 
 	 * @param language The code of the language of the Wikipedia edition of this page.
 	 */
-	public void language(String language) {
-		this.language = language;
+	public synchronized void language(String language) {
+		PageAttributes attributes = modifiableAttributes(PageAttributes.LANGUAGE);
+		attributes.language = language;
+		this.attributes = attributes;
 	}
 	
 	/**
@@ -122,15 +115,17 @@ public abstract class Page {
 	 * @return The Wikipedia identifier of this page.
 	 */
 	public String wikiid() {
-		return this.wikiid;
+		return attributes(PageAttributes.WIKIID).wikiid();
 	}
 	
 	/**
 	 * Sets the Wikipedia identifier of this page.
 	 * @param wikiid The Wikipedia identifier of this page.
 	 */
-	public void wikiid(String wikiid) {
-		this.wikiid = wikiid;
+	public synchronized void wikiid(String wikiid) {
+		PageAttributes attributes = modifiableAttributes(PageAttributes.WIKIID);
+		attributes.wikiid = wikiid;
+		this.attributes = attributes;
 	}
 	
 	/**
@@ -138,15 +133,33 @@ public abstract class Page {
 	 * @return The number of categories that contain this page.
 	 */
 	public int parents() {
-		return this.parents;
+		return attributes(PageAttributes.PARENTS).parents();
 	}
 	
 	/**
 	 * Sets the number of categories that contain this page.
 	 * @param parents The number of categories that contain this page.
 	 */
-	public void parents(int parents){
-		this.parents = parents;
+	public synchronized void parents(int parents){
+		PageAttributes attributes = modifiableAttributes(PageAttributes.PARENTS);
+		attributes.parents = parents;
+		this.attributes = attributes;
+	}
+	
+	/**
+	 * Returns the attributes of this page that are loaded the first time an attribute is requested.
+	 * @return The projection of the attributes of this page.
+	 */
+	public Projection projection() {
+		return this.projection;
+	}
+	
+	/**
+	 * Sets the attributes of this page that are loaded the first time an attribute is requested.
+	 * @param projection The projection of the attributes of this page.
+	 */
+	public void projection(Projection projection) {
+		this.projection = projection;
 	}
 
 	/**
@@ -154,27 +167,140 @@ public abstract class Page {
 	 * @return The driver used to connect to the underlying Neo4j database.
 	 */
 	protected Driver driver() {
-		return this.driver;
+		return this.factory.driver();
+	}
+	
+	/**
+	 * Returns the factory that creates the pages of the underlying Neo4j database.
+	 * @return The factory that creates the pages of the underlying Neo4j database.
+	 */
+	protected PageFactory factory() {
+		return this.factory;
+	}
+	
+	/**
+	 * Returns the attributes of this page, making sure that the given attributes are loaded.
+	 * The first time an attribute is requested, the attributes of the projection of this page are loaded 
+	 * together with the requested ones; afterwards, requesting an attribute that is not loaded loads all 
+	 * the missing attributes.
+	 * Once the attributes are loaded, they are returned without any synchronization; the threads that 
+	 * request them while they are being loaded wait for the single load in progress.
+	 * @param requested The flags of the requested attributes.
+	 * @return The attributes of this page.
+	 */
+	PageAttributes attributes(int requested) {
+		PageAttributes attributes = this.attributes;
+		if ( attributes != null && attributes.has(requested) )
+			return attributes;
+		synchronized (this) {
+			attributes = this.attributes;
+			if ( attributes != null && attributes.has(requested) )
+				return attributes;
+			int missing = attributes == null ? (projection.attributes() | requested) & allAttributes() 
+					: allAttributes() & ~attributes.loaded;
+			merge(loadAttributesFromNeo4j(missing), missing);
+			return this.attributes;
+		}
+	}
+	
+	/**
+	 * Returns a copy of the attributes of this page where the given attribute can be set.
+	 * The attribute is not loaded, since it is about to be replaced.
+	 * @param attribute The flag of the attribute that is set.
+	 * @return A copy of the attributes of this page, that can be modified before it is published.
+	 */
+	PageAttributes modifiableAttributes(int attribute) {
+		PageAttributes attributes = this.attributes != null ? this.attributes.copy() : createAttributes();
+		attributes.loaded |= attribute;
+		return attributes;
+	}
+	
+	/**
+	 * Returns the attributes of this page that are loaded, without loading any attribute.
+	 * @return The attributes of this page that are loaded, or {@code null} if no attribute is loaded.
+	 */
+	PageAttributes loadedAttributes() {
+		return this.attributes;
+	}
+	
+	/**
+	 * Publishes the attributes of this page, that are no longer loaded from the underlying Neo4j database.
+	 * @param attributes The attributes of this page.
+	 */
+	void attributes(PageAttributes attributes) {
+		this.attributes = attributes;
 	}
 	
 	/**
-	 * Returns whether the attributes of this page need to be loaded from the underlying Neo4j database.
-	 * @return {@code true} if the attributes of this page need to be loaded from the underlying Neo4j database,
-	 * {@code false} otherwise.
+	 * Sets all the attributes of this page from the given values, that are usually the properties 
+	 * of the node corresponding to this page in the underlying Neo4j database.
+	 * After this method is invoked, the attributes of this page are no longer loaded from the underlying
+	 * Neo4j database.
+	 * @param values The values of the attributes, indexed by the names of the properties of the node.
 	 */
-	protected boolean loadAttributes() {
-		return this.loadAttributes;
+	void attributes(MapAccessor values) {
+		PageAttributes attributes = createAttributes();
+		attributes.assign(values, allAttributes());
+		this.attributes = attributes;
 	}
 	
 	/**
-	 * Sets whether the attributes of this page need to be loaded from the underlying Neo4j database.
-	 * @param loadAttributes {@code true} if the the attributes of this page need to be loaded from the underlying Neo4j database,
-	 * {@code false} otherwise.
+	 * Sets some attributes of this page from the given values, and publishes them together with 
+	 * the attributes that are already loaded.
+	 * @param values The values of the attributes, indexed by the names of the properties of the node, 
+	 * or {@code null} if the node does not exist.
+	 * @param loaded The flags of the attributes that are set.
 	 */
-	protected void loadAttributes(boolean loadAttributes) {
-		this.loadAttributes = loadAttributes;
+	synchronized void merge(MapAccessor values, int loaded) {
+		PageAttributes attributes = this.attributes != null ? this.attributes.copy() : createAttributes();
+		attributes.assign(values, loaded);
+		this.attributes = attributes;
 	}
 	
+	/**
+	 * Loads the given attributes of this page from the underlying Neo4j database, unless they are 
+	 * in the persistent cache of the attributes.
+	 * If the factory of this page batches the loads of the attributes, the attributes are loaded 
+	 * together with those of the other pages requested at the same time.
+	 * @param requested The flags of the requested attributes.
+	 * @return The values of the attributes, indexed by the names of the properties of the node, 
+	 * or {@code null} if the node does not exist.
+	 */
+	MapAccessor loadAttributesFromNeo4j(int requested) {
+		AttributeCache cache = factory.attributeCache();
+		Value cached = cache != null ? cache.get(nodeIdentifier) : null;
+		if ( cached != null )
+			return cached;
+		AttributeLoader loader = factory.attributeLoader();
+		if ( loader != null )
+			return loader.load(this, requested);
+		List<Record> records = factory.query("MATCH (n:" + label() + ") WHERE id(n)={nodeid} return " 
+				+ PageAttributes.projection("n", requested) + " as attributes", Values.parameters("nodeid", nodeIdentifier));
+		if ( records.isEmpty() )
+			return null;
+		Value attributes = records.get(0).get("attributes");
+		if ( cache != null && requested == allAttributes() )
+			cache.put(nodeIdentifier, attributes);
+		return attributes;
+	}
+	
+	/**
+	 * Returns the label of the node corresponding to this page in the underlying Neo4j database.
+	 * @return The label of the node corresponding to this page.
+	 */
+	abstract String label();
+	
+	/**
+	 * Returns the flags of all the attributes of this page.
+	 * @return The flags of all the attributes of this page.
+	 */
+	abstract int allAttributes();
+	
+	/**
+	 * Creates the attributes of this page, none of which is loaded.
+	 * @return The attributes of this page, none of which is loaded.
+	 */
+	abstract PageAttributes createAttributes();
 	
 	/**
 	 * Returns the identifier of the node in the underyling Neo4j database that corresponds to this page.
@@ -200,5 +326,27 @@ public abstract class Page {
 		return false;
 	}
 	
+	/**
+	 * Returns the hash code of this page, that depends only on the node corresponding to this page.
+	 * @return The hash code of this page.
+	 */
+	@Override
+	public int hashCode() {
+		return Long.hashCode(nodeIdentifier);
+	}
+	
+	/**
+	 * Returns whether this page and another object are the same page, that is they correspond 
+	 * to the same node in the underlying Neo4j database.
+	 * @param obj An object.
+	 * @return {@code true} if the object is a page corresponding to the same node, {@code false} otherwise.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if ( !(obj instanceof Page) )
+			return false;
+		return nodeIdentifier == ((Page)obj).nodeIdentifier;
+	}
+	
 
 }
@@ -0,0 +1,238 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import org.neo4j.driver.v1.types.MapAccessor;
+
+/**
+ * The attributes of a page, once they are loaded from the underlying Neo4j database.
+ * The attributes may be loaded partially, as specified by a {@link Projection}: the record keeps 
+ * track of the attributes that have been loaded, so that the others are loaded when requested.
+ * A record is never modified after it is published to a page: changing an attribute of a page 
+ * publishes a modified copy of its record, so that the record can be read by several threads without 
+ * any synchronization.
+ *
+ */
+abstract class PageAttributes {
+
+	/**
+	 * The flag of the title of a page.
+	 */
+	static final int TITLE = 1;
+
+	/**
+	 * The flag of the language of a page.
+	 */
+	static final int LANGUAGE = 1 << 1;
+
+	/**
+	 * The flag of the Wikipedia identifier of a page.
+	 */
+	static final int WIKIID = 1 << 2;
+
+	/**
+	 * The flag of the number of parent categories of a page.
+	 */
+	static final int PARENTS = 1 << 3;
+
+	/**
+	 * The flag of the outdegree of an article.
+	 */
+	static final int OUTDEGREE = 1 << 4;
+
+	/**
+	 * The flag of the indegree of an article.
+	 */
+	static final int INDEGREE = 1 << 5;
+
+	/**
+	 * The flag of the globe of the spatial entity described by an article.
+	 */
+	static final int GLOBE = 1 << 6;
+
+	/**
+	 * The flag of the latitude of the spatial entity described by an article.
+	 */
+	static final int LATITUDE = 1 << 7;
+
+	/**
+	 * The flag of the longitude of the spatial entity described by an article.
+	 */
+	static final int LONGITUDE = 1 << 8;
+
+	/**
+	 * The flag of the type of the spatial entity described by an article.
+	 */
+	static final int TYPE = 1 << 9;
+
+	/**
+	 * The flag of the number of children categories of a category.
+	 */
+	static final int CHILDREN = 1 << 10;
+
+	/**
+	 * The flag of the number of articles of a category.
+	 */
+	static final int SIZE = 1 << 11;
+
+	/**
+	 * The names of the properties of the nodes that hold the attributes, indexed by the position of their flags.
+	 */
+	private static final String[] PROPERTIES = { "title", "lang", "wikiid", "parents", "outdegree", "indegree", 
+			"globe", "latitude", "longitude", "type", "children", "size" };
+
+	/**
+	 * The flags of the attributes that have been loaded.
+	 */
+	int loaded;
+
+	/**
+	 * The title of the page.
+	 */
+	String title;
+
+	/**
+	 * The language of the Wikipedia edition of the page.
+	 */
+	String language;
+
+	/**
+	 * The identifier in Wikipedia of the page.
+	 */
+	String wikiid;
+
+	/**
+	 * The number of categories that are parent of the page.
+	 */
+	int parents;
+
+	/**
+	 * Creates the attributes of a page, none of which is loaded.
+	 */
+	PageAttributes() {
+		this.loaded = 0;
+		this.title = null;
+		this.language = null;
+		this.wikiid = null;
+		this.parents = -1;
+	}
+
+	/**
+	 * Creates a copy of the given attributes.
+	 * @param attributes The attributes of a page.
+	 */
+	PageAttributes(PageAttributes attributes) {
+		this.loaded = attributes.loaded;
+		this.title = attributes.title();
+		this.language = attributes.language();
+		this.wikiid = attributes.wikiid();
+		this.parents = attributes.parents();
+	}
+
+	/**
+	 * Returns the title of the page.
+	 * @return The title of the page.
+	 */
+	String title() {
+		return this.title;
+	}
+
+	/**
+	 * Returns the language of the Wikipedia edition of the page.
+	 * @return The language of the Wikipedia edition of the page.
+	 */
+	String language() {
+		return this.language;
+	}
+
+	/**
+	 * Returns the identifier in Wikipedia of the page.
+	 * @return The identifier in Wikipedia of the page.
+	 */
+	String wikiid() {
+		return this.wikiid;
+	}
+
+	/**
+	 * Returns the number of categories that are parent of the page.
+	 * @return The number of categories that are parent of the page.
+	 */
+	int parents() {
+		return this.parents;
+	}
+
+	/**
+	 * Returns whether the given attributes have been loaded.
+	 * @param attributes The flags of some attributes.
+	 * @return {@code true} if all the given attributes have been loaded, {@code false} otherwise.
+	 */
+	boolean has(int attributes) {
+		return (loaded & attributes) == attributes;
+	}
+
+	/**
+	 * Sets the given attributes from the given values, and marks them as loaded.
+	 * This method is only invoked on a record that has not been published yet.
+	 * @param values The values of the attributes, indexed by the names of the properties of the node 
+	 * corresponding to the page, or {@code null} if the node does not exist.
+	 * @param attributes The flags of the attributes that are set.
+	 */
+	void assign(MapAccessor values, int attributes) {
+		if ( values != null ) {
+			if ( (attributes & TITLE) != 0 )
+				this.title = values.get("title").isNull() ? null : values.get("title").asString();
+			if ( (attributes & LANGUAGE) != 0 )
+				this.language = values.get("lang").isNull() ? null : values.get("lang").asString();
+			if ( (attributes & WIKIID) != 0 )
+				this.wikiid = values.get("wikiid").isNull() ? null : values.get("wikiid").asString();
+			if ( (attributes & PARENTS) != 0 )
+				this.parents = values.get("parents").isNull() ? -1 : values.get("parents").asInt();
+		}
+		this.loaded |= attributes;
+	}
+
+	/**
+	 * Returns a copy of these attributes, that can be modified before it is published.
+	 * @return A copy of these attributes.
+	 */
+	abstract PageAttributes copy();
+
+	/**
+	 * Returns the Cypher expression that maps the names of the given attributes to the properties 
+	 * of a node.
+	 * @param variable The name of the variable in the query that indicates the node.
+	 * @param attributes The flags of the attributes.
+	 * @return The Cypher expression that returns the given attributes of a page.
+	 */
+	static String projection(String variable, int attributes) {
+		StringBuilder projection = new StringBuilder("{");
+		for ( int i = 0; i < PROPERTIES.length; i += 1 ) {
+			if ( (attributes & (1 << i)) == 0 )
+				continue;
+			if ( projection.length() > 1 )
+				projection.append(", ");
+			projection.append(PROPERTIES[i]).append(": ").append(variable).append(".").append(PROPERTIES[i]);
+		}
+		return projection.append("}").toString();
+	}
+
+}
@@ -21,14 +21,25 @@
 //
 package fr.centralesupelec.cs.wikiare.wikipedia;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.neo4j.driver.v1.Driver;
 import org.neo4j.driver.v1.Record;
 import org.neo4j.driver.v1.Session;
 import org.neo4j.driver.v1.StatementResult;
 import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.Values;
 import org.neo4j.driver.v1.types.Node;
 
 /**
@@ -42,6 +53,82 @@ public class PageFactory {
 	 * The driver used to connect to the underlying Neo4j database.
 	 */
 	private Driver driver;
+	
+	/**
+	 * The persistent cache of the attributes of the pages, if any, {@code null} otherwise.
+	 */
+	private AttributeCache attributeCache;
+	
+	/**
+	 * The loader that batches the loads of the attributes of the pages, if any, {@code null} otherwise.
+	 */
+	private AttributeLoader attributeLoader;
+	
+	/**
+	 * The attributes of the pages created by this factory that are loaded the first time an attribute is requested.
+	 */
+	private Projection projection;
+	
+	/**
+	 * The in-memory table of the attributes of the articles created by this factory.
+	 */
+	private volatile ArticleTable articleTable;
+	
+	/**
+	 * The in-memory graph of the links between the articles created by this factory.
+	 */
+	private volatile LinkGraph linkGraph;
+	
+	/**
+	 * The in-memory indexes of the hierarchies of the categories, indexed by language.
+	 */
+	private Map<String, CategoryIndex> categoryIndexes;
+	
+	/**
+	 * The in-memory tables of the targets of the redirects, indexed by language.
+	 */
+	private Map<String, RedirectTable> redirectTables;
+	
+	/**
+	 * The queries that are running, with the future results shared by all the callers that 
+	 * run the same query with the same parameters at the same time.
+	 */
+	private Map<QueryKey, CompletableFuture<List<Record>>> runningQueries;
+	
+	/**
+	 * The log of the slow queries, if any, {@code null} otherwise.
+	 */
+	private volatile SlowQueryLog slowQueryLog;
+	
+	/**
+	 * The limits of the queries run outside of any scope.
+	 */
+	private volatile QueryLimits limits;
+	
+	/**
+	 * The scope open in each thread.
+	 */
+	private ThreadLocal<QueryScope> scopes;
+	
+	/**
+	 * The number of queries aborted because they exceeded their timeout.
+	 */
+	private AtomicLong timeouts;
+	
+	/**
+	 * The number of queries aborted because they have been cancelled.
+	 */
+	private AtomicLong cancellations;
+	
+	/**
+	 * The number of queries aborted because they returned too many records.
+	 */
+	private AtomicLong overflows;
+	
+	/**
+	 * The number of queries truncated because they returned too many records.
+	 */
+	private AtomicLong truncations;
 
 	/**
 	 * Creates a new {@code PageFactory}.
@@ -49,6 +136,330 @@ public class PageFactory {
 	 */
 	public PageFactory(Driver driver) {
 		this.driver = driver;
+		this.attributeCache = null;
+		this.attributeLoader = null;
+		this.projection = Projection.ALL;
+		this.runningQueries = new ConcurrentHashMap<QueryKey, CompletableFuture<List<Record>>>();
+		this.categoryIndexes = new ConcurrentHashMap<String, CategoryIndex>();
+		this.redirectTables = new ConcurrentHashMap<String, RedirectTable>();
+		this.limits = QueryLimits.NONE;
+		this.scopes = new ThreadLocal<QueryScope>();
+		this.timeouts = new AtomicLong();
+		this.cancellations = new AtomicLong();
+		this.overflows = new AtomicLong();
+		this.truncations = new AtomicLong();
+	}
+	
+	/**
+	 * Returns the driver used to connect to the underlying Neo4j database.
+	 * @return The driver used to connect to the underlying Neo4j database.
+	 */
+	Driver driver() {
+		return this.driver;
+	}
+	
+	/**
+	 * Returns the persistent cache of the attributes of the pages created by this factory.
+	 * @return The persistent cache of the attributes of the pages, if any, {@code null} otherwise.
+	 */
+	public AttributeCache attributeCache() {
+		return this.attributeCache;
+	}
+	
+	/**
+	 * Sets the persistent cache of the attributes of the pages created by this factory.
+	 * The attributes of a page are read from the cache, if they are there, before being loaded from the underlying 
+	 * Neo4j database.
+	 * @param attributeCache The persistent cache of the attributes of the pages, or {@code null} to use no cache.
+	 */
+	public void attributeCache(AttributeCache attributeCache) {
+		this.attributeCache = attributeCache;
+	}
+
+	/**
+	 * Returns the loader that batches the loads of the attributes of the pages created by this factory.
+	 * @return The loader that batches the loads of the attributes, if any, {@code null} otherwise.
+	 */
+	public AttributeLoader attributeLoader() {
+		return this.attributeLoader;
+	}
+	
+	/**
+	 * Sets the loader that batches the loads of the attributes of the pages created by this factory.
+	 * @param attributeLoader The loader that batches the loads of the attributes, or {@code null} to load 
+	 * the attributes of each page with its own query.
+	 */
+	public void attributeLoader(AttributeLoader attributeLoader) {
+		this.attributeLoader = attributeLoader;
+	}
+
+	/**
+	 * Returns the in-memory table of the attributes of the articles created by this factory.
+	 * @return The table of the attributes of the articles, if any, {@code null} otherwise.
+	 */
+	public ArticleTable articleTable() {
+		return this.articleTable;
+	}
+	
+	/**
+	 * Sets the in-memory table of the attributes of the articles created by this factory.
+	 * The articles of the table that are created by this factory are views onto their rows, whose attributes 
+	 * are never loaded from the underlying Neo4j database.
+	 * @param articleTable The table of the attributes of the articles, or {@code null} to use no table.
+	 */
+	public void articleTable(ArticleTable articleTable) {
+		this.articleTable = articleTable;
+	}
+
+	/**
+	 * Returns the in-memory graph of the links between the articles created by this factory.
+	 * @return The graph of the links, if any, {@code null} otherwise.
+	 */
+	public LinkGraph linkGraph() {
+		return this.linkGraph;
+	}
+	
+	/**
+	 * Sets the in-memory graph of the links between the articles created by this factory.
+	 * The articles of the graph filter their links in memory, instead of querying the underlying 
+	 * Neo4j database.
+	 * @param linkGraph The graph of the links, or {@code null} to use no graph.
+	 */
+	public void linkGraph(LinkGraph linkGraph) {
+		this.linkGraph = linkGraph;
+	}
+
+	/**
+	 * Returns the in-memory index of the hierarchy of the categories of the given language edition.
+	 * @param language The language of the Wikipedia edition.
+	 * @return The index of the categories of the language edition, if any, {@code null} otherwise.
+	 */
+	public CategoryIndex categoryIndex(String language) {
+		return categoryIndexes.get(language);
+	}
+	
+	/**
+	 * Sets the in-memory index of the hierarchy of the categories of the language edition of the index.
+	 * @param categoryIndex The index of the categories of a language edition.
+	 */
+	public void categoryIndex(CategoryIndex categoryIndex) {
+		categoryIndexes.put(categoryIndex.language(), categoryIndex);
+	}
+
+	/**
+	 * Returns the in-memory table of the targets of the redirects of the given language edition.
+	 * @param language The language of the Wikipedia edition.
+	 * @return The table of the redirects of the language edition, if any, {@code null} otherwise.
+	 */
+	public RedirectTable redirectTable(String language) {
+		return redirectTables.get(language);
+	}
+	
+	/**
+	 * Sets the in-memory table of the targets of the redirects of the language edition of the table.
+	 * From then on, the redirects of the language edition are resolved without querying the underlying 
+	 * Neo4j database.
+	 * @param redirectTable The table of the redirects of a language edition.
+	 */
+	public void redirectTable(RedirectTable redirectTable) {
+		redirectTables.put(redirectTable.language(), redirectTable);
+	}
+	
+	/**
+	 * Returns the in-memory table that contains the redirect corresponding to the given node.
+	 * @param nodeIdentifier The identifier of the node of a redirect.
+	 * @return The table that contains the redirect, if any, {@code null} otherwise.
+	 */
+	RedirectTable redirectTableOf(long nodeIdentifier) {
+		for ( RedirectTable redirectTable : redirectTables.values() )
+			if ( redirectTable.contains(nodeIdentifier) )
+				return redirectTable;
+		return null;
+	}
+
+	/**
+	 * Returns the log of the queries of this factory that are slow.
+	 * @return The log of the slow queries, if any, {@code null} otherwise.
+	 */
+	public SlowQueryLog slowQueryLog() {
+		return this.slowQueryLog;
+	}
+	
+	/**
+	 * Sets the log of the queries of this factory that are slow.
+	 * @param slowQueryLog The log of the slow queries, or {@code null} to log no query.
+	 */
+	public void slowQueryLog(SlowQueryLog slowQueryLog) {
+		this.slowQueryLog = slowQueryLog;
+	}
+	
+	/**
+	 * Returns the limits of the queries that are run outside of any scope.
+	 * @return The default limits of the queries.
+	 */
+	public QueryLimits limits() {
+		return this.limits;
+	}
+	
+	/**
+	 * Sets the limits of the queries that are run outside of any scope.
+	 * The timeout of these limits applies to each query separately.
+	 * @param limits The default limits of the queries.
+	 */
+	public void limits(QueryLimits limits) {
+		this.limits = limits;
+	}
+	
+	/**
+	 * Opens a scope in the current thread, so that all the queries that the thread runs until the scope 
+	 * is closed share the given limits and the same deadline.
+	 * @param limits The limits of the queries of the scope.
+	 * @return The scope, that must be closed by the current thread.
+	 */
+	public QueryScope scope(QueryLimits limits) {
+		QueryScope scope = new QueryScope(this, limits, scopes.get());
+		scopes.set(scope);
+		return scope;
+	}
+	
+	/**
+	 * Returns the scope open in the current thread.
+	 * @return The scope open in the current thread, if any, {@code null} otherwise.
+	 */
+	QueryScope currentScope() {
+		return scopes.get();
+	}
+	
+	/**
+	 * Runs a task in the current thread within the scope of another thread, so that the queries of the task 
+	 * share the limits and the deadline of that scope.
+	 * @param scope The scope of the other thread, or {@code null} to run the task outside of any scope.
+	 * @param task The task.
+	 */
+	void within(QueryScope scope, Runnable task) {
+		QueryScope previous = scopes.get();
+		if ( scope != null )
+			scopes.set(scope);
+		else
+			scopes.remove();
+		try {
+			task.run();
+		} finally {
+			if ( previous != null )
+				scopes.set(previous);
+			else
+				scopes.remove();
+		}
+	}
+	
+	/**
+	 * Closes a scope, so that the scope that was open in the current thread when the scope was opened 
+	 * applies again.
+	 * @param scope A scope opened by the current thread.
+	 */
+	void close(QueryScope scope) {
+		if ( scopes.get() == scope ) {
+			if ( scope.enclosing() != null )
+				scopes.set(scope.enclosing());
+			else
+				scopes.remove();
+		}
+	}
+	
+	/**
+	 * Returns the number of queries aborted because they exceeded their timeout.
+	 * @return The number of queries aborted because they exceeded their timeout.
+	 */
+	public long timeouts() {
+		return this.timeouts.get();
+	}
+	
+	/**
+	 * Returns the number of queries aborted because they have been cancelled.
+	 * @return The number of queries aborted because they have been cancelled.
+	 */
+	public long cancellations() {
+		return this.cancellations.get();
+	}
+	
+	/**
+	 * Returns the number of queries aborted because they returned too many records.
+	 * @return The number of queries aborted because they returned too many records.
+	 */
+	public long overflows() {
+		return this.overflows.get();
+	}
+	
+	/**
+	 * Returns the number of queries truncated because they returned too many records.
+	 * @return The number of queries truncated because they returned too many records.
+	 */
+	public long truncations() {
+		return this.truncations.get();
+	}
+	
+	/**
+	 * Counts an aborted query, and returns the exception that aborts it.
+	 * @param reason The reason why the query is aborted.
+	 * @param message The message of the exception.
+	 * @return The exception that aborts the query.
+	 */
+	QueryAbortedException abort(QueryAbortedException.Reason reason, String message) {
+		switch ( reason ) {
+		case TIMEOUT:
+			timeouts.incrementAndGet();
+			break;
+		case CANCELLED:
+			cancellations.incrementAndGet();
+			break;
+		case MAX_ROWS:
+			overflows.incrementAndGet();
+			break;
+		}
+		return new QueryAbortedException(reason, message);
+	}
+
+	/**
+	 * Returns the attributes of the pages created by this factory that are loaded the first time 
+	 * an attribute is requested.
+	 * @return The projection of the attributes of the pages created by this factory.
+	 */
+	public Projection projection() {
+		return this.projection;
+	}
+	
+	/**
+	 * Sets the attributes of the pages created by this factory that are loaded the first time 
+	 * an attribute is requested. The other attributes are loaded only if they are requested later.
+	 * @param projection The projection of the attributes of the pages created by this factory.
+	 */
+	public void projection(Projection projection) {
+		this.projection = projection;
+	}
+	
+	/**
+	 * Returns the article with the given title, whose attributes of the given projection are loaded 
+	 * with the same query.
+	 * @param title The title of an article.
+	 * @param language The language of the Wikipedia edition where the article is searched.
+	 * @param projection The attributes of the article that are loaded.
+	 * @return The article with the given title in the given language edition, if any; {@code null} otherwise.
+	 */
+	public Article findArticle(String title, String language, Projection projection) {
+		List<Record> records = query("MATCH (n:Article) WHERE n.title={title} AND n.lang={lang} "
+				+ "RETURN id(n) AS nodeid, n:Redirect AS redirect, n:Disambiguation AS disambiguation, " 
+				+ PageAttributes.projection("n", projection.attributes() & ArticleAttributes.ALL) + " AS attributes", 
+				Values.parameters("title", title, "lang", language));
+		if ( records.isEmpty() )
+			return null;
+		Record record = records.get(0);
+		long nodeIdentifier = record.get("nodeid").asLong();
+		Article article = record.get("redirect").asBoolean() ? tabulated(new RedirectArticle(this, nodeIdentifier)) 
+				: createArticleById(nodeIdentifier, record.get("disambiguation").asBoolean());
+		article.projection(projection);
+		if ( article.loadedAttributes() == null )
+			article.merge(record.get("attributes"), projection.attributes() & ArticleAttributes.ALL);
+		return article;
 	}
 
 	/**
@@ -58,19 +469,33 @@ public class PageFactory {
 	 * if the node does not correspond to any article.
 	 */
 	public Article createArticle(Node node) {
+		return createArticle(node, false);
+	}
+	
+	/**
+	 * Creates the article corresponding to a given node in the underlying Neo4j database.
+	 * @param node A node in the underlying Neo4j database.
+	 * @param loadAttributes Whether the attributes of the article are set from the properties of the node,
+	 * instead of being loaded from the underlying Neo4j database the first time they are requested. 
+	 * @return The article corresponding to a given node in the underlying Neo4j database, or {@code null}
+	 * if the node does not correspond to any article.
+	 */
+	public Article createArticle(Node node, boolean loadAttributes) {
 		if (node == null)
 			return null;
 		Article article = null;
-		Session session = driver.session();
 		if ( node.hasLabel("Article") ) {
 			if ( node.hasLabel("Redirect") )
-				article = new RedirectArticle(driver, node.id());
+				article = new RedirectArticle(this, node.id());
 			else if ( node.hasLabel("Disambiguation") )
-				article = new DisambiguationArticle(driver, node.id());
+				article = new DisambiguationArticle(this, node.id());
 			else
-				article = new Article(driver, node.id());
+				article = new Article(this, node.id());
+			if ( loadAttributes )
+				article.attributes(node);
+			else
+				tabulated(article);
 		}
-		session.close();
 		return article;
 	}
 	
@@ -83,9 +508,7 @@ public class PageFactory {
 	 */
 	public Set<Article> createArticles(String query, Value parameters, String targetArticleVariable) {
 		Set<Article> targetArticles = new HashSet<Article>();
-		Session session = driver.session();
-		StatementResult result = parameters != null ? session.run(query, parameters) : session.run(query);
-		for ( Record record : result.list() ) {
+		for ( Record record : query(query, parameters) ) {
 			Node targetNode = record.get(targetArticleVariable).asNode();
 			Article targetArticle = createArticle(targetNode);
 			if ( targetArticle.isRedirect() )
@@ -93,10 +516,80 @@ public class PageFactory {
 			if ( targetArticle != null )
 				targetArticles.add(targetArticle);
 		}
-		session.close();
 		return targetArticles;
 	}
 	
+	/**
+	 * Returns a set of articles as a result of a query, whose attributes of the given projection are loaded 
+	 * by the same query.
+	 * @param match The query without its {@code RETURN} clause, where the redirects are already resolved.
+	 * @param parameters The parameters of the query, if any, {@code null} otherwise.
+	 * @param targetArticleVariable The name of the variable in the query that indicates the target article 
+	 * that is returned by the query.
+	 * @param projection The attributes of the articles that are loaded.
+	 * @return The set of articles as the result of the query.
+	 */
+	public Set<Article> createArticles(String match, Value parameters, String targetArticleVariable, 
+			Projection projection) {
+		Set<Article> targetArticles = new HashSet<Article>();
+		for ( Record record : query(match + "RETURN DISTINCT id(" + targetArticleVariable + ") AS nodeid, " 
+				+ targetArticleVariable + ":Disambiguation AS disambiguation, " 
+				+ PageAttributes.projection(targetArticleVariable, projection.attributes() & ArticleAttributes.ALL) 
+				+ " AS attributes", parameters) )
+			targetArticles.add(createArticle(record, projection));
+		return targetArticles;
+	}
+	
+	/**
+	 * Creates the article corresponding to a record that contains the identifier of its node, under the key 
+	 * {@code nodeid}, whether it is a disambiguation article, under the key {@code disambiguation}, and 
+	 * the attributes of the given projection, under the key {@code attributes}.
+	 * The node is known not to be a redirect.
+	 * @param record The record of the article.
+	 * @param projection The attributes of the article in the record.
+	 * @return The article corresponding to the record.
+	 */
+	Article createArticle(Record record, Projection projection) {
+		Article article = createArticleById(record.get("nodeid").asLong(), record.get("disambiguation").asBoolean());
+		article.projection(projection);
+		if ( article.loadedAttributes() == null )
+			article.merge(record.get("attributes"), projection.attributes() & ArticleAttributes.ALL);
+		return article;
+	}
+	
+	/**
+	 * Returns the identifiers of a set of articles as a result of a query, without creating the articles.
+	 * @param match The query without its {@code RETURN} clause, where the redirects are already resolved.
+	 * @param parameters The parameters of the query, if any, {@code null} otherwise.
+	 * @param targetArticleVariable The name of the variable in the query that indicates the target article 
+	 * that is returned by the query.
+	 * @return The set of the identifiers of the articles as the result of the query.
+	 */
+	public PageIdSet<Article> articleIds(String match, Value parameters, String targetArticleVariable) {
+		List<Record> records = query(match + "RETURN DISTINCT id(" + targetArticleVariable + ") AS nodeid, " 
+				+ targetArticleVariable + ":Disambiguation AS disambiguation", parameters);
+		long[] keys = new long[records.size()];
+		for ( int i = 0; i < keys.length; i += 1 )
+			keys[i] = PageIdSet.key(records.get(i).get("nodeid").asLong(), records.get(i).get("disambiguation").asBoolean());
+		return PageIdSet.of((nodeId, disambiguation) -> createArticleById(nodeId, disambiguation), keys, keys.length);
+	}
+	
+	/**
+	 * Returns the identifiers of a set of categories as a result of a query, without creating the categories.
+	 * @param match The query without its {@code RETURN} clause, where the redirects are already resolved.
+	 * @param parameters The parameters of the query, if any, {@code null} otherwise.
+	 * @param targetCategoryVariable The name of the variable in the query that indicates the target category 
+	 * that is returned by the query.
+	 * @return The set of the identifiers of the categories as the result of the query.
+	 */
+	public PageIdSet<Category> categoryIds(String match, Value parameters, String targetCategoryVariable) {
+		List<Record> records = query(match + "RETURN DISTINCT id(" + targetCategoryVariable + ") AS nodeid", parameters);
+		long[] keys = new long[records.size()];
+		for ( int i = 0; i < keys.length; i += 1 )
+			keys[i] = PageIdSet.key(records.get(i).get("nodeid").asLong(), false);
+		return PageIdSet.of((nodeId, disambiguation) -> new Category(this, nodeId), keys, keys.length);
+	}
+	
 	/**
 	 * Returns a set of categories as a result of a query.
 	 * @param query The query.
@@ -106,9 +599,7 @@ public class PageFactory {
 	 */
 	public Set<Category> createCategories(String query, Value parameters, String targetCategoryVariable) {
 		Set<Category> targetCategories = new HashSet<Category>();
-		Session session = driver.session();
-		StatementResult result = parameters != null ? session.run(query, parameters) : session.run(query);
-		for ( Record record : result.list() ) {
+		for ( Record record : query(query, parameters) ) {
 			Node targetNode = record.get(targetCategoryVariable).asNode();
 			Category targetCategory = createCategory(targetNode);
 			if ( targetCategory.isRedirect() )
@@ -116,10 +607,199 @@ public class PageFactory {
 			if ( targetCategory != null )
 				targetCategories.add(targetCategory);
 		}
-		session.close();
 		return targetCategories;
 	}
 	
+	/**
+	 * Returns the number of distinct pages counted by a query.
+	 * The counting is done in the underlying Neo4j database, so that no page is created.
+	 * @param query The query, that must return a single record.
+	 * @param parameters The parameters of the query, if any, {@code null} otherwise.
+	 * @param countVariable The name of the variable in the query that holds the count.
+	 * @return The number of distinct pages counted by the query.
+	 */
+	public long countPages(String query, Value parameters, String countVariable) {
+		return query(query, parameters).get(0).get(countVariable).asLong();
+	}
+	
+	/**
+	 * Runs a read query and returns all its records.
+	 * If the same query is already running with the same parameters and the same limits, its result 
+	 * is awaited and shared instead of running the query again; if the running query is aborted because 
+	 * of the deadline or the cancellation of its own scope, the query is run again by one of the threads 
+	 * that awaited it, within the limits of its own scope.
+	 * The query is bounded by the limits of the scope open in the current thread, if any, or else 
+	 * by the default limits; the deadline and the cancellation of the scope are checked before each record 
+	 * is read.
+	 * When the sessions are hedged, the records of each attempt are read entirely before they are returned, 
+	 * so that the deadline, the cancellation and the maximum number of records are checked only once 
+	 * the whole result is in memory.
+	 * @param query The query.
+	 * @param parameters The parameters of the query, if any, {@code null} otherwise.
+	 * @return The records returned by the query, that must not be modified.
+	 * @throws QueryAbortedException If the query exceeds its limits or is cancelled.
+	 */
+	List<Record> query(String query, Value parameters) {
+		QueryScope scope = scopes.get();
+		if ( scope == null )
+			scope = new QueryScope(this, limits, null);
+		QueryLimits limits = scope.limits();
+		QueryKey key = new QueryKey(query, parameters, limits);
+		while ( true ) {
+			scope.check();
+			CompletableFuture<List<Record>> running = new CompletableFuture<List<Record>>();
+			CompletableFuture<List<Record>> shared = runningQueries.putIfAbsent(key, running);
+			if ( shared == null )
+				return run(query, parameters, scope, key, running);
+			List<Record> records = await(shared, scope);
+			if ( records != null )
+				return records;
+		}
+	}
+
+	/**
+	 * Waits for the records of a query run by another thread.
+	 * @param shared The future records of the query, or {@code null} if the query has been aborted 
+	 * because of the deadline or the cancellation of the scope of the other thread.
+	 * @param scope The scope of the current thread.
+	 * @return The records returned by the query, or {@code null} if the query must be run again.
+	 * @throws QueryAbortedException If the query exceeds the limits of the scope of the current thread.
+	 */
+	private List<Record> await(CompletableFuture<List<Record>> shared, QueryScope scope) {
+		try {
+			long remaining = scope.remaining();
+			return remaining == Long.MAX_VALUE ? shared.get() : shared.get(remaining, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			throw abort(QueryAbortedException.Reason.TIMEOUT, "The query has exceeded its timeout of " 
+					+ scope.limits().timeout() + "ms");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The query has been interrupted", e);
+		} catch (ExecutionException e) {
+			if ( e.getCause() instanceof QueryAbortedException ) {
+				QueryAbortedException aborted = (QueryAbortedException)e.getCause();
+				throw abort(aborted.reason(), aborted.getMessage());
+			}
+			if ( e.getCause() instanceof RuntimeException )
+				throw (RuntimeException)e.getCause();
+			throw new IllegalStateException("The query has failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Runs a query whose records are shared with the other threads that run the same query.
+	 * @param query The query.
+	 * @param parameters The parameters of the query, if any, {@code null} otherwise.
+	 * @param scope The scope of the current thread.
+	 * @param key The key of the query among the running queries.
+	 * @param running The future records of the query, awaited by the other threads.
+	 * @return The records returned by the query.
+	 * @throws QueryAbortedException If the query exceeds its limits or is cancelled.
+	 */
+	private List<Record> run(String query, Value parameters, QueryScope scope, QueryKey key, 
+			CompletableFuture<List<Record>> running) {
+		QueryLimits limits = scope.limits();
+		try {
+			long start = System.nanoTime();
+			Session session = driver.session();
+			List<Record> records = new ArrayList<Record>();
+			try {
+				StatementResult result = parameters != null ? session.run(query, parameters) : session.run(query);
+				while ( result.hasNext() ) {
+					scope.check();
+					if ( limits.maxRows() > 0 && records.size() == limits.maxRows() ) {
+						if ( !limits.truncate() )
+							throw abort(QueryAbortedException.Reason.MAX_ROWS, "The query has returned more than " 
+									+ limits.maxRows() + " records");
+						truncations.incrementAndGet();
+						break;
+					}
+					records.add(result.next());
+				}
+			} finally {
+				session.close();
+			}
+			logQuery(query, parameters, start, records.size());
+			records = Collections.unmodifiableList(records);
+			running.complete(records);
+			return records;
+		} catch (QueryAbortedException e) {
+			if ( e.reason() == QueryAbortedException.Reason.MAX_ROWS )
+				running.completeExceptionally(e);
+			else {
+				runningQueries.remove(key, running);
+				running.complete(null);
+			}
+			throw e;
+		} catch (Throwable e) {
+			running.completeExceptionally(e);
+			throw e;
+		} finally {
+			runningQueries.remove(key, running);
+		}
+	}
+	
+	/**
+	 * Records the execution of a query in the log of the slow queries, if any.
+	 * This method is invoked by the queries that stream their records instead of running 
+	 * through {@link #query(String, Value)}.
+	 * @param query The query.
+	 * @param parameters The parameters of the query, if any, {@code null} otherwise.
+	 * @param start The instant when the query started, as given by {@link System#nanoTime()}.
+	 * @param rows The number of records returned by the query.
+	 */
+	void logQuery(String query, Value parameters, long start, int rows) {
+		SlowQueryLog slowQueryLog = this.slowQueryLog;
+		if ( slowQueryLog != null )
+			slowQueryLog.record(this, query, parameters, (System.nanoTime() - start) / 1000000, rows);
+	}
+	
+	/**
+	 * Returns the clause that replaces a page that is a redirect with the final target of the redirection.
+	 * Pages whose redirections end in a loop are replaced with {@code null}, which is ignored 
+	 * by the Cypher aggregation functions, as {@link #createArticles(String, Value, String)} and 
+	 * {@link #createCategories(String, Value, String)} ignore them.
+	 * @param pageVariable The name of the variable in the query that indicates the page.
+	 * @param targetVariable The name of the variable that indicates the page after the redirection.
+	 * @param carriedVariables The names of the other variables of the query that are used after the clause.
+	 * @return The Cypher clause that resolves the redirection of {@code pageVariable}.
+	 */
+	static String resolveRedirects(String pageVariable, String targetVariable, String... carriedVariables) {
+		StringBuilder carried = new StringBuilder();
+		for ( String variable : carriedVariables )
+			carried.append(variable).append(", ");
+		return "OPTIONAL MATCH (" + pageVariable + ":Redirect)-[:redirectTo*1..]->(" + pageVariable + "_target) "
+				+ "WHERE NOT " + pageVariable + "_target:Redirect "
+				+ "WITH " + carried + "CASE WHEN " + pageVariable + ":Redirect THEN " + pageVariable + "_target ELSE " 
+				+ pageVariable + " END AS " + targetVariable + " ";
+	}
+	
+	/**
+	 * Creates the article corresponding to the node with the given identifier, that is known 
+	 * not to be a redirect.
+	 * @param nodeIdentifier The identifier of a node in the underlying Neo4j database.
+	 * @param disambiguation Whether the node corresponds to a disambiguation article.
+	 * @return The article corresponding to the node.
+	 */
+	Article createArticleById(long nodeIdentifier, boolean disambiguation) {
+		if ( disambiguation )
+			return tabulated(new DisambiguationArticle(this, nodeIdentifier));
+		return tabulated(new Article(this, nodeIdentifier));
+	}
+	
+	/**
+	 * Makes the given article a view onto its row of the table of the articles of this factory, 
+	 * if the article is in the table.
+	 * @param article An article whose attributes are not loaded.
+	 * @return The article.
+	 */
+	private Article tabulated(Article article) {
+		ArticleTable articleTable = this.articleTable;
+		if ( articleTable != null )
+			articleTable.attach(article);
+		return article;
+	}
+	
 	/**
 	 * Creates the category corresponding to a given node in the underlying Neo4j database.
 	 * @param node A node in the underlying Neo4j database.
@@ -127,19 +807,85 @@ public class PageFactory {
 	 * if the node does not correspond to any category.
 	 */
 	public Category createCategory(Node node) {
+		return createCategory(node, false);
+	}
+	
+	/**
+	 * Creates the category corresponding to a given node in the underlying Neo4j database.
+	 * @param node A node in the underlying Neo4j database.
+	 * @param loadAttributes Whether the attributes of the category are set from the properties of the node,
+	 * instead of being loaded from the underlying Neo4j database the first time they are requested. 
+	 * @return The category corresponding to a given node in the underlying Neo4j database, or {@code null}
+	 * if the node does not correspond to any category.
+	 */
+	public Category createCategory(Node node, boolean loadAttributes) {
 		if ( node == null )
 			return null;
 		Category category = null;
-		Session session = driver.session();
 		if ( node.hasLabel("Category") ) {
 			if ( node.hasLabel("Redirect") )
-				category = new RedirectCategory(driver, node.id());
+				category = new RedirectCategory(this, node.id());
 			else
-				category = new Category(driver, node.id());
+				category = new Category(this, node.id());
+			if ( loadAttributes )
+				category.attributes(node);
 		}
-		session.close();
 		return category;
 	}
 	
+	/**
+	 * The key that identifies a query with its parameters.
+	 *
+	 */
+	private static class QueryKey {
+		
+		/**
+		 * The query.
+		 */
+		private String query;
+		
+		/**
+		 * The parameters of the query.
+		 */
+		private Map<String, Object> parameters;
+		
+		/**
+		 * The maximum number of records returned by the query.
+		 */
+		private int maxRows;
+		
+		/**
+		 * Whether the query is truncated when it returns too many records.
+		 */
+		private boolean truncate;
+		
+		/**
+		 * Creates a new key.
+		 * @param query The query.
+		 * @param parameters The parameters of the query, if any, {@code null} otherwise.
+		 * @param limits The limits of the query.
+		 */
+		QueryKey(String query, Value parameters, QueryLimits limits) {
+			this.query = query;
+			this.parameters = parameters != null ? parameters.asMap() : Collections.<String, Object>emptyMap();
+			this.maxRows = limits.maxRows();
+			this.truncate = limits.truncate();
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * (31 * query.hashCode() + parameters.hashCode()) + maxRows;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if ( !(obj instanceof QueryKey) )
+				return false;
+			QueryKey other = (QueryKey)obj;
+			return query.equals(other.query) && parameters.equals(other.parameters) && maxRows == other.maxRows 
+					&& truncate == other.truncate;
+		}
+		
+	}
 	
 }
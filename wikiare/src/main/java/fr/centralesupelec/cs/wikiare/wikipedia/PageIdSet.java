@@ -0,0 +1,265 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * An immutable set of pages, stored as the sorted identifiers of their nodes in an array of primitive values.
+ * The union, the intersection and the difference of two sets are computed by merging their arrays, 
+ * and the pages themselves are only created when the set is iterated.
+ *
+ * @param <P> The kind of the pages of the set.
+ */
+public class PageIdSet<P extends Page> implements Iterable<P> {
+
+	/**
+	 * The number of times a set must be larger than another for their intersection to be computed 
+	 * by searching the elements of the smaller set in the larger one, instead of merging them.
+	 */
+	private static final int SEARCH_RATIO = 16;
+
+	/**
+	 * The function that creates a page from the identifier of its node and whether it is a disambiguation article.
+	 */
+	private BiFunction<Long, Boolean, P> creator;
+
+	/**
+	 * The identifiers of the nodes of the pages, shifted left by one bit and combined with {@code 1} for 
+	 * the disambiguation articles, in increasing order.
+	 */
+	private long[] keys;
+
+	/**
+	 * Creates a new set.
+	 * @param creator The function that creates a page from the identifier of its node and whether it is 
+	 * a disambiguation article.
+	 * @param keys The keys of the pages, in increasing order and without duplicates.
+	 */
+	private PageIdSet(BiFunction<Long, Boolean, P> creator, long[] keys) {
+		this.creator = creator;
+		this.keys = keys;
+	}
+
+	/**
+	 * Creates a new set from the keys of its pages, in any order and with duplicates.
+	 * @param creator The function that creates a page from the identifier of its node and whether it is 
+	 * a disambiguation article.
+	 * @param keys The keys of the pages, that are sorted in place.
+	 * @param count The number of keys.
+	 * @return The set of the pages.
+	 */
+	static <P extends Page> PageIdSet<P> of(BiFunction<Long, Boolean, P> creator, long[] keys, int count) {
+		Arrays.sort(keys, 0, count);
+		int size = 0;
+		for ( int i = 0; i < count; i += 1 )
+			if ( size == 0 || keys[size - 1] != keys[i] )
+				keys[size++] = keys[i];
+		return new PageIdSet<P>(creator, Arrays.copyOf(keys, size));
+	}
+
+	/**
+	 * Returns the key of a page of a set.
+	 * @param nodeIdentifier The identifier of the node of the page.
+	 * @param disambiguation Whether the page is a disambiguation article.
+	 * @return The key of the page.
+	 */
+	static long key(long nodeIdentifier, boolean disambiguation) {
+		return nodeIdentifier << 1 | (disambiguation ? 1 : 0);
+	}
+
+	/**
+	 * Returns the keys of the pages of this set, without creating the pages.
+	 * @return The keys of the pages, in increasing order of the identifiers of their nodes, 
+	 * that must not be modified.
+	 */
+	long[] keys() {
+		return this.keys;
+	}
+
+	/**
+	 * Returns the number of pages of this set.
+	 * @return The number of pages of this set.
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns whether this set is empty.
+	 * @return {@code true} if this set has no page, {@code false} otherwise.
+	 */
+	public boolean isEmpty() {
+		return keys.length == 0;
+	}
+
+	/**
+	 * Returns whether the given page is in this set.
+	 * @param page A page.
+	 * @return {@code true} if the page is in this set, {@code false} otherwise.
+	 */
+	public boolean contains(Page page) {
+		int index = Arrays.binarySearch(keys, page.nodeIdentifier() << 1);
+		if ( index < 0 )
+			index = -index - 1;
+		return index < keys.length && keys[index] >>> 1 == page.nodeIdentifier();
+	}
+
+	/**
+	 * Returns the union of this set and another.
+	 * @param other A set of pages.
+	 * @return The pages that are in this set or in the other one.
+	 */
+	public PageIdSet<P> union(PageIdSet<P> other) {
+		long[] union = new long[keys.length + other.keys.length];
+		int i = 0, j = 0, size = 0;
+		while ( i < keys.length && j < other.keys.length ) {
+			if ( keys[i] < other.keys[j] )
+				union[size++] = keys[i++];
+			else if ( keys[i] > other.keys[j] )
+				union[size++] = other.keys[j++];
+			else {
+				union[size++] = keys[i++];
+				j += 1;
+			}
+		}
+		while ( i < keys.length )
+			union[size++] = keys[i++];
+		while ( j < other.keys.length )
+			union[size++] = other.keys[j++];
+		return new PageIdSet<P>(creator, Arrays.copyOf(union, size));
+	}
+
+	/**
+	 * Returns the intersection of this set and another.
+	 * If a set is much larger than the other, the pages of the smaller one are searched in the larger one.
+	 * @param other A set of pages.
+	 * @return The pages that are in both this set and the other one.
+	 */
+	public PageIdSet<P> intersection(PageIdSet<P> other) {
+		long[] small = keys.length <= other.keys.length ? keys : other.keys;
+		long[] large = small == keys ? other.keys : keys;
+		long[] intersection = new long[small.length];
+		int size = 0;
+		if ( (long)small.length * SEARCH_RATIO < large.length ) {
+			int from = 0;
+			for ( long key : small ) {
+				int index = Arrays.binarySearch(large, from, large.length, key);
+				if ( index >= 0 )
+					intersection[size++] = key;
+				from = index >= 0 ? index + 1 : -index - 1;
+			}
+		} else {
+			int i = 0, j = 0;
+			while ( i < small.length && j < large.length ) {
+				if ( small[i] < large[j] )
+					i += 1;
+				else if ( small[i] > large[j] )
+					j += 1;
+				else {
+					intersection[size++] = small[i++];
+					j += 1;
+				}
+			}
+		}
+		return new PageIdSet<P>(creator, Arrays.copyOf(intersection, size));
+	}
+
+	/**
+	 * Returns the difference of this set and another.
+	 * @param other A set of pages.
+	 * @return The pages that are in this set but not in the other one.
+	 */
+	public PageIdSet<P> difference(PageIdSet<P> other) {
+		long[] difference = new long[keys.length];
+		int i = 0, j = 0, size = 0;
+		while ( i < keys.length ) {
+			while ( j < other.keys.length && other.keys[j] < keys[i] )
+				j += 1;
+			if ( j == other.keys.length || other.keys[j] != keys[i] )
+				difference[size++] = keys[i];
+			i += 1;
+		}
+		return new PageIdSet<P>(creator, Arrays.copyOf(difference, size));
+	}
+
+	/**
+	 * Returns the pages of this set, all created at once.
+	 * @return The pages of this set.
+	 */
+	public Set<P> toSet() {
+		Set<P> pages = new HashSet<P>();
+		for ( P page : this )
+			pages.add(page);
+		return pages;
+	}
+
+	/**
+	 * Returns an iterator over the pages of this set, in the order of the identifiers of their nodes, 
+	 * that creates each page when it is reached.
+	 * @return An iterator over the pages of this set.
+	 */
+	@Override
+	public Iterator<P> iterator() {
+		return new Iterator<P>() {
+
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < keys.length;
+			}
+
+			@Override
+			public P next() {
+				if ( index == keys.length )
+					throw new NoSuchElementException();
+				long key = keys[index++];
+				return creator.apply(key >>> 1, (key & 1) != 0);
+			}
+
+		};
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(keys);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if ( !(obj instanceof PageIdSet) )
+			return false;
+		return Arrays.equals(keys, ((PageIdSet<?>)obj).keys);
+	}
+
+	@Override
+	public String toString() {
+		return "PageIdSet [size=" + keys.length + "]";
+	}
+
+}
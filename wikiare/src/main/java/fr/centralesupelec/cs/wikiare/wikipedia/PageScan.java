@@ -0,0 +1,255 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.neo4j.driver.v1.Record;
+import org.neo4j.driver.v1.Session;
+import org.neo4j.driver.v1.StatementResult;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.Values;
+
+/**
+ * A scan of all the pages of a given kind in a Wikipedia language edition.
+ * The space of the node identifiers is split into partitions, that are scanned in parallel,
+ * each on its own session.
+ * The attributes of the pages are set from the scanned nodes, so that they are never
+ * loaded again from the underlying Neo4j database.
+ *
+ * @param <P> The kind of the objects created from the scanned pages.
+ */
+public class PageScan<P> {
+
+	/**
+	 * The number of partitions that are created for each thread of the scan, so that
+	 * the threads that scan sparse partitions do not remain idle.
+	 */
+	private static final int PARTITIONS_PER_THREAD = 4;
+
+	/**
+	 * The number of node identifiers that are read with a single query.
+	 */
+	private static final int BATCH_SIZE = 10000;
+
+	/**
+	 * The factory that creates the scanned pages.
+	 */
+	private PageFactory factory;
+
+	/**
+	 * The label of the scanned nodes.
+	 */
+	private String label;
+
+	/**
+	 * The language of the Wikipedia edition that is scanned.
+	 */
+	private String language;
+
+	/**
+	 * The clause that follows the match of a scanned node, bound to the variable {@code n}, 
+	 * and returns the record of the node.
+	 */
+	private String returnClause;
+
+	/**
+	 * The function that creates an object from the record of a scanned node.
+	 */
+	private Function<Record, P> creator;
+
+	/**
+	 * Creates a new scan.
+	 * @param factory The factory that creates the scanned pages.
+	 * @param label The label of the scanned nodes.
+	 * @param language The language of the Wikipedia edition that is scanned.
+	 * @param returnClause The clause that follows the match of a scanned node, bound to the variable {@code n}, 
+	 * and returns the record of the node.
+	 * @param creator The function that creates an object from the record of a scanned node.
+	 */
+	private PageScan(PageFactory factory, String label, String language, String returnClause, 
+			Function<Record, P> creator) {
+		this.factory = factory;
+		this.label = label;
+		this.language = language;
+		this.returnClause = returnClause;
+		this.creator = creator;
+	}
+
+	/**
+	 * Returns a scan of all the articles of a Wikipedia language edition.
+	 * @param factory The factory that creates the scanned pages.
+	 * @param language The language of the Wikipedia edition that is scanned.
+	 * @return A scan of all the articles of the given language edition.
+	 */
+	public static PageScan<Article> articles(PageFactory factory, String language) {
+		return new PageScan<Article>(factory, "Article", language, "RETURN n AS node", 
+				record -> factory.createArticle(record.get("node").asNode(), true));
+	}
+
+	/**
+	 * Returns a scan of all the categories of a Wikipedia language edition.
+	 * @param factory The factory that creates the scanned pages.
+	 * @param language The language of the Wikipedia edition that is scanned.
+	 * @return A scan of all the categories of the given language edition.
+	 */
+	public static PageScan<Category> categories(PageFactory factory, String language) {
+		return new PageScan<Category>(factory, "Category", language, "RETURN n AS node", 
+				record -> factory.createCategory(record.get("node").asNode(), true));
+	}
+	
+	/**
+	 * Returns a scan of the records obtained from all the nodes with a given label in a Wikipedia language edition.
+	 * This scan is used to build in bulk the in-memory structures that summarize a whole language edition.
+	 * @param factory The factory that creates the pages of the underlying Neo4j database.
+	 * @param label The label of the scanned nodes.
+	 * @param language The language of the Wikipedia edition that is scanned.
+	 * @param returnClause The clause that follows the match of a scanned node, bound to the variable {@code n}, 
+	 * and returns the record of the node.
+	 * @return A scan of the records obtained from the nodes.
+	 */
+	static PageScan<Record> records(PageFactory factory, String label, String language, String returnClause) {
+		return new PageScan<Record>(factory, label, language, returnClause, record -> record);
+	}
+	
+	/**
+	 * Scans the pages and passes each of them to a consumer.
+	 * The consumer is invoked concurrently by several threads.
+	 * @param parallelism The number of partitions that are scanned at the same time.
+	 * @param consumer The consumer of the pages.
+	 */
+	public void run(int parallelism, Consumer<? super P> consumer) {
+		run(parallelism, consumer, new ScanCheckpoint());
+	}
+
+	/**
+	 * Scans the pages and passes each of them to a consumer.
+	 * The consumer is invoked concurrently by several threads.
+	 * The partitions that the checkpoint marks as completed are skipped; each partition is marked
+	 * in the checkpoint as soon as it is completely scanned.
+	 * @param parallelism The number of partitions that are scanned at the same time.
+	 * @param consumer The consumer of the pages.
+	 * @param checkpoint The progress of the scan.
+	 * @throws IllegalArgumentException If the checkpoint refers to another scan.
+	 */
+	public void run(int parallelism, Consumer<? super P> consumer, ScanCheckpoint checkpoint) {
+		if ( checkpoint.isInitialized() )
+			checkpoint.check(label, language);
+		else
+			checkpoint.initialize(label, language, partition(parallelism * PARTITIONS_PER_THREAD));
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for ( int partition = 0; partition < checkpoint.partitions(); partition += 1 ) {
+			if ( checkpoint.isCompleted(partition) )
+				continue;
+			final int scannedPartition = partition;
+			futures.add(executor.submit(() -> {
+				scan(checkpoint.lowerBound(scannedPartition), checkpoint.upperBound(scannedPartition), consumer);
+				checkpoint.complete(scannedPartition);
+			}));
+		}
+		executor.shutdown();
+		try {
+			for ( Future<?> future : futures )
+				future.get();
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The scan has been interrupted", e);
+		} catch (ExecutionException e) {
+			executor.shutdownNow();
+			if ( e.getCause() instanceof RuntimeException )
+				throw (RuntimeException)e.getCause();
+			throw new IllegalStateException("The scan has failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Splits the space of the identifiers of the scanned nodes into partitions of the same size.
+	 * @param partitions The number of partitions.
+	 * @return The bounds of the partitions.
+	 */
+	private long[] partition(int partitions) {
+		Record record;
+		String query = "MATCH (n:" + label + ") WHERE n.lang={lang} RETURN min(id(n)) AS low, max(id(n)) AS high";
+		Value parameters = Values.parameters("lang", language);
+		long start = System.nanoTime();
+		Session session = factory.driver().session();
+		try {
+			record = session.run(query, parameters).single();
+		} finally {
+			session.close();
+		}
+		factory.logQuery(query, parameters, start, 1);
+		if ( record.get("low").isNull() )
+			return new long[] { 0 };
+		long low = record.get("low").asLong();
+		long high = record.get("high").asLong() + 1;
+		partitions = (int)Math.max(1, Math.min(partitions, high - low));
+		long[] bounds = new long[partitions + 1];
+		for ( int i = 0; i <= partitions; i += 1 )
+			bounds[i] = low + (high - low) * i / partitions;
+		return bounds;
+	}
+
+	/**
+	 * Scans the nodes whose identifiers are in the given range.
+	 * The range is read in batches, so that the records of a single query always fit in memory.
+	 * @param low The first node identifier of the range.
+	 * @param high The node identifier that follows the last one of the range.
+	 * @param consumer The consumer of the pages.
+	 */
+	private void scan(long low, long high, Consumer<? super P> consumer) {
+		Session session = factory.driver().session();
+		try {
+			String query = "UNWIND range({low}, {high}) AS nodeid "
+					+ "MATCH (n:" + label + ") WHERE id(n)=nodeid AND n.lang={lang} " + returnClause;
+			for ( long batch = low; batch < high; batch += BATCH_SIZE ) {
+				Value parameters = Values.parameters("low", batch, "high", Math.min(batch + BATCH_SIZE, high) - 1,
+						"lang", language);
+				long start = System.nanoTime();
+				int rows = 0;
+				StatementResult result = session.run(query, parameters);
+				while ( result.hasNext() ) {
+					P page = creator.apply(result.next());
+					rows += 1;
+					if ( page != null ) {
+						long consumed = System.nanoTime();
+						consumer.accept(page);
+						start += System.nanoTime() - consumed;
+					}
+				}
+				factory.logQuery(query, parameters, start, rows);
+			}
+		} finally {
+			session.close();
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+/**
+ * The attributes of the pages that are loaded from the underlying Neo4j database the first time 
+ * an attribute of a page is requested.
+ * The other attributes are loaded only if they are requested later.
+ *
+ */
+public enum Projection {
+
+	/**
+	 * All the attributes of the pages.
+	 */
+	ALL(~0),
+
+	/**
+	 * The title and the language of the pages.
+	 */
+	TITLE_ONLY(PageAttributes.TITLE | PageAttributes.LANGUAGE),
+
+	/**
+	 * The numbers of parent categories, of incoming and outgoing links of the articles, 
+	 * and of children categories and articles of the categories.
+	 */
+	DEGREES(PageAttributes.PARENTS | PageAttributes.OUTDEGREE | PageAttributes.INDEGREE 
+			| PageAttributes.CHILDREN | PageAttributes.SIZE),
+
+	/**
+	 * The globe, the coordinates and the type of the spatial entities described by the articles.
+	 */
+	GEO(PageAttributes.GLOBE | PageAttributes.LATITUDE | PageAttributes.LONGITUDE | PageAttributes.TYPE);
+
+	/**
+	 * The flags of the attributes of this projection.
+	 */
+	private int attributes;
+
+	/**
+	 * Creates a new projection.
+	 * @param attributes The flags of the attributes of the projection.
+	 */
+	private Projection(int attributes) {
+		this.attributes = attributes;
+	}
+
+	/**
+	 * Returns the flags of the attributes of this projection.
+	 * @return The flags of the attributes of this projection.
+	 */
+	int attributes() {
+		return this.attributes;
+	}
+
+}
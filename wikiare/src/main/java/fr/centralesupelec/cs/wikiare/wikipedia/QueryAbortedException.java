@@ -0,0 +1,82 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+/**
+ * The exception thrown when a query sent to the underlying Neo4j database is aborted because it exceeds 
+ * its limits or it has been cancelled.
+ *
+ */
+public class QueryAbortedException extends IllegalStateException {
+
+	/**
+	 * The serial version identifier.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The reasons why a query is aborted.
+	 *
+	 */
+	public enum Reason {
+
+		/**
+		 * The query has exceeded its timeout.
+		 */
+		TIMEOUT,
+
+		/**
+		 * The query has been cancelled.
+		 */
+		CANCELLED,
+
+		/**
+		 * The query has returned more records than allowed.
+		 */
+		MAX_ROWS
+
+	}
+
+	/**
+	 * The reason why the query is aborted.
+	 */
+	private Reason reason;
+
+	/**
+	 * Creates a new exception.
+	 * @param reason The reason why the query is aborted.
+	 * @param message The message of the exception.
+	 */
+	public QueryAbortedException(Reason reason, String message) {
+		super(message);
+		this.reason = reason;
+	}
+
+	/**
+	 * Returns the reason why the query is aborted.
+	 * @return The reason why the query is aborted.
+	 */
+	public Reason reason() {
+		return this.reason;
+	}
+
+}
@@ -0,0 +1,99 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+/**
+ * The limits of the queries sent to the underlying Neo4j database: the time a call can spend running 
+ * queries, and the number of records that a query can return.
+ * A query that returns too many records is either truncated or aborted.
+ *
+ */
+public class QueryLimits {
+
+	/**
+	 * The limits that do not limit anything.
+	 */
+	public static final QueryLimits NONE = new QueryLimits(0, 0, false);
+
+	/**
+	 * The time after which the queries are aborted, in milliseconds.
+	 */
+	private long timeout;
+
+	/**
+	 * The maximum number of records returned by a query.
+	 */
+	private int maxRows;
+
+	/**
+	 * Whether the queries that return too many records are truncated instead of aborted.
+	 */
+	private boolean truncate;
+
+	/**
+	 * Creates new limits.
+	 * @param timeout The time after which the queries are aborted, in milliseconds, or {@code 0} for no timeout.
+	 * @param maxRows The maximum number of records returned by a query, or {@code 0} for no maximum.
+	 * @param truncate Whether the queries that return too many records are truncated to the maximum number 
+	 * of records, instead of being aborted.
+	 * @throws IllegalArgumentException If the timeout or the maximum number of records is negative.
+	 */
+	public QueryLimits(long timeout, int maxRows, boolean truncate) {
+		if ( timeout < 0 )
+			throw new IllegalArgumentException("The timeout must not be negative: " + timeout);
+		if ( maxRows < 0 )
+			throw new IllegalArgumentException("The maximum number of records must not be negative: " + maxRows);
+		this.timeout = timeout;
+		this.maxRows = maxRows;
+		this.truncate = truncate;
+	}
+
+	/**
+	 * Returns the time after which the queries are aborted.
+	 * @return The time after which the queries are aborted, in milliseconds, or {@code 0} for no timeout.
+	 */
+	public long timeout() {
+		return this.timeout;
+	}
+
+	/**
+	 * Returns the maximum number of records returned by a query.
+	 * @return The maximum number of records returned by a query, or {@code 0} for no maximum.
+	 */
+	public int maxRows() {
+		return this.maxRows;
+	}
+
+	/**
+	 * Returns whether the queries that return too many records are truncated instead of aborted.
+	 * @return {@code true} if the queries are truncated, {@code false} if they are aborted.
+	 */
+	public boolean truncate() {
+		return this.truncate;
+	}
+
+	@Override
+	public String toString() {
+		return "QueryLimits [timeout=" + timeout + "ms, maxRows=" + maxRows + ", truncate=" + truncate + "]";
+	}
+
+}
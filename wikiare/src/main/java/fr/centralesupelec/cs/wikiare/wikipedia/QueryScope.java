@@ -0,0 +1,153 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+/**
+ * A call to the Wikipedia whose queries share the same limits and the same deadline.
+ * A scope is opened by a thread with {@link PageFactory#scope(QueryLimits)}, and applies to all the queries 
+ * that the thread runs until the scope is closed, including the queries of recursive calls.
+ * A scope can be cancelled by another thread; the queries of the scope are then aborted as soon as 
+ * they read their next record.
+ * A scope opened while another scope is open never outlives it: its deadline is at most the deadline 
+ * of the enclosing scope, and its queries are aborted as well when the enclosing scope is cancelled.
+ *
+ */
+public class QueryScope implements AutoCloseable {
+
+	/**
+	 * The factory of the scope.
+	 */
+	private PageFactory factory;
+
+	/**
+	 * The limits of the queries of the scope.
+	 */
+	private QueryLimits limits;
+
+	/**
+	 * The instant, as given by {@link System#nanoTime()}, after which the queries of the scope are aborted.
+	 */
+	private long deadline;
+
+	/**
+	 * The timeout of the scope whose deadline applies to this scope, in milliseconds.
+	 */
+	private long timeout;
+
+	/**
+	 * The scope that was open in the thread when this scope was opened, if any, {@code null} otherwise.
+	 */
+	private QueryScope enclosing;
+
+	/**
+	 * Whether the scope has been cancelled.
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * Creates a new scope, whose deadline starts now, unless the deadline of the enclosing scope is earlier.
+	 * @param factory The factory of the scope.
+	 * @param limits The limits of the queries of the scope.
+	 * @param enclosing The scope that is open in the thread, if any, {@code null} otherwise.
+	 */
+	QueryScope(PageFactory factory, QueryLimits limits, QueryScope enclosing) {
+		this.factory = factory;
+		this.limits = limits;
+		this.enclosing = enclosing;
+		this.deadline = limits.timeout() > 0 ? System.nanoTime() + limits.timeout() * 1000000 : Long.MAX_VALUE;
+		this.timeout = limits.timeout();
+		if ( enclosing != null && enclosing.deadline != Long.MAX_VALUE 
+				&& (deadline == Long.MAX_VALUE || enclosing.deadline - deadline < 0) ) {
+			this.deadline = enclosing.deadline;
+			this.timeout = enclosing.timeout;
+		}
+		this.cancelled = false;
+	}
+
+	/**
+	 * Returns the limits of the queries of this scope.
+	 * @return The limits of the queries of this scope.
+	 */
+	public QueryLimits limits() {
+		return this.limits;
+	}
+
+	/**
+	 * Returns the time left before the queries of this scope are aborted.
+	 * @return The time left before the queries of this scope are aborted, in milliseconds, 
+	 * or {@link Long#MAX_VALUE} if the scope has no deadline.
+	 */
+	public long remaining() {
+		if ( deadline == Long.MAX_VALUE )
+			return Long.MAX_VALUE;
+		return Math.max(0, (deadline - System.nanoTime()) / 1000000);
+	}
+
+	/**
+	 * Cancels this scope, so that its queries are aborted as soon as they read their next record.
+	 * This method can be invoked by any thread.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * Returns whether this scope has been cancelled.
+	 * @return {@code true} if this scope has been cancelled, {@code false} otherwise.
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * Returns the scope that was open in the thread when this scope was opened.
+	 * @return The enclosing scope, if any, {@code null} otherwise.
+	 */
+	QueryScope enclosing() {
+		return this.enclosing;
+	}
+
+	/**
+	 * Makes sure that the queries of this scope can go on.
+	 * @throws QueryAbortedException If this scope or an enclosing scope has been cancelled, 
+	 * or the deadline of this scope has passed.
+	 */
+	void check() {
+		for ( QueryScope scope = this; scope != null; scope = scope.enclosing )
+			if ( scope.cancelled )
+				throw factory.abort(QueryAbortedException.Reason.CANCELLED, "The query has been cancelled");
+		if ( deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0 )
+			throw factory.abort(QueryAbortedException.Reason.TIMEOUT, "The query has exceeded its timeout of " 
+					+ timeout + "ms");
+	}
+
+	/**
+	 * Closes this scope, so that the scope that was open in the thread when this scope was opened 
+	 * applies again.
+	 * This method must be invoked by the thread that opened this scope.
+	 */
+	@Override
+	public void close() {
+		factory.close(this);
+	}
+
+}
@@ -0,0 +1,293 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A generator of random walks over the graph of the links between articles, used as the corpus 
+ * of the embeddings of the articles.
+ * The walks are generated by several threads, each with its own random generator split from a single seed, 
+ * and written to a binary file without allocating any object at each step.
+ * The file starts with the magic number {@code 0x574B5257}, the number of articles, and the identifiers of 
+ * their nodes; then each walk is written as its length followed by the indexes of its articles.
+ *
+ */
+public class RandomWalks {
+
+	/**
+	 * The number that identifies the files of walks.
+	 */
+	private static final int MAGIC = 0x574B5257;
+
+	/**
+	 * The number of start articles assigned at once to a thread.
+	 */
+	private static final int CHUNK_SIZE = 4096;
+
+	/**
+	 * The size in bytes of the buffer of each thread.
+	 */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * The graph of the links.
+	 */
+	private LinkGraph graph;
+
+	/**
+	 * The maximum number of articles of a walk.
+	 */
+	private int walkLength;
+
+	/**
+	 * The number of walks that start from each article.
+	 */
+	private int walksPerArticle;
+
+	/**
+	 * The way the walks choose the next article.
+	 */
+	private WalkStrategy strategy;
+
+	/**
+	 * The return parameter of the node2vec walks.
+	 */
+	private double p;
+
+	/**
+	 * The in-out parameter of the node2vec walks.
+	 */
+	private double q;
+
+	/**
+	 * The seed of the random generators.
+	 */
+	private long seed;
+
+	/**
+	 * Creates a new generator of uniform random walks.
+	 * @param graph The graph of the links.
+	 * @param walkLength The maximum number of articles of a walk; a walk stops earlier at an article without links.
+	 * @param walksPerArticle The number of walks that start from each article.
+	 * @throws IllegalArgumentException If the length of the walks is not positive.
+	 */
+	public RandomWalks(LinkGraph graph, int walkLength, int walksPerArticle) {
+		if ( walkLength <= 0 )
+			throw new IllegalArgumentException("The length of the walks must be positive: " + walkLength);
+		this.graph = graph;
+		this.walkLength = walkLength;
+		this.walksPerArticle = walksPerArticle;
+		this.strategy = WalkStrategy.UNIFORM;
+		this.p = 1;
+		this.q = 1;
+		this.seed = System.nanoTime();
+	}
+
+	/**
+	 * Returns the way the walks choose the next article.
+	 * @return The way the walks choose the next article.
+	 */
+	public WalkStrategy strategy() {
+		return this.strategy;
+	}
+
+	/**
+	 * Sets the way the walks choose the next article.
+	 * @param strategy The way the walks choose the next article.
+	 */
+	public void strategy(WalkStrategy strategy) {
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Makes the walks biased as in node2vec.
+	 * @param p The return parameter: going back to the previous article is weighted by {@code 1/p}.
+	 * @param q The in-out parameter: going to an article not linked from the previous article is weighted 
+	 * by {@code 1/q}.
+	 * @throws IllegalArgumentException If a parameter is not positive.
+	 */
+	public void node2vec(double p, double q) {
+		if ( p <= 0 || q <= 0 )
+			throw new IllegalArgumentException("The parameters of node2vec must be positive: p=" + p + ", q=" + q);
+		this.strategy = WalkStrategy.NODE2VEC;
+		this.p = p;
+		this.q = q;
+	}
+
+	/**
+	 * Returns the seed of the random generators.
+	 * @return The seed of the random generators.
+	 */
+	public long seed() {
+		return this.seed;
+	}
+
+	/**
+	 * Sets the seed of the random generators, so that the same walks are generated from each article.
+	 * @param seed The seed of the random generators.
+	 */
+	public void seed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Generates a walk.
+	 * @param start The index of the start article.
+	 * @param random The random generator of the walk.
+	 * @param walk The array where the indexes of the articles of the walk are written, whose length is at least 
+	 * the length of the walks.
+	 * @return The number of articles of the walk.
+	 */
+	public int walk(int start, SplittableRandom random, int[] walk) {
+		walk[0] = start;
+		int length = 1;
+		double maxWeight = Math.max(1 / p, Math.max(1, 1 / q));
+		while ( length < walkLength ) {
+			int current = walk[length - 1];
+			if ( graph.outdegree(current) == 0 )
+				break;
+			if ( strategy == WalkStrategy.NODE2VEC && length > 1 ) {
+				int previous = walk[length - 2];
+				int next;
+				while ( true ) {
+					next = graph.target(current, random.nextInt(graph.outdegree(current)));
+					double weight = next == previous ? 1 / p : graph.linksTo(previous, next) ? 1 : 1 / q;
+					if ( random.nextDouble() * maxWeight < weight )
+						break;
+				}
+				walk[length++] = next;
+			}
+			else if ( strategy == WalkStrategy.RANK_WEIGHTED )
+				walk[length++] = graph.target(current, graph.link(current, (float)(random.nextDouble() * graph.weight(current))));
+			else
+				walk[length++] = graph.target(current, random.nextInt(graph.outdegree(current)));
+		}
+		return length;
+	}
+
+	/**
+	 * Generates the walks from all the articles of the graph, and writes them to a file.
+	 * The start articles are split into chunks, each with its own random generator split from the seed, 
+	 * so that the same walks are generated whatever the number of threads; only their order in the file varies.
+	 * @param file The file of the walks, that is overwritten.
+	 * @param parallelism The number of threads that generate the walks.
+	 * @return The number of walks that have been written.
+	 * @throws UncheckedIOException If the file cannot be written.
+	 */
+	public long write(File file, int parallelism) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, 
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(8 + 8 * graph.size());
+			header.putInt(MAGIC).putInt(graph.size());
+			for ( int i = 0; i < graph.size(); i += 1 )
+				header.putLong(graph.nodeIdentifier(i));
+			header.flip();
+			while ( header.hasRemaining() )
+				channel.write(header);
+			SplittableRandom root = new SplittableRandom(seed);
+			ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+			List<Future<Long>> futures = new ArrayList<Future<Long>>();
+			for ( int start = 0; start < graph.size(); start += CHUNK_SIZE ) {
+				int from = start, to = Math.min(start + CHUNK_SIZE, graph.size());
+				SplittableRandom random = root.split();
+				futures.add(executor.submit(() -> walk(from, to, random, channel)));
+			}
+			executor.shutdown();
+			long walks = 0;
+			try {
+				for ( Future<Long> future : futures )
+					walks += future.get();
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("The generation of the walks has been interrupted", e);
+			} catch (ExecutionException e) {
+				executor.shutdownNow();
+				if ( e.getCause() instanceof RuntimeException )
+					throw (RuntimeException)e.getCause();
+				throw new IllegalStateException("The generation of the walks has failed", e.getCause());
+			}
+			return walks;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Generates the walks from a chunk of start articles, and appends them to the file.
+	 * @param from The index of the first start article of the chunk.
+	 * @param to The index of the article that follows the last start article of the chunk.
+	 * @param random The random generator of the chunk.
+	 * @param channel The channel of the file of the walks.
+	 * @return The number of walks that have been written.
+	 */
+	private long walk(int from, int to, SplittableRandom random, FileChannel channel) {
+		int[] walk = new int[walkLength];
+		ByteBuffer buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, 4 * (walkLength + 1)));
+		long walks = 0;
+		for ( int start = from; start < to; start += 1 )
+			for ( int i = 0; i < walksPerArticle; i += 1 ) {
+				int length = walk(start, random, walk);
+				if ( buffer.remaining() < 4 * (length + 1) )
+					flush(buffer, channel);
+				buffer.putInt(length);
+				for ( int j = 0; j < length; j += 1 )
+					buffer.putInt(walk[j]);
+				walks += 1;
+			}
+		flush(buffer, channel);
+		return walks;
+	}
+
+	/**
+	 * Appends the content of a buffer to the file of the walks, and empties the buffer.
+	 * @param buffer The buffer.
+	 * @param channel The channel of the file of the walks.
+	 * @throws UncheckedIOException If the file cannot be written.
+	 */
+	private static void flush(ByteBuffer buffer, FileChannel channel) {
+		buffer.flip();
+		try {
+			synchronized (channel) {
+				while ( buffer.hasRemaining() )
+					channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buffer.clear();
+	}
+
+}
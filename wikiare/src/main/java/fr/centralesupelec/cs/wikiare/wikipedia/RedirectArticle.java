@@ -21,10 +21,7 @@
 //
 package fr.centralesupelec.cs.wikiare.wikipedia;
 
-import org.neo4j.driver.v1.Driver;
 import org.neo4j.driver.v1.Record;
-import org.neo4j.driver.v1.Session;
-import org.neo4j.driver.v1.StatementResult;
 import org.neo4j.driver.v1.Values;
 import org.neo4j.driver.v1.types.Node;
 
@@ -36,22 +33,27 @@ public class RedirectArticle extends Article {
 
 	/**
 	 * Creates a new redirect article.
-	 * @param driver The driver used to connect to the underlying Neo4j database.
+	 * @param factory The factory that creates the pages of the underlying Neo4j database.
 	 * @param nodeIdentifier The identifier in the underlying Neo4j database of the node
 	 * corresponding to the new article.
 	 */
-	protected RedirectArticle(Driver driver, long nodeIdentifier) {
-		super(driver, nodeIdentifier);
+	protected RedirectArticle(PageFactory factory, long nodeIdentifier) {
+		super(factory, nodeIdentifier);
 	}
 	
 	/**
 	 * Returns the target article of this redirection.
 	 * The result is never a redirect article. 
 	 * If a loop of redirects is detected, this method returns {@code null}.
+	 * If the redirects of the language edition of this redirect are loaded in memory, the target is read 
+	 * from the table of the redirects, without querying the underlying Neo4j database.
 	 * @return The target article of this redirection, or {@code null} if no target article can be determined. 
 	 */
 	public Article redirectsTo() {
-		PageFactory pageFactory = new PageFactory(driver());
+		PageFactory pageFactory = factory();
+		RedirectTable redirectTable = pageFactory.redirectTableOf(nodeIdentifier());
+		if ( redirectTable != null )
+			return redirectTable.article(nodeIdentifier());
 		return redirectsTo(nodeIdentifier(), pageFactory);
 	}
 	
@@ -66,13 +68,10 @@ public class RedirectArticle extends Article {
 	 */
 	private Article redirectsTo(long initialNode, PageFactory pageFactory) {
 		Article targetArticle = null;
-		Session session = driver().session();
-		StatementResult result = session.run("MATCH (n:Redirect)-[:redirectTo]->(m:Article) WHERE id(n)={node-identifier} return m as target-node", 
-				Values.parameters("node-identifier", this.nodeIdentifier()));
-		Record record = result.single();
-		Node targetNode = record.get("target-node").asNode();
+		Record record = pageFactory.query("MATCH (n:Redirect)-[:redirectTo]->(m:Article) WHERE id(n)={nodeid} return m as target", 
+				Values.parameters("nodeid", this.nodeIdentifier())).get(0);
+		Node targetNode = record.get("target").asNode();
 		targetArticle = pageFactory.createArticle(targetNode);
-		session.close();
 		if ( targetArticle.nodeIdentifier() == initialNode ) // loop of redirects.
 			return null;
 		if ( targetArticle.isRedirect() ) 
@@ -21,10 +21,7 @@
 //
 package fr.centralesupelec.cs.wikiare.wikipedia;
 
-import org.neo4j.driver.v1.Driver;
 import org.neo4j.driver.v1.Record;
-import org.neo4j.driver.v1.Session;
-import org.neo4j.driver.v1.StatementResult;
 import org.neo4j.driver.v1.Values;
 import org.neo4j.driver.v1.types.Node;
 
@@ -36,22 +33,27 @@ public class RedirectCategory extends Category {
 
 	/**
 	 * Creates a new redirect category.
-	 * @param driver The driver used to connect to the underlying Neo4j database.
+	 * @param factory The factory that creates the pages of the underlying Neo4j database.
 	 * @param nodeIdentifier The identifier in the underlying Neo4j database of the node
 	 * corresponding to the new article.
 	 */
-	protected RedirectCategory(Driver driver, long nodeIdentifier) {
-		super(driver, nodeIdentifier);
+	protected RedirectCategory(PageFactory factory, long nodeIdentifier) {
+		super(factory, nodeIdentifier);
 	}
 	
 	/**
 	 * Returns the target category of this redirection.
 	 * The result is never a redirect category. 
 	 * If a loop of redirects is detected, this method returns {@code null}.
+	 * If the redirects of the language edition of this redirect are loaded in memory, the target is read 
+	 * from the table of the redirects, without querying the underlying Neo4j database.
 	 * @return The target category of this redirection, or {@code null} if no target category can be determined. 
 	 */
 	public Category redirectsTo() {
-		PageFactory pageFactory = new PageFactory(driver());
+		PageFactory pageFactory = factory();
+		RedirectTable redirectTable = pageFactory.redirectTableOf(nodeIdentifier());
+		if ( redirectTable != null )
+			return redirectTable.category(nodeIdentifier());
 		return redirectsTo(nodeIdentifier(), pageFactory);
 	}
 	
@@ -66,14 +68,10 @@ public class RedirectCategory extends Category {
 	 */
 	private Category redirectsTo(long initialNode, PageFactory pageFactory) {
 		Category targetCategory = null;
-		Session session = driver().session();
-		StatementResult result = session.run("MATCH (n:Redirect)-[:redirectTo]->(m:Category) "
-				+ "WHERE id(n)={node-identifier} return m as target-node", 
-				Values.parameters("node-identifier", this.nodeIdentifier()));
-		Record record = result.single();
-		Node targetNode = record.get("target-node").asNode();
+		Record record = pageFactory.query("MATCH (n:Redirect)-[:redirectTo]->(m:Category) WHERE id(n)={nodeid} return m as target", 
+				Values.parameters("nodeid", this.nodeIdentifier())).get(0);
+		Node targetNode = record.get("target").asNode();
 		targetCategory = pageFactory.createCategory(targetNode);
-		session.close();
 		if ( targetCategory.nodeIdentifier() == initialNode ) // loop of redirects.
 			return null;
 		if ( targetCategory.isRedirect() ) 
@@ -0,0 +1,234 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The final targets of all the redirects of a Wikipedia language edition, loaded in memory.
+ * The chains of redirects are collapsed, so that the target of a redirect is never a redirect, and 
+ * the redirects that belong to a loop, or that lead to no page, have no target.
+ * The targets are stored in an open-addressing hash table of primitive values, indexed by the identifiers
+ * of the nodes of the redirects, so that the redirects are resolved without querying the underlying 
+ * Neo4j database.
+ *
+ */
+public class RedirectTable {
+
+	/**
+	 * The key of the empty slots of the hash table.
+	 */
+	private static final long EMPTY = -1;
+
+	/**
+	 * The value of the redirects that have no target.
+	 */
+	private static final long NO_TARGET = -1;
+
+	/**
+	 * The flag of the hops whose target is a redirect.
+	 */
+	private static final long REDIRECT = 2;
+
+	/**
+	 * The flag of the targets that are disambiguation articles.
+	 */
+	private static final long DISAMBIGUATION = 1;
+
+	/**
+	 * The factory that creates the targets of the redirects.
+	 */
+	private PageFactory factory;
+
+	/**
+	 * The language of the Wikipedia edition of the redirects.
+	 */
+	private String language;
+
+	/**
+	 * The number of redirects.
+	 */
+	private int size;
+
+	/**
+	 * The identifiers of the nodes of the redirects, or {@link #EMPTY} in the empty slots.
+	 */
+	private long[] keys;
+
+	/**
+	 * The identifiers of the nodes of the targets of the redirects, shifted left by one bit and combined 
+	 * with the flag {@link #DISAMBIGUATION}, or {@link #NO_TARGET} for the redirects that have no target.
+	 */
+	private long[] values;
+
+	/**
+	 * Creates an empty table.
+	 * @param factory The factory that creates the targets of the redirects.
+	 * @param language The language of the Wikipedia edition of the redirects.
+	 * @param expectedSize The number of redirects that the table is expected to hold.
+	 */
+	private RedirectTable(PageFactory factory, String language, int expectedSize) {
+		this.factory = factory;
+		this.language = language;
+		this.size = 0;
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+		this.keys = new long[capacity];
+		this.values = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Builds the table of the redirects of a Wikipedia language edition, by scanning all the redirects 
+	 * in parallel.
+	 * @param factory The factory that creates the targets of the redirects.
+	 * @param language The language of the Wikipedia edition.
+	 * @param parallelism The number of partitions that are scanned at the same time.
+	 * @return The table of the redirects of the language edition.
+	 */
+	public static RedirectTable build(PageFactory factory, String language, int parallelism) {
+		long[][] hops = new long[][] { new long[1024], new long[1024] };
+		int[] count = new int[1];
+		PageScan.records(factory, "Redirect", language, "OPTIONAL MATCH (n)-[:redirectTo]->(m) "
+				+ "RETURN id(n) AS nodeid, id(m) AS target, m:Redirect AS redirect, m:Disambiguation AS disambiguation")
+			.run(parallelism, record -> {
+				long hop = record.get("target").isNull() ? NO_TARGET 
+						: record.get("target").asLong() << 2 | (record.get("redirect").asBoolean() ? REDIRECT : 0) 
+							| (record.get("disambiguation").asBoolean() ? DISAMBIGUATION : 0);
+				synchronized (hops) {
+					if ( count[0] == hops[0].length ) {
+						hops[0] = Arrays.copyOf(hops[0], 2 * count[0]);
+						hops[1] = Arrays.copyOf(hops[1], 2 * count[0]);
+					}
+					hops[0][count[0]] = record.get("nodeid").asLong();
+					hops[1][count[0]] = hop;
+					count[0] += 1;
+				}
+			});
+		RedirectTable hopTable = new RedirectTable(factory, language, count[0]);
+		for ( int i = 0; i < count[0]; i += 1 )
+			hopTable.put(hops[0][i], hops[1][i]);
+		RedirectTable table = new RedirectTable(factory, language, count[0]);
+		List<Long> chain = new ArrayList<Long>();
+		for ( int i = 0; i < count[0]; i += 1 ) {
+			chain.clear();
+			long redirect = hops[0][i];
+			long hop = hops[1][i];
+			while ( hop != NO_TARGET && (hop & REDIRECT) != 0 ) {
+				chain.add(redirect);
+				redirect = hop >>> 2;
+				hop = chain.contains(redirect) ? NO_TARGET : hopTable.get(redirect);
+			}
+			table.put(hops[0][i], hop == NO_TARGET || hop == EMPTY ? NO_TARGET : (hop >>> 2) << 1 | (hop & DISAMBIGUATION));
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the language of the Wikipedia edition of the redirects of this table.
+	 * @return The language of the Wikipedia edition of the redirects of this table.
+	 */
+	public String language() {
+		return this.language;
+	}
+
+	/**
+	 * Returns the number of redirects of this table.
+	 * @return The number of redirects of this table.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns whether the redirect corresponding to the given node is in this table.
+	 * @param nodeIdentifier The identifier of the node of a redirect.
+	 * @return {@code true} if the redirect is in this table, {@code false} otherwise.
+	 */
+	boolean contains(long nodeIdentifier) {
+		return keys[slot(nodeIdentifier)] != EMPTY;
+	}
+
+	/**
+	 * Returns the target article of the redirect corresponding to the given node.
+	 * @param nodeIdentifier The identifier of the node of a redirect of this table.
+	 * @return The target article of the redirect, or {@code null} if the redirect has no target.
+	 */
+	Article article(long nodeIdentifier) {
+		long target = get(nodeIdentifier);
+		if ( target == NO_TARGET || target == EMPTY )
+			return null;
+		return factory.createArticleById(target >>> 1, (target & DISAMBIGUATION) != 0);
+	}
+
+	/**
+	 * Returns the target category of the redirect corresponding to the given node.
+	 * @param nodeIdentifier The identifier of the node of a redirect of this table.
+	 * @return The target category of the redirect, or {@code null} if the redirect has no target.
+	 */
+	Category category(long nodeIdentifier) {
+		long target = get(nodeIdentifier);
+		if ( target == NO_TARGET || target == EMPTY )
+			return null;
+		return new Category(factory, target >>> 1);
+	}
+
+	/**
+	 * Returns the value associated with the given redirect in the hash table.
+	 * @param nodeIdentifier The identifier of the node of a redirect.
+	 * @return The value associated with the redirect, or {@link #EMPTY} if the redirect is not in the table.
+	 */
+	private long get(long nodeIdentifier) {
+		int slot = slot(nodeIdentifier);
+		return keys[slot] == EMPTY ? EMPTY : values[slot];
+	}
+
+	/**
+	 * Associates a value with a redirect in the hash table.
+	 * @param nodeIdentifier The identifier of the node of a redirect.
+	 * @param value The value associated with the redirect.
+	 */
+	private void put(long nodeIdentifier, long value) {
+		int slot = slot(nodeIdentifier);
+		if ( keys[slot] == EMPTY ) {
+			keys[slot] = nodeIdentifier;
+			size += 1;
+		}
+		values[slot] = value;
+	}
+
+	/**
+	 * Returns the slot of the hash table that holds the given redirect, or the empty slot where 
+	 * it would be inserted.
+	 * @param nodeIdentifier The identifier of the node of a redirect.
+	 * @return The slot of the redirect.
+	 */
+	private int slot(long nodeIdentifier) {
+		int mask = keys.length - 1;
+		int slot = (int)((nodeIdentifier * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+		while ( keys[slot] != EMPTY && keys[slot] != nodeIdentifier )
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+}
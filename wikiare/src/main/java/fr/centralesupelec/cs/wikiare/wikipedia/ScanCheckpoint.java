@@ -0,0 +1,234 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+
+/**
+ * The progress of a scan of the pages of a Wikipedia language edition.
+ * The node identifiers of the pages are split into partitions, that are scanned independently;
+ * the checkpoint records which partitions have been completely scanned, so that an interrupted
+ * scan can be resumed from where it stopped.
+ * If a file is specified, the checkpoint is written to it every time a partition is completed.
+ *
+ */
+public class ScanCheckpoint {
+
+	/**
+	 * The file where this checkpoint is saved, if any, {@code null} otherwise.
+	 */
+	private File file;
+
+	/**
+	 * The label of the scanned nodes.
+	 */
+	private String label;
+
+	/**
+	 * The language of the Wikipedia edition that is scanned.
+	 */
+	private String language;
+
+	/**
+	 * The bounds of the partitions: the partition {@code i} covers the node identifiers
+	 * from {@code bounds[i]} (inclusive) to {@code bounds[i+1]} (exclusive).
+	 */
+	private long[] bounds;
+
+	/**
+	 * The partitions that have been completely scanned.
+	 */
+	private BitSet completed;
+
+	/**
+	 * Creates a new checkpoint that is kept in memory only.
+	 */
+	public ScanCheckpoint() {
+		this.file = null;
+		this.label = null;
+		this.language = null;
+		this.bounds = null;
+		this.completed = new BitSet();
+	}
+
+	/**
+	 * Creates a new checkpoint that is saved to the given file.
+	 * If the file exists, the checkpoint is read from it, so that the scan is resumed.
+	 * @param file The file where the checkpoint is saved.
+	 */
+	public ScanCheckpoint(File file) {
+		this();
+		this.file = file;
+		if ( file.exists() )
+			read();
+	}
+
+	/**
+	 * Returns the number of partitions of the scan.
+	 * @return The number of partitions of the scan, or {@code 0} if the scan has not started yet.
+	 */
+	public synchronized int partitions() {
+		return bounds == null ? 0 : bounds.length - 1;
+	}
+
+	/**
+	 * Returns the number of partitions that have been completely scanned.
+	 * @return The number of partitions that have been completely scanned.
+	 */
+	public synchronized int completedPartitions() {
+		return completed.cardinality();
+	}
+
+	/**
+	 * Returns whether the scan is complete.
+	 * @return {@code true} if all the partitions have been scanned, {@code false} otherwise.
+	 */
+	public synchronized boolean isComplete() {
+		return bounds != null && completed.cardinality() == partitions();
+	}
+
+	/**
+	 * Returns whether the partitions of the scan have been already defined.
+	 * @return {@code true} if the partitions of the scan have been defined, {@code false} otherwise.
+	 */
+	synchronized boolean isInitialized() {
+		return bounds != null;
+	}
+
+	/**
+	 * Defines the partitions of the scan.
+	 * @param label The label of the scanned nodes.
+	 * @param language The language of the Wikipedia edition that is scanned.
+	 * @param bounds The bounds of the partitions.
+	 */
+	synchronized void initialize(String label, String language, long[] bounds) {
+		this.label = label;
+		this.language = language;
+		this.bounds = bounds;
+		this.completed.clear();
+		write();
+	}
+
+	/**
+	 * Checks that this checkpoint refers to the scan of the given nodes.
+	 * @param label The label of the scanned nodes.
+	 * @param language The language of the Wikipedia edition that is scanned.
+	 * @throws IllegalArgumentException If this checkpoint refers to another scan.
+	 */
+	synchronized void check(String label, String language) {
+		if ( !this.label.equals(label) || !this.language.equals(language) )
+			throw new IllegalArgumentException("The checkpoint refers to the scan of the nodes :" + this.label
+					+ " in language " + this.language);
+	}
+
+	/**
+	 * Returns the first node identifier of the given partition.
+	 * @param partition A partition.
+	 * @return The first node identifier of the given partition.
+	 */
+	synchronized long lowerBound(int partition) {
+		return bounds[partition];
+	}
+
+	/**
+	 * Returns the node identifier that follows the last node identifier of the given partition.
+	 * @param partition A partition.
+	 * @return The node identifier that follows the last node identifier of the given partition.
+	 */
+	synchronized long upperBound(int partition) {
+		return bounds[partition + 1];
+	}
+
+	/**
+	 * Returns whether the given partition has been completely scanned.
+	 * @param partition A partition.
+	 * @return {@code true} if the partition has been completely scanned, {@code false} otherwise.
+	 */
+	synchronized boolean isCompleted(int partition) {
+		return completed.get(partition);
+	}
+
+	/**
+	 * Marks the given partition as completely scanned.
+	 * @param partition A partition.
+	 */
+	synchronized void complete(int partition) {
+		completed.set(partition);
+		write();
+	}
+
+	/**
+	 * Reads this checkpoint from its file.
+	 */
+	private void read() {
+		try ( DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath())) ) {
+			label = in.readUTF();
+			language = in.readUTF();
+			bounds = new long[in.readInt()];
+			for ( int i = 0; i < bounds.length; i += 1 )
+				bounds[i] = in.readLong();
+			long[] words = new long[in.readInt()];
+			for ( int i = 0; i < words.length; i += 1 )
+				words[i] = in.readLong();
+			completed = BitSet.valueOf(words);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read the checkpoint " + file, e);
+		}
+	}
+
+	/**
+	 * Writes this checkpoint to its file, if any.
+	 * The file is replaced atomically, so that it is never left half-written.
+	 */
+	private void write() {
+		if ( file == null )
+			return;
+		File temporary = new File(file.getPath() + ".tmp");
+		try ( DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary.toPath())) ) {
+			out.writeUTF(label);
+			out.writeUTF(language);
+			out.writeInt(bounds.length);
+			for ( long bound : bounds )
+				out.writeLong(bound);
+			long[] words = completed.toLongArray();
+			out.writeInt(words.length);
+			for ( long word : words )
+				out.writeLong(word);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write the checkpoint " + file, e);
+		}
+		try {
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write the checkpoint " + file, e);
+		}
+	}
+
+}
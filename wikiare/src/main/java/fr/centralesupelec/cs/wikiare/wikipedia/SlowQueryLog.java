@@ -0,0 +1,386 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.neo4j.driver.v1.Session;
+import org.neo4j.driver.v1.Value;
+import org.neo4j.driver.v1.summary.ProfiledPlan;
+import org.neo4j.driver.v1.summary.ResultSummary;
+
+/**
+ * A log of the queries that take longer than a threshold, written to a local file for offline analysis.
+ * Each slow query is logged with its parameters, its latency and the number of records that it returned.
+ * A sample of the slow queries is run again with {@code PROFILE}, in the background, so that the plan 
+ * of the query, with the database hits of each operator, is logged as well.
+ * When the file exceeds its maximum size, it is rolled: it is renamed with the suffix {@code .1}, 
+ * the previous files are shifted, and the oldest file is deleted.
+ *
+ */
+public class SlowQueryLog {
+
+	/**
+	 * The number of queries that can wait to be profiled; the slow queries sampled while the queue 
+	 * is full are not profiled.
+	 */
+	private static final int PROFILE_QUEUE_SIZE = 16;
+
+	/**
+	 * The file of the log.
+	 */
+	private File file;
+
+	/**
+	 * The latency above which a query is logged, in milliseconds.
+	 */
+	private long threshold;
+
+	/**
+	 * The fraction of the slow queries that are profiled.
+	 */
+	private double profileRate;
+
+	/**
+	 * The maximum size in bytes of the file of the log.
+	 */
+	private long maxFileSize;
+
+	/**
+	 * The number of rolled files that are kept.
+	 */
+	private int maxFiles;
+
+	/**
+	 * The stream of the file of the log, or {@code null} if the file could not be opened again 
+	 * after a failure.
+	 */
+	private OutputStream output;
+
+	/**
+	 * The number of bytes written to the file of the log since it was created or rolled.
+	 */
+	private long written;
+
+	/**
+	 * The thread that profiles the sampled queries.
+	 */
+	private ThreadPoolExecutor profiler;
+
+	/**
+	 * The number of slow queries that have been logged.
+	 */
+	private AtomicLong slowQueries;
+
+	/**
+	 * The number of slow queries that have been profiled.
+	 */
+	private AtomicLong profiles;
+
+	/**
+	 * The number of entries that could not be written to the file of the log.
+	 */
+	private AtomicLong dropped;
+
+	/**
+	 * Creates a new log, appending to the file if it exists.
+	 * @param file The file of the log.
+	 * @param threshold The latency above which a query is logged, in milliseconds.
+	 * @param profileRate The fraction of the slow queries that are profiled, between {@code 0} and {@code 1}.
+	 * @param maxFileSize The maximum size in bytes of the file of the log.
+	 * @param maxFiles The number of rolled files that are kept.
+	 * @throws IllegalArgumentException If the fraction of profiled queries is not between {@code 0} and {@code 1}.
+	 * @throws UncheckedIOException If the file cannot be opened.
+	 */
+	public SlowQueryLog(File file, long threshold, double profileRate, long maxFileSize, int maxFiles) {
+		if ( profileRate < 0 || profileRate > 1 )
+			throw new IllegalArgumentException("The fraction of profiled queries must be between 0 and 1: " + profileRate);
+		this.file = file;
+		this.threshold = threshold;
+		this.profileRate = profileRate;
+		this.maxFileSize = maxFileSize;
+		this.maxFiles = maxFiles;
+		this.slowQueries = new AtomicLong();
+		this.profiles = new AtomicLong();
+		this.dropped = new AtomicLong();
+		this.profiler = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, 
+				new ArrayBlockingQueue<Runnable>(PROFILE_QUEUE_SIZE), runnable -> {
+					Thread thread = new Thread(runnable, "wikiare-query-profiler");
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.DiscardPolicy());
+		try {
+			open();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the file of this log.
+	 * @return The file of this log.
+	 */
+	public File file() {
+		return this.file;
+	}
+
+	/**
+	 * Returns the latency above which a query is logged.
+	 * @return The latency above which a query is logged, in milliseconds.
+	 */
+	public long threshold() {
+		return this.threshold;
+	}
+
+	/**
+	 * Returns the fraction of the slow queries that are profiled.
+	 * @return The fraction of the slow queries that are profiled.
+	 */
+	public double profileRate() {
+		return this.profileRate;
+	}
+
+	/**
+	 * Returns the number of slow queries that have been logged.
+	 * @return The number of slow queries that have been logged.
+	 */
+	public long slowQueries() {
+		return this.slowQueries.get();
+	}
+
+	/**
+	 * Returns the number of slow queries that have been profiled.
+	 * @return The number of slow queries that have been profiled.
+	 */
+	public long profiles() {
+		return this.profiles.get();
+	}
+
+	/**
+	 * Returns the number of entries that could not be written to the file of this log, and have been dropped.
+	 * @return The number of entries that have been dropped.
+	 */
+	public long dropped() {
+		return this.dropped.get();
+	}
+
+	/**
+	 * Records the execution of a query, that is logged if it is slow.
+	 * This method never throws an exception, so that a failure of the log never fails a query: 
+	 * the entries that cannot be written are counted and dropped.
+	 * @param factory The factory that ran the query.
+	 * @param query The query.
+	 * @param parameters The parameters of the query, if any, {@code null} otherwise.
+	 * @param milliseconds The latency of the query.
+	 * @param rows The number of records returned by the query.
+	 */
+	void record(PageFactory factory, String query, Value parameters, long milliseconds, int rows) {
+		if ( milliseconds < threshold )
+			return;
+		slowQueries.incrementAndGet();
+		try {
+			Map<String, Object> values = parameters != null ? parameters.asMap() : Collections.<String, Object>emptyMap();
+			write(Instant.now() + "\tSLOW\t" + milliseconds + "ms\t" + rows + " rows\t" + oneLine(query) + "\t" + values + "\n");
+			if ( profileRate > 0 && ThreadLocalRandom.current().nextDouble() < profileRate )
+				profiler.execute(() -> profile(factory, query, parameters));
+		} catch (RuntimeException e) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Closes this log, abandoning the queries that are waiting to be profiled.
+	 * @throws UncheckedIOException If the file cannot be closed.
+	 */
+	public synchronized void close() {
+		profiler.shutdownNow();
+		if ( output == null )
+			return;
+		try {
+			output.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			output = null;
+		}
+	}
+
+	/**
+	 * Runs a query again with {@code PROFILE}, and logs its plan.
+	 * @param factory The factory that ran the query.
+	 * @param query The query.
+	 * @param parameters The parameters of the query, if any, {@code null} otherwise.
+	 */
+	private void profile(PageFactory factory, String query, Value parameters) {
+		StringBuilder entry = new StringBuilder();
+		long start = System.nanoTime();
+		Session session = factory.driver().session();
+		try {
+			ResultSummary summary = (parameters != null ? session.run("PROFILE " + query, parameters) 
+					: session.run("PROFILE " + query)).consume();
+			long milliseconds = (System.nanoTime() - start) / 1000000;
+			if ( !summary.hasProfile() )
+				return;
+			entry.append(Instant.now()).append("\tPROFILE\t").append(milliseconds).append("ms\t")
+				.append(dbHits(summary.profile())).append(" db hits\t").append(oneLine(query)).append("\n");
+			plan(summary.profile(), 1, entry);
+		} catch (RuntimeException e) {
+			entry.append(Instant.now()).append("\tPROFILE FAILED\t").append(e).append("\t").append(oneLine(query)).append("\n");
+		} finally {
+			session.close();
+		}
+		profiles.incrementAndGet();
+		write(entry.toString());
+	}
+
+	/**
+	 * Returns the total number of database hits of a profiled plan.
+	 * @param plan A profiled plan.
+	 * @return The total number of database hits of the plan and its children.
+	 */
+	private static long dbHits(ProfiledPlan plan) {
+		long dbHits = plan.dbHits();
+		for ( ProfiledPlan child : plan.children() )
+			dbHits += dbHits(child);
+		return dbHits;
+	}
+
+	/**
+	 * Writes a profiled plan as an indented tree, one operator per line.
+	 * @param plan A profiled plan.
+	 * @param depth The depth of the plan in the tree.
+	 * @param entry The entry of the log where the plan is written.
+	 */
+	private static void plan(ProfiledPlan plan, int depth, StringBuilder entry) {
+		for ( int i = 0; i < depth; i += 1 )
+			entry.append("  ");
+		entry.append(plan.operatorType()).append(" dbHits=").append(plan.dbHits()).append(" rows=")
+			.append(plan.records()).append(" ").append(plan.identifiers()).append("\n");
+		for ( ProfiledPlan child : plan.children() )
+			plan(child, depth + 1, entry);
+	}
+
+	/**
+	 * Returns a query on a single line.
+	 * @param query A query.
+	 * @return The query, with its line breaks replaced with spaces.
+	 */
+	private static String oneLine(String query) {
+		return query.replace('\n', ' ').replace('\r', ' ').replace('\t', ' ');
+	}
+
+	/**
+	 * Appends an entry to the file of the log, rolling the file if it exceeds its maximum size.
+	 * If the file cannot be written, the entry is dropped, and the file is opened again for the next entry.
+	 * @param entry The entry.
+	 */
+	private synchronized void write(String entry) {
+		byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+		try {
+			if ( output == null )
+				open();
+			output.write(bytes);
+			output.flush();
+			written += bytes.length;
+		} catch (IOException e) {
+			dropped.incrementAndGet();
+			discard();
+			return;
+		}
+		if ( written >= maxFileSize ) {
+			try {
+				roll();
+			} catch (IOException e) {
+				discard();
+			}
+		}
+	}
+
+	/**
+	 * Closes the stream of the file of the log after a failure, ignoring any further failure, 
+	 * so that the file is opened again for the next entry.
+	 */
+	private void discard() {
+		if ( output != null ) {
+			try {
+				output.close();
+			} catch (IOException e) {
+				// The stream is abandoned anyway.
+			}
+		}
+		output = null;
+	}
+
+	/**
+	 * Rolls the file of the log: the rolled files are shifted, the oldest one is deleted, and 
+	 * a new file is opened.
+	 * @throws IOException If the files cannot be renamed.
+	 */
+	private void roll() throws IOException {
+		output.close();
+		output = null;
+		Files.deleteIfExists(rolled(maxFiles).toPath());
+		for ( int i = maxFiles - 1; i >= 1; i -= 1 )
+			if ( rolled(i).exists() )
+				Files.move(rolled(i).toPath(), rolled(i + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		if ( maxFiles > 0 )
+			Files.move(file.toPath(), rolled(1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		else
+			Files.delete(file.toPath());
+		open();
+	}
+
+	/**
+	 * Returns the rolled file with the given number.
+	 * @param number The number of a rolled file, {@code 1} for the most recent one.
+	 * @return The rolled file.
+	 */
+	private File rolled(int number) {
+		return new File(file.getPath() + "." + number);
+	}
+
+	/**
+	 * Opens the file of the log, in append mode.
+	 * @throws IOException If the file cannot be opened.
+	 */
+	private void open() throws IOException {
+		this.output = new BufferedOutputStream(new FileOutputStream(file, true));
+		this.written = file.length();
+	}
+
+}
@@ -0,0 +1,520 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.neo4j.driver.v1.Record;
+
+/**
+ * An immutable dictionary that maps the titles of the articles of a Wikipedia language edition
+ * to the corresponding nodes in the underlying Neo4j database.
+ * The titles of the redirects are mapped to the final targets of the redirections.
+ * The titles are sorted by their UTF-8 bytes and stored, together with the node identifiers
+ * and the indegrees of the articles, in a single buffer outside the Java heap, that can be saved
+ * to a file and memory-mapped later.
+ * The dictionary answers exact lookups and prefix lookups by binary search, and completes a prefix
+ * with the articles with the highest indegree with a tree of the maximum indegrees.
+ *
+ */
+public class TitleDictionary {
+
+	/**
+	 * The number that identifies the files of a dictionary.
+	 */
+	private static final int MAGIC = 0x57544431;
+
+	/**
+	 * The size in bytes of the header of the buffer.
+	 */
+	private static final int HEADER_SIZE = 24;
+
+	/**
+	 * The flag of the entries whose article is a disambiguation article.
+	 */
+	private static final byte DISAMBIGUATION = 1;
+
+	/**
+	 * The flag of the entries whose title is the title of a redirect.
+	 */
+	private static final byte REDIRECT = 2;
+
+	/**
+	 * The factory that creates the articles.
+	 */
+	private PageFactory factory;
+
+	/**
+	 * The language of the Wikipedia edition of the titles.
+	 */
+	private String language;
+
+	/**
+	 * The buffer that contains the dictionary.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * The number of titles.
+	 */
+	private int size;
+
+	/**
+	 * The number of leaves of the tree of the maximum indegrees, which is a power of two.
+	 */
+	private int leaves;
+
+	/**
+	 * The positions in the buffer of the sections of the dictionary.
+	 */
+	private int offsetsStart, nodesStart, indegreesStart, flagsStart, treeStart, titlesStart;
+
+	/**
+	 * Creates a dictionary from its buffer.
+	 * @param factory The factory that creates the articles.
+	 * @param buffer The buffer that contains the dictionary.
+	 * @throws IllegalArgumentException If the buffer does not contain a dictionary.
+	 */
+	private TitleDictionary(PageFactory factory, ByteBuffer buffer) {
+		this.factory = factory;
+		this.buffer = buffer;
+		if ( buffer.getInt(0) != MAGIC )
+			throw new IllegalArgumentException("The buffer does not contain a title dictionary");
+		this.size = buffer.getInt(4);
+		this.leaves = buffer.getInt(8);
+		int languageLength = buffer.getInt(12);
+		byte[] languageBytes = new byte[languageLength];
+		for ( int i = 0; i < languageLength; i += 1 )
+			languageBytes[i] = buffer.get(HEADER_SIZE + i);
+		this.language = new String(languageBytes, StandardCharsets.UTF_8);
+		this.offsetsStart = HEADER_SIZE + languageLength;
+		this.nodesStart = offsetsStart + 4 * (size + 1);
+		this.indegreesStart = nodesStart + 8 * size;
+		this.flagsStart = indegreesStart + 4 * size;
+		this.treeStart = flagsStart + size;
+		this.titlesStart = treeStart + 4 * 2 * leaves;
+	}
+
+	/**
+	 * Builds the dictionary of the titles of a Wikipedia language edition.
+	 * @param factory The factory that creates the articles.
+	 * @param language The language of the Wikipedia edition.
+	 * @param parallelism The number of threads that read the titles from the underlying Neo4j database.
+	 * @return The dictionary of the titles of the language edition.
+	 */
+	public static TitleDictionary build(PageFactory factory, String language, int parallelism) {
+		List<Entry> entries = new ArrayList<Entry>();
+		PageScan.records(factory, "Article", language, PageFactory.resolveRedirects("n", "target", "n")
+				+ "WHERE target IS NOT NULL RETURN n.title AS title, id(target) AS nodeid, "
+				+ "target.indegree AS indegree, target:Disambiguation AS disambiguation, n:Redirect AS redirect")
+			.run(parallelism, record -> {
+				Entry entry = new Entry(record);
+				synchronized (entries) {
+					entries.add(entry);
+				}
+			});
+		return build(factory, language, entries);
+	}
+
+	/**
+	 * Builds a dictionary from its entries.
+	 * @param factory The factory that creates the articles.
+	 * @param language The language of the Wikipedia edition.
+	 * @param entries The entries of the dictionary.
+	 * @return The dictionary.
+	 */
+	private static TitleDictionary build(PageFactory factory, String language, List<Entry> entries) {
+		entries.sort(Entry::compareTo);
+		byte[] languageBytes = language.getBytes(StandardCharsets.UTF_8);
+		long titlesLength = 0;
+		for ( Entry entry : entries )
+			titlesLength += entry.title.length;
+		int size = entries.size();
+		int leaves = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+		long capacity = HEADER_SIZE + languageBytes.length + 4L * (size + 1) + 8L * size + 4L * size + size
+				+ 4L * 2 * leaves + titlesLength;
+		if ( capacity > Integer.MAX_VALUE )
+			throw new IllegalStateException("The titles of the language " + language + " exceed 2GB");
+		ByteBuffer buffer = ByteBuffer.allocateDirect((int)capacity);
+		buffer.putInt(MAGIC).putInt(size).putInt(leaves).putInt(languageBytes.length).putLong(titlesLength);
+		buffer.put(languageBytes);
+		int offset = 0;
+		for ( Entry entry : entries ) {
+			buffer.putInt(offset);
+			offset += entry.title.length;
+		}
+		buffer.putInt(offset);
+		for ( Entry entry : entries )
+			buffer.putLong(entry.nodeIdentifier);
+		for ( Entry entry : entries )
+			buffer.putInt(entry.indegree);
+		for ( Entry entry : entries )
+			buffer.put(entry.flags);
+		int treeStart = buffer.position();
+		for ( int leaf = 0; leaf < leaves; leaf += 1 )
+			buffer.putInt(treeStart + 4 * (leaves + leaf), leaf < size ? leaf : -1);
+		for ( int node = leaves - 1; node >= 1; node -= 1 ) {
+			int left = buffer.getInt(treeStart + 4 * 2 * node);
+			int right = buffer.getInt(treeStart + 4 * (2 * node + 1));
+			int max = right < 0 || (left >= 0 && entries.get(left).indegree >= entries.get(right).indegree) ? left : right;
+			buffer.putInt(treeStart + 4 * node, max);
+		}
+		buffer.position(treeStart + 4 * 2 * leaves);
+		for ( Entry entry : entries )
+			buffer.put(entry.title);
+		buffer.clear();
+		return new TitleDictionary(factory, buffer);
+	}
+
+	/**
+	 * Opens a dictionary saved to a file, by mapping the file to memory.
+	 * @param factory The factory that creates the articles.
+	 * @param file The file of the dictionary.
+	 * @return The dictionary saved to the file.
+	 * @throws IllegalArgumentException If the file does not contain a dictionary.
+	 */
+	public static TitleDictionary open(PageFactory factory, File file) {
+		try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ) ) {
+			return new TitleDictionary(factory, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to open the title dictionary " + file, e);
+		}
+	}
+
+	/**
+	 * Saves this dictionary to a file.
+	 * @param file The file.
+	 */
+	public void save(File file) {
+		try ( FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE) ) {
+			ByteBuffer content = buffer.duplicate();
+			content.clear();
+			while ( content.hasRemaining() )
+				channel.write(content);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to save the title dictionary " + file, e);
+		}
+	}
+
+	/**
+	 * Returns the language of the Wikipedia edition of the titles of this dictionary.
+	 * @return The language of the Wikipedia edition of the titles of this dictionary.
+	 */
+	public String language() {
+		return this.language;
+	}
+
+	/**
+	 * Returns the number of titles in this dictionary.
+	 * @return The number of titles in this dictionary.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns whether this dictionary contains the given title.
+	 * @param title A title.
+	 * @return {@code true} if this dictionary contains the title, {@code false} otherwise.
+	 */
+	public boolean contains(String title) {
+		return find(title) >= 0;
+	}
+
+	/**
+	 * Returns the article with the given title.
+	 * If the title is the title of a redirect, the target of the redirection is returned.
+	 * @param title A title.
+	 * @return The article with the given title, if any, {@code null} otherwise.
+	 */
+	public Article get(String title) {
+		int entry = find(title);
+		return entry >= 0 ? article(entry) : null;
+	}
+
+	/**
+	 * Returns whether the given title is the title of a redirect.
+	 * @param title A title.
+	 * @return {@code true} if this dictionary contains the title and the title is the title of a redirect, 
+	 * {@code false} otherwise.
+	 */
+	public boolean isRedirect(String title) {
+		int entry = find(title);
+		return entry >= 0 && (buffer.get(flagsStart + entry) & REDIRECT) != 0;
+	}
+
+	/**
+	 * Returns the articles whose titles start with the given prefix, in the order of their titles.
+	 * @param prefix A prefix.
+	 * @param limit The maximum number of articles returned.
+	 * @return The articles whose titles start with the given prefix.
+	 */
+	public List<Article> prefix(String prefix, int limit) {
+		byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+		int low = lowerBound(key, true);
+		int high = Math.min(lowerBound(key, false), low + limit);
+		List<Article> articles = new ArrayList<Article>();
+		for ( int entry = low; entry < high; entry += 1 )
+			articles.add(article(entry));
+		return articles;
+	}
+
+	/**
+	 * Returns the {@code k} articles with the highest indegree among those whose titles start with the given prefix.
+	 * @param prefix A prefix.
+	 * @param k The maximum number of articles returned.
+	 * @return The articles whose titles start with the given prefix, sorted by decreasing indegree.
+	 */
+	public List<Article> complete(String prefix, int k) {
+		List<Article> articles = new ArrayList<Article>();
+		for ( int entry : top(prefix, k) )
+			articles.add(article(entry));
+		return articles;
+	}
+
+	/**
+	 * Returns the {@code k} titles of the articles with the highest indegree among those whose titles start
+	 * with the given prefix.
+	 * No article is created, which is what an autocompletion usually needs.
+	 * @param prefix A prefix.
+	 * @param k The maximum number of titles returned.
+	 * @return The titles that start with the given prefix, sorted by decreasing indegree of their articles.
+	 */
+	public List<String> completeTitles(String prefix, int k) {
+		List<String> titles = new ArrayList<String>();
+		for ( int entry : top(prefix, k) )
+			titles.add(title(entry));
+		return titles;
+	}
+
+	/**
+	 * Returns the title of the given entry.
+	 * @param entry The position of an entry.
+	 * @return The title of the entry.
+	 */
+	String title(int entry) {
+		int start = buffer.getInt(offsetsStart + 4 * entry);
+		byte[] bytes = new byte[buffer.getInt(offsetsStart + 4 * (entry + 1)) - start];
+		for ( int i = 0; i < bytes.length; i += 1 )
+			bytes[i] = buffer.get(titlesStart + start + i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the node identifier of the article of the given entry.
+	 * @param entry The position of an entry.
+	 * @return The node identifier of the article of the entry.
+	 */
+	long nodeIdentifier(int entry) {
+		return buffer.getLong(nodesStart + 8 * entry);
+	}
+
+	/**
+	 * Returns the indegree of the article of the given entry.
+	 * @param entry The position of an entry.
+	 * @return The indegree of the article of the entry.
+	 */
+	int indegree(int entry) {
+		return buffer.getInt(indegreesStart + 4 * entry);
+	}
+
+	/**
+	 * Returns the position of the entry with the given title.
+	 * @param title A title.
+	 * @return The position of the entry with the given title, or {@code -1} if there is no such entry.
+	 */
+	int find(String title) {
+		byte[] key = title.getBytes(StandardCharsets.UTF_8);
+		int entry = lowerBound(key, true);
+		return entry < size && compare(entry, key, false) == 0 ? entry : -1;
+	}
+
+	/**
+	 * Returns the positions of the {@code k} entries with the highest indegree among those whose titles
+	 * start with the given prefix.
+	 * @param prefix A prefix.
+	 * @param k The maximum number of entries returned.
+	 * @return The positions of the entries, sorted by decreasing indegree.
+	 */
+	int[] top(String prefix, int k) {
+		byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+		int low = lowerBound(key, true);
+		int high = lowerBound(key, false);
+		PriorityQueue<int[]> ranges = new PriorityQueue<int[]>((first, second) ->
+			Integer.compare(indegree(second[2]), indegree(first[2])));
+		if ( low < high )
+			ranges.add(new int[] { low, high, maximum(low, high) });
+		int[] top = new int[Math.min(k, high - low)];
+		for ( int i = 0; i < top.length; i += 1 ) {
+			int[] range = ranges.poll();
+			top[i] = range[2];
+			if ( range[0] < range[2] )
+				ranges.add(new int[] { range[0], range[2], maximum(range[0], range[2]) });
+			if ( range[2] + 1 < range[1] )
+				ranges.add(new int[] { range[2] + 1, range[1], maximum(range[2] + 1, range[1]) });
+		}
+		return top;
+	}
+
+	/**
+	 * Returns the position of the entry with the highest indegree in the given range.
+	 * @param low The first position of the range.
+	 * @param high The position that follows the last one of the range.
+	 * @return The position of the entry with the highest indegree in the range.
+	 */
+	private int maximum(int low, int high) {
+		int max = -1;
+		for ( low += leaves, high += leaves; low < high; low >>= 1, high >>= 1 ) {
+			if ( (low & 1) == 1 )
+				max = higher(max, buffer.getInt(treeStart + 4 * low++));
+			if ( (high & 1) == 1 )
+				max = higher(max, buffer.getInt(treeStart + 4 * --high));
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the entry with the higher indegree between two entries.
+	 * @param first The position of an entry, or {@code -1}.
+	 * @param second The position of another entry, or {@code -1}.
+	 * @return The entry with the higher indegree.
+	 */
+	private int higher(int first, int second) {
+		if ( first < 0 )
+			return second;
+		if ( second < 0 )
+			return first;
+		return indegree(first) >= indegree(second) ? first : second;
+	}
+
+	/**
+	 * Returns the position of the first entry whose title is not lower than the key.
+	 * @param key The UTF-8 bytes of a title or a prefix.
+	 * @param prefix If {@code false}, the titles that start with the key are considered lower than the key, so that
+	 * the position that follows the titles starting with the key is returned.
+	 * @return The position of the first entry whose title is not lower than the key.
+	 */
+	private int lowerBound(byte[] key, boolean prefix) {
+		int low = 0;
+		int high = size;
+		while ( low < high ) {
+			int middle = (low + high) >>> 1;
+			if ( compare(middle, key, !prefix) < 0 )
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Compares the title of an entry with a key.
+	 * @param entry The position of an entry.
+	 * @param key The UTF-8 bytes of a title or a prefix.
+	 * @param truncate Whether the title is truncated to the length of the key before the comparison.
+	 * @return A negative number, zero or a positive number if the title is lower than, equal to or greater
+	 * than the key.
+	 */
+	private int compare(int entry, byte[] key, boolean truncate) {
+		int start = titlesStart + buffer.getInt(offsetsStart + 4 * entry);
+		int length = titlesStart + buffer.getInt(offsetsStart + 4 * (entry + 1)) - start;
+		int common = Math.min(length, key.length);
+		for ( int i = 0; i < common; i += 1 ) {
+			int difference = (buffer.get(start + i) & 0xFF) - (key[i] & 0xFF);
+			if ( difference != 0 )
+				return difference;
+		}
+		if ( truncate && length >= key.length )
+			return -1;
+		return length - key.length;
+	}
+
+	/**
+	 * Returns the article of the given entry.
+	 * @param entry The position of an entry.
+	 * @return The article of the entry.
+	 */
+	private Article article(int entry) {
+		return factory.createArticleById(nodeIdentifier(entry), (buffer.get(flagsStart + entry) & DISAMBIGUATION) != 0);
+	}
+
+	/**
+	 * An entry of the dictionary, while it is built.
+	 */
+	private static class Entry implements Comparable<Entry> {
+
+		/**
+		 * The UTF-8 bytes of the title.
+		 */
+		private byte[] title;
+
+		/**
+		 * The node identifier of the article.
+		 */
+		private long nodeIdentifier;
+
+		/**
+		 * The indegree of the article.
+		 */
+		private int indegree;
+
+		/**
+		 * The flags of the entry.
+		 */
+		private byte flags;
+
+		/**
+		 * Creates an entry from a record.
+		 * @param record The record of the title of an article.
+		 */
+		private Entry(Record record) {
+			this.title = record.get("title").asString().getBytes(StandardCharsets.UTF_8);
+			this.nodeIdentifier = record.get("nodeid").asLong();
+			this.indegree = record.get("indegree").isNull() ? 0 : record.get("indegree").asInt();
+			this.flags = (byte)((record.get("disambiguation").asBoolean() ? DISAMBIGUATION : 0)
+					| (record.get("redirect").asBoolean() ? REDIRECT : 0));
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int common = Math.min(title.length, other.title.length);
+			for ( int i = 0; i < common; i += 1 ) {
+				int difference = (title[i] & 0xFF) - (other.title[i] & 0xFF);
+				if ( difference != 0 )
+					return difference;
+			}
+			return title.length - other.title.length;
+		}
+
+	}
+
+}
@@ -0,0 +1,47 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package fr.centralesupelec.cs.wikiare.wikipedia;
+
+/**
+ * The ways a random walk chooses the next article among the articles to which the current article links.
+ *
+ */
+public enum WalkStrategy {
+
+	/**
+	 * All the links are equally likely.
+	 */
+	UNIFORM,
+
+	/**
+	 * The likelihood of a link is the inverse of its rank in the text of the article, so that 
+	 * the links that occur first are preferred.
+	 */
+	RANK_WEIGHTED,
+
+	/**
+	 * The links are biased as in node2vec: going back to the previous article is weighted by {@code 1/p}, 
+	 * going to an article linked from the previous article by {@code 1}, and going farther by {@code 1/q}.
+	 */
+	NODE2VEC;
+
+}